@@ -0,0 +1,33 @@
+package org.yardimci.asocialoud.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Main class of benchmarks.jar : runs jmh with the arguments given, writing results as json to
+ * {@code results/jmh-<date>.json} unless {@code -rf} or {@code -rff} say otherwise, so that runs can be compared
+ * with {@link ResultsDiff}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!arguments.contains("-rff")) {
+            File results = new File("results");
+            results.mkdirs();
+            arguments.add("-rff");
+            arguments.add(new File(results, "jmh-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json").getPath());
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,75 @@
+package org.yardimci.asocialoud.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two json result files of jmh, benchmark by benchmark and parameters by parameters:
+ * <pre>
+ * java -cp asocialoud-benchmarks/target/benchmarks.jar org.yardimci.asocialoud.benchmarks.ResultsDiff \
+ *     results/jmh-before.json results/jmh-after.json
+ * </pre>
+ * A change is marked with * when the scores differ by more than their errors added up.
+ */
+public class ResultsDiff {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: ResultsDiff <before.json> <after.json>");
+            System.exit(1);
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> before = resultsOf(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> after = resultsOf(objectMapper.readTree(new File(args[1])));
+
+        System.out.printf("%-70s %14s %14s %9s %s%n", "benchmark", "before", "after", "change", "unit");
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode metric = entry.getValue().get("primaryMetric");
+            JsonNode previous = before.containsKey(entry.getKey()) ? before.get(entry.getKey()).get("primaryMetric") : null;
+            double score = metric.get("score").asDouble();
+            if (previous == null) {
+                System.out.printf("%-70s %14s %14.3f %9s %s%n", entry.getKey(), "-", score, "new", metric.get("scoreUnit").asText());
+                continue;
+            }
+            double previousScore = previous.get("score").asDouble();
+            double errors = errorOf(metric) + errorOf(previous);
+            boolean significant = Math.abs(score - previousScore) > errors;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s %s%n", entry.getKey(), previousScore, score,
+                    (score - previousScore) * 100 / previousScore, significant ? "*" : " ", metric.get("scoreUnit").asText());
+        }
+        for (String removed : before.keySet()) {
+            if (!after.containsKey(removed)) {
+                System.out.printf("%-70s %14.3f %14s %9s%n", removed, before.get(removed).get("primaryMetric").get("score").asDouble(), "-", "removed");
+            }
+        }
+    }
+
+    // benchmark name and parameters -> result
+    private static Map<String, JsonNode> resultsOf(JsonNode results) {
+        Map<String, JsonNode> byName = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder name = new StringBuilder(result.get("benchmark").asText().replace("org.yardimci.asocialoud.benchmarks.", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> fields = params.fields(); fields.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            byName.put(name.toString(), result);
+        }
+        return byName;
+    }
+
+    // a NaN error for a single measurement iteration
+    private static double errorOf(JsonNode metric) {
+        double error = metric.get("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
@@ -0,0 +1,70 @@
+package org.yardimci.asocialoud.benchmarks.db;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * File backed H2 database in a temporary directory, with the schema of a service created by running its own
+ * migration scripts from the classpath, so tables and indexes are the ones the service queries.
+ * The directory is deleted on close.
+ */
+public class SeededDatabase implements AutoCloseable {
+
+    private final File directory;
+    private final Connection connection;
+
+    private SeededDatabase(File directory, Connection connection) {
+        this.directory = directory;
+        this.connection = connection;
+    }
+
+    /**
+     * Creates the database and runs {@code migrations}, file names under {@code db/migration}, in the given order.
+     */
+    public static SeededDatabase create(String name, String... migrations) throws SQLException {
+        File directory = new File(System.getProperty("java.io.tmpdir"), "asocialoud-" + name + "-bench-" + System.nanoTime());
+        Connection connection = DriverManager.getConnection("jdbc:h2:file:" + new File(directory, name).getAbsolutePath(), "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            for (String migration : migrations) {
+                statement.execute("runscript from 'classpath:db/migration/" + migration + "'");
+            }
+        }
+        connection.setAutoCommit(false);
+        return new SeededDatabase(directory, connection);
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+
+    // statistics for the query planner once rows are in
+    public void analyze() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze");
+        }
+        connection.commit();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        } catch (SQLException e) {
+            // connection is closed by the shutdown
+        }
+        deleteRecursively(directory);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
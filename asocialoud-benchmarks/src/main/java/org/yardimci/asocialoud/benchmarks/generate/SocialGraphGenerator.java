@@ -0,0 +1,324 @@
+package org.yardimci.asocialoud.benchmarks.generate;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.yardimci.asocialoud.commons.id.TimeOrderedIdAllocator;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the members and feeds databases of the services with a synthetic social graph, the same one for the same
+ * seed and end date:
+ * <ul>
+ * <li>members member1..memberN, who all log in with {@link #PASSWORD}</li>
+ * <li>follows whose targets are drawn by a zipf law over a shuffled popularity ranking, so follower counts follow
+ * a power law, from a few members followed by a large part of everyone down to a long tail followed by nobody</li>
+ * <li>feeds posted in bursts : sessions spread over the period, each of a few feeds minutes apart</li>
+ * </ul>
+ * Members are cut in chunks loaded in parallel, each chunk with its own connection and random generator, in jdbc
+ * batches. The databases must not exist yet : the generator creates the schema the services baseline (their V1
+ * migrations), loads it, and the services build their later tables and indexes from the loaded rows on the first
+ * start, which is also cheaper than keeping the indexes up to date while loading.
+ * <pre>
+ * java -Dmembers=1000000 -cp asocialoud-benchmarks/target/benchmarks.jar org.yardimci.asocialoud.benchmarks.generate.SocialGraphGenerator
+ * </pre>
+ * System properties: {@code members} (100000), {@code followings} mean per member (50), {@code feeds} mean per
+ * member (20), {@code years} of feeds (3), {@code until} end date of the feeds (today), {@code exponent} of the zipf
+ * law (1.0), {@code seed} (42), {@code threads} (processors), {@code chunk} members per chunk (10000),
+ * {@code membersDb} (~/asocialoud-app-db) and {@code feedsDb} (~/asocialoud-feeds-app-db).
+ * <p>
+ * Members and follows are numbered from 1, below the time ordered ids the services allocate afterwards. Feed ids
+ * have the layout of {@link TimeOrderedIdAllocator} on their publish date, so they sort by it like the ones the
+ * services allocate : the node and sequence bits hold the author modulo 4096 and the millisecond of the publish date
+ * is moved back by less than {@code members / 4096} ms so that it tells the rest of the author, which keeps them
+ * unique. The services create their id sequences past the loaded ids on the first start, for services run with
+ * {@code asocialoud.id.strategy=sequence}.
+ */
+public class SocialGraphGenerator {
+
+    public static final String PASSWORD = "111222333";
+
+    private static final int BATCH_SIZE = 1000;
+
+    // ids of the follows of a member are taken from a block of this size, feeds per member are capped as well
+    private static final int MAX_FOLLOWINGS = 5000;
+    private static final int MAX_FEEDS = 10000;
+
+    // values of the node and sequence bits of a time ordered id, together the slot of an author
+    private static final int NODES = 16;
+    private static final int SEQUENCES = 256;
+    private static final int SLOTS = NODES * SEQUENCES;
+
+    // feeds of a posting session and minutes between them, on average
+    private static final double BURST_MEAN = 4;
+    private static final double GAP_MEAN_MILLIS = TimeUnit.MINUTES.toMillis(3);
+
+    private static final String[] WORDS = {"morning", "coffee", "again", "build", "broke", "today", "finally", "weekend",
+            "rain", "music", "reading", "train", "late", "new", "release", "tests", "green", "lunch", "walk", "city"};
+    private static final String[] TAGS = {"#java", "#spring", "#music", "#photo", "#news", "#running", "#books", "#food"};
+
+    private final int members;
+    private final double followings;
+    private final double feeds;
+    private final long until;
+    private final long period;
+    private final long seed;
+    private final int chunkSize;
+    // milliseconds a feed's publish date is a multiple of, give or take its author's residue
+    private final int residues;
+    private final ExecutorService workers;
+
+    private final int[] memberOfRank;
+    private final ZipfSampler popularity;
+    private final String passwordHash;
+
+    private SocialGraphGenerator(int members, double followings, double feeds, long until, int years, double exponent,
+                                 long seed, int threads, int chunkSize) {
+        this.members = members;
+        this.followings = followings;
+        this.feeds = feeds;
+        this.until = until;
+        this.period = TimeUnit.DAYS.toMillis(365L * years);
+        this.seed = seed;
+        this.chunkSize = chunkSize;
+        this.residues = (members + SLOTS - 1) / SLOTS;
+        this.workers = Executors.newFixedThreadPool(threads);
+
+        // popularity ranks are given to members in a shuffled order, the most followed are not the oldest
+        memberOfRank = new int[members];
+        for (int i = 0; i < members; i++) {
+            memberOfRank[i] = i + 1;
+        }
+        Random random = new Random(seed);
+        for (int i = members - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swapped = memberOfRank[i];
+            memberOfRank[i] = memberOfRank[j];
+            memberOfRank[j] = swapped;
+        }
+        popularity = new ZipfSampler(members, exponent);
+        passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String membersDb = System.getProperty("membersDb", "~/asocialoud-app-db");
+        String feedsDb = System.getProperty("feedsDb", "~/asocialoud-feeds-app-db");
+        for (String database : new String[]{membersDb, feedsDb}) {
+            if (new File(database.replaceFirst("^~", System.getProperty("user.home")) + ".mv.db").exists()) {
+                System.err.println("Database " + database + " already exists, remove it or give another path");
+                System.exit(1);
+            }
+        }
+        String untilDate = System.getProperty("until");
+        LocalDate until = untilDate == null ? LocalDate.now(ZoneOffset.UTC) : LocalDate.parse(untilDate);
+        int years = Integer.getInteger("years", 3);
+        // feed ids are time ordered, they must be older than the ones the services allocate and after their epoch
+        if (until.isAfter(LocalDate.now(ZoneOffset.UTC))
+                || until.minusDays(365L * years).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() <= TimeOrderedIdAllocator.EPOCH) {
+            System.err.println("Feeds must be published between 2019-01-01 and today, check until and years");
+            System.exit(1);
+        }
+
+        SocialGraphGenerator generator = new SocialGraphGenerator(
+                Integer.getInteger("members", 100000),
+                Double.parseDouble(System.getProperty("followings", "50")),
+                Double.parseDouble(System.getProperty("feeds", "20")),
+                until.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(),
+                years,
+                Double.parseDouble(System.getProperty("exponent", "1.0")),
+                Long.getLong("seed", 42),
+                Integer.getInteger("threads", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("chunk", 10000));
+
+        // kept open so the databases stay open between the chunks' connections
+        try (Connection membersConnection = DriverManager.getConnection("jdbc:h2:file:" + membersDb, "sa", "");
+             Connection feedsConnection = DriverManager.getConnection("jdbc:h2:file:" + feedsDb, "sa", "")) {
+            runScript(membersConnection, "V1__create_members_schema.sql");
+            runScript(feedsConnection, "V1__create_feeds_schema.sql");
+
+            System.out.printf("%-10s %12s %10s %12s%n", "table", "rows", "seconds", "rows/s");
+            generator.load("members", "jdbc:h2:file:" + membersDb, generator::loadMembers);
+            generator.load("follows", "jdbc:h2:file:" + membersDb, generator::loadFollows);
+            generator.load("feeds", "jdbc:h2:file:" + feedsDb, generator::loadFeeds);
+
+            shutdown(membersConnection);
+            shutdown(feedsConnection);
+        } finally {
+            generator.workers.shutdown();
+        }
+    }
+
+    private interface ChunkLoader {
+        long load(Connection connection, int firstMember, int lastMember, SplittableRandom random) throws SQLException;
+    }
+
+    private void load(String table, String url, ChunkLoader loader) throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        // a generator per table and chunk, whatever thread loads the chunk
+        long tableSeed = seed * 31 + table.hashCode();
+        List<Future<Long>> chunks = new ArrayList<>();
+        for (int first = 1, chunk = 0; first <= members; first += chunkSize, chunk++) {
+            int firstMember = first;
+            int lastMember = Math.min(members, first + chunkSize - 1);
+            SplittableRandom random = new SplittableRandom(tableSeed ^ (chunk * 0x9E3779B97F4A7C15L));
+            chunks.add(workers.submit(() -> {
+                try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+                    connection.setAutoCommit(false);
+                    long rows = loader.load(connection, firstMember, lastMember, random);
+                    connection.commit();
+                    return rows;
+                }
+            }));
+        }
+        long rows = 0;
+        for (Future<Long> chunk : chunks) {
+            rows += chunk.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-10s %12d %10.1f %12.0f%n", table, rows, seconds, rows / seconds);
+    }
+
+    private long loadMembers(Connection connection, int firstMember, int lastMember, SplittableRandom random) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into tbl_members (id, type, username, realname, email, password) values (?, 'B', ?, ?, ?, ?)")) {
+            for (int id = firstMember; id <= lastMember; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, "member" + id);
+                insert.setString(3, "Member " + id);
+                insert.setString(4, "member" + id + "@asocialoud.org");
+                insert.setString(5, passwordHash);
+                insert.addBatch();
+                if ((id - firstMember + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        return lastMember - firstMember + 1L;
+    }
+
+    private long loadFollows(Connection connection, int firstMember, int lastMember, SplittableRandom random) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into tbl_follow_data (id, follow_date, owner_id, target_id, allow_relaud) values (?, ?, ?, ?, ?)")) {
+            Set<Integer> targets = new HashSet<>();
+            for (int owner = firstMember; owner <= lastMember; owner++) {
+                int count = (int) Math.min(Math.min(MAX_FOLLOWINGS, members - 1L), exponential(random, followings));
+                targets.clear();
+                // the most popular members are drawn again and again, give up on a member after enough draws
+                for (int draws = 0; targets.size() < count && draws < count * 20; draws++) {
+                    int target = memberOfRank[popularity.sample(random) - 1];
+                    if (target != owner) {
+                        targets.add(target);
+                    }
+                }
+                int i = 0;
+                for (int target : targets) {
+                    insert.setLong(1, (owner - 1L) * MAX_FOLLOWINGS + ++i);
+                    insert.setTimestamp(2, new Timestamp(until - (long) (random.nextDouble() * period)));
+                    insert.setLong(3, owner);
+                    insert.setLong(4, target);
+                    // a few followings have their relauds turned off
+                    insert.setBoolean(5, random.nextInt(20) > 0);
+                    insert.addBatch();
+                    if (++rows % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        return rows;
+    }
+
+    private long loadFeeds(Connection connection, int firstMember, int lastMember, SplittableRandom random) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into tbl_feeds (id, text, media_uri, member_id, publish_date) values (?, ?, null, ?, ?)")) {
+            Set<Long> publishTimes = new HashSet<>();
+            for (int author = firstMember; author <= lastMember; author++) {
+                int count = (int) Math.min(MAX_FEEDS, exponential(random, feeds));
+                int slot = (author - 1) % SLOTS;
+                int residue = (author - 1) / SLOTS;
+                publishTimes.clear();
+                int i = 0;
+                while (i < count) {
+                    // a session : a few feeds minutes apart
+                    long time = until - (long) (random.nextDouble() * period);
+                    int burst = 1 + (int) exponential(random, BURST_MEAN - 1);
+                    for (int j = 0; j < burst && i < count; j++, i++) {
+                        // the slot and the residue of the millisecond tell the author, distinct times its feeds
+                        long publishTime = Math.min(until, time);
+                        publishTime -= Math.floorMod(publishTime - TimeOrderedIdAllocator.EPOCH - residue, residues);
+                        while (!publishTimes.add(publishTime)) {
+                            publishTime -= residues;
+                        }
+                        insert.setLong(1, TimeOrderedIdAllocator.idOf(publishTime, slot / SEQUENCES, slot % SEQUENCES));
+                        insert.setString(2, text(random));
+                        insert.setLong(3, author);
+                        insert.setTimestamp(4, new Timestamp(publishTime));
+                        insert.addBatch();
+                        if (++rows % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                        time += (long) exponential(random, GAP_MEAN_MILLIS);
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        return rows;
+    }
+
+    // a few words, sometimes a tag or a mention of a popular member
+    private String text(SplittableRandom random) {
+        StringBuilder text = new StringBuilder();
+        int words = 3 + random.nextInt(12);
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(4) == 0) {
+            text.append(' ').append(TAGS[random.nextInt(TAGS.length)]);
+        }
+        if (random.nextInt(8) == 0) {
+            text.append(" @member").append(memberOfRank[popularity.sample(random) - 1]);
+        }
+        return text.toString();
+    }
+
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private static void runScript(Connection connection, String migration) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("runscript from 'classpath:db/migration/" + migration + "'");
+        }
+    }
+
+    private static void shutdown(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        } catch (SQLException e) {
+            // connection is closed by the shutdown
+        }
+    }
+}
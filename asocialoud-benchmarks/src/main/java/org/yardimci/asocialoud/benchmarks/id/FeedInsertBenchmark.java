@@ -0,0 +1,157 @@
+package org.yardimci.asocialoud.benchmarks.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.commons.id.TimeOrderedIdAllocator;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of tbl_feeds rows on a file backed H2 database, one transaction of
+ * {@link #ROWS_PER_TRANSACTION} feeds per invocation, the way hibernate writes them with each id strategy:
+ * <ul>
+ * <li>identity : row by row, reading the generated key back after every insert</li>
+ * <li>sequence : one pooled sequence call per transaction, then a single jdbc batch</li>
+ * <li>time : ids allocated in memory, then a single jdbc batch</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeedInsertBenchmark {
+
+    static final int ROWS_PER_TRANSACTION = 50;
+
+    private static final String COLUMNS = "text varchar(256) not null, media_uri varchar(256), member_id bigint not null, publish_date timestamp not null";
+
+    private File directory;
+    private Connection connection;
+    private PreparedStatement identityInsert;
+    private PreparedStatement allocatedInsert;
+    private PreparedStatement sequenceCall;
+    private TimeOrderedIdAllocator allocator;
+    private long memberId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        directory = new File(System.getProperty("java.io.tmpdir"), "asocialoud-insert-bench-" + System.nanoTime());
+        connection = DriverManager.getConnection("jdbc:h2:file:" + new File(directory, "feeds").getAbsolutePath(), "sa", "");
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table tbl_feeds_identity (id bigint generated by default as identity primary key, " + COLUMNS + ")");
+            statement.execute("create table tbl_feeds_allocated (id bigint not null primary key, " + COLUMNS + ")");
+            statement.execute("create sequence seq_feeds start with 1 increment by " + ROWS_PER_TRANSACTION);
+        }
+        connection.commit();
+
+        identityInsert = connection.prepareStatement(
+                "insert into tbl_feeds_identity (text, media_uri, member_id, publish_date) values (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS);
+        allocatedInsert = connection.prepareStatement(
+                "insert into tbl_feeds_allocated (id, text, media_uri, member_id, publish_date) values (?, ?, ?, ?, ?)");
+        sequenceCall = connection.prepareStatement("call next value for seq_feeds");
+        allocator = new TimeOrderedIdAllocator(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        } catch (SQLException e) {
+            // connection is closed by the shutdown
+        }
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public long identity() throws SQLException {
+        long last = 0;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+            bindFeed(identityInsert, 1, now);
+            identityInsert.executeUpdate();
+            try (ResultSet keys = identityInsert.getGeneratedKeys()) {
+                keys.next();
+                last = keys.getLong(1);
+            }
+        }
+        connection.commit();
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public long sequence() throws SQLException {
+        long first;
+        try (ResultSet next = sequenceCall.executeQuery()) {
+            next.next();
+            first = next.getLong(1);
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+            allocatedInsert.setLong(1, first + i);
+            bindFeed(allocatedInsert, 2, now);
+            allocatedInsert.addBatch();
+        }
+        allocatedInsert.executeBatch();
+        connection.commit();
+        return first;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public long time() throws SQLException {
+        long last = 0;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+            last = allocator.nextId();
+            allocatedInsert.setLong(1, last);
+            bindFeed(allocatedInsert, 2, now);
+            allocatedInsert.addBatch();
+        }
+        allocatedInsert.executeBatch();
+        connection.commit();
+        return last;
+    }
+
+    private void bindFeed(PreparedStatement insert, int firstIndex, Timestamp publishDate) throws SQLException {
+        insert.setString(firstIndex, "benchmark feed text #tag");
+        insert.setString(firstIndex + 1, null);
+        insert.setLong(firstIndex + 2, memberId++ % 1000);
+        insert.setTimestamp(firstIndex + 3, publishDate);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
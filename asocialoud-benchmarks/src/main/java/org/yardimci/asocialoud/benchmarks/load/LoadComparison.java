@@ -0,0 +1,156 @@
+package org.yardimci.asocialoud.benchmarks.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load on running services, to compare execution modes of the same service: servlet and
+ * reactive feeds services, or platform and virtual threads. Each client sends a request as soon as the
+ * previous one completed, for every concurrency level, against every base url given:
+ * <pre>
+ * java -cp asocialoud-benchmarks/target/benchmarks.jar org.yardimci.asocialoud.benchmarks.load.LoadComparison \
+ *     http://localhost:8060 http://localhost:8061
+ * </pre>
+ * System properties: {@code workload} (feeds : feed reads, login : member logins), {@code levels} (16,64,256,1024),
+ * {@code seconds} per level (20), {@code members} to read (1000).
+ */
+public class LoadComparison {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.err.println("usage: LoadComparison <base url>...");
+            System.exit(1);
+        }
+        int[] levels = Arrays.stream(System.getProperty("levels", "16,64,256,1024").split(",")).mapToInt(Integer::parseInt).toArray();
+        long seconds = Long.getLong("seconds", 20);
+        int members = Integer.getInteger("members", 1000);
+        boolean login = "login".equals(System.getProperty("workload", "feeds"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(8))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        System.out.printf("%-28s %8s %10s %10s %10s %8s%n", "base url", "clients", "req/s", "p50 ms", "p99 ms", "errors");
+        for (String baseUrl : args) {
+            for (int level : levels) {
+                // a short warm up at the same level before measuring
+                run(client, baseUrl, level, members, Math.max(2, seconds / 4), login);
+                Result result = run(client, baseUrl, level, members, seconds, login);
+                System.out.printf("%-28s %8d %10.1f %10.2f %10.2f %8d%n", baseUrl, level,
+                        result.count / (double) seconds, result.percentile(50) / 1e6, result.percentile(99) / 1e6, result.errors);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Result run(HttpClient client, String baseUrl, int clients, int members, long seconds, boolean login) throws InterruptedException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        Result result = new Result();
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int i = 0; i < clients; i++) {
+            workers.execute(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        HttpRequest request = login ? login(baseUrl) : HttpRequest.newBuilder(URI.create(path(baseUrl, random, members)))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                result.record(System.nanoTime() - start);
+                            } else {
+                                result.errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            result.errors.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        workers.shutdown();
+        return result;
+    }
+
+    // three profile reads for one timeline read, roughly what the frontend does
+    private static String path(String baseUrl, ThreadLocalRandom random, int members) {
+        if (random.nextInt(4) > 0) {
+            return baseUrl + "/api/feeds/of/" + (1 + random.nextInt(members));
+        }
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            ids.append(i == 0 ? "" : ",").append(1 + random.nextInt(members));
+        }
+        return baseUrl + "/api/feeds/followingsof/" + ids;
+    }
+
+    // password check of the member created on start, bcrypt and a member query per request
+    private static HttpRequest login(String baseUrl) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/members/login"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"testmem\",\"password\":\"111222333\"}"))
+                .build();
+    }
+
+    /**
+     * Latencies in a log-linear histogram, 1/32 relative precision from a microsecond up.
+     */
+    private static class Result {
+        private static final int SUB_BUCKETS = 64;
+
+        private final long[] buckets = new long[SUB_BUCKETS * 20];
+        private final AtomicInteger errors = new AtomicInteger();
+        private long count;
+
+        synchronized void record(long nanos) {
+            buckets[index(Math.max(1, nanos / 1000))]++;
+            count++;
+        }
+
+        synchronized long percentile(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && buckets[i] > 0) {
+                    return upperBound(i) * 1000;
+                }
+            }
+            return 0;
+        }
+
+        private static int index(long micros) {
+            int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - 5);
+            int index = magnitude * SUB_BUCKETS / 2 + (int) (micros >>> magnitude);
+            return Math.min(index, SUB_BUCKETS * 20 - 1);
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int magnitude = index / (SUB_BUCKETS / 2) - 1;
+            int sub = index - magnitude * SUB_BUCKETS / 2;
+            return ((long) sub + 1) << magnitude;
+        }
+    }
+}
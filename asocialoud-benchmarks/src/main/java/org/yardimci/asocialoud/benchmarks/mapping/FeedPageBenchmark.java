@@ -0,0 +1,90 @@
+package org.yardimci.asocialoud.benchmarks.mapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.feeds.controller.FeedResponse;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of feeds from entities to the bytes of its json response, as a feed listing presents it : dtos mapped,
+ * relaud counts set, the envelope and its cursor filled, then written with the services' compact json settings.
+ * {@code toStream} writes into a reused stream as the message converter writes into the response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeedPageBenchmark {
+
+    @Param({"5", "50"})
+    private int pageSize;
+
+    private final FeedMapper feedMapper = new FeedMapper();
+    private final ObjectWriter writer = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).writer();
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream(16 * 1024);
+
+    private List<Feed> feeds;
+
+    @Setup
+    public void setUp() {
+        feeds = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Feed feed = new Feed();
+            feed.setId(1546300800000L + i);
+            feed.setMemberId((long) (i % 7));
+            feed.setText("feed text number " + i + " with a few more words, #tags and a @mention of someone");
+            feed.setMediaUri(i % 3 == 0 ? "/api/feeds/media/" + Long.toHexString(0x5eed0000L + i) + ".jpg" : "");
+            feed.setPublishDate(new Date(1546300800000L + i * 1000L));
+            feed.setRelaudOf(i % 5 == 0 ? 1546300700000L + i : null);
+            feeds.add(feed);
+        }
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return writer.writeValueAsBytes(page());
+    }
+
+    @Benchmark
+    public int toStream() throws IOException {
+        stream.reset();
+        writer.writeValue(stream, page());
+        return stream.size();
+    }
+
+    private FeedResponse page() {
+        List<FeedResponseDto> dtos = feedMapper.mapAll(feeds);
+        for (FeedResponseDto dto : dtos) {
+            dto.setRelauds(3L);
+        }
+        FeedResponse page = new FeedResponse();
+        page.setStatus("200");
+        page.setData(dtos);
+        page.setCursor(FeedCursor.of(feeds.get(feeds.size() - 1)).encode());
+        return page;
+    }
+}
@@ -0,0 +1,116 @@
+package org.yardimci.asocialoud.benchmarks.mapping;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+import org.yardimci.asocialoud.members.db.model.Member;
+import org.yardimci.asocialoud.members.dto.MemberMapper;
+import org.yardimci.asocialoud.members.dto.MemberSearchResultDto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping a page of feeds and a page of member search results to dtos:
+ * a new ModelMapper per request (what the controllers did), a shared ModelMapper, and the precompiled mappers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"5", "50"})
+    private int pageSize;
+
+    private final ModelMapper sharedModelMapper = new ModelMapper();
+    private final FeedMapper feedMapper = new FeedMapper();
+    private final MemberMapper memberMapper = new MemberMapper();
+
+    private List<Feed> feeds;
+    private List<Member> members;
+
+    @Setup
+    public void setUp() {
+        feeds = new ArrayList<>(pageSize);
+        members = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Feed feed = new Feed();
+            feed.setId((long) i);
+            feed.setMemberId((long) (i % 7));
+            feed.setText("feed text number " + i);
+            feed.setMediaUri("");
+            feed.setPublishDate(new Date(1546300800000L + i * 1000L));
+            feeds.add(feed);
+
+            Member member = new Member();
+            member.setId((long) i);
+            member.setLoginName("member" + i);
+            member.setRealName("Member " + i);
+            member.setEmail("member" + i + "@asocialoud.org");
+            member.setPassword("secret");
+            members.add(member);
+        }
+
+        // type maps are created lazily, do it before measuring the shared variant
+        sharedModelMapper.map(feeds.get(0), FeedResponseDto.class);
+        sharedModelMapper.map(members.get(0), MemberSearchResultDto.class);
+    }
+
+    @Benchmark
+    public List<FeedResponseDto> feedsModelMapperPerRequest() {
+        ModelMapper modelMapper = new ModelMapper();
+        return feeds.stream().map(source -> modelMapper.map(source, FeedResponseDto.class)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<FeedResponseDto> feedsModelMapperShared() {
+        return feeds.stream().map(source -> sharedModelMapper.map(source, FeedResponseDto.class)).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<FeedResponseDto> feedsPrecompiled() {
+        return feedMapper.mapAll(feeds);
+    }
+
+    @Benchmark
+    public List<MemberSearchResultDto> membersModelMapperPerRequest() {
+        ModelMapper modelMapper = new ModelMapper();
+        List<MemberSearchResultDto> result = new ArrayList<>(members.size());
+        for (Member member : members) {
+            result.add(modelMapper.map(member, MemberSearchResultDto.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberSearchResultDto> membersModelMapperShared() {
+        List<MemberSearchResultDto> result = new ArrayList<>(members.size());
+        for (Member member : members) {
+            result.add(sharedModelMapper.map(member, MemberSearchResultDto.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberSearchResultDto> membersPrecompiled() {
+        return memberMapper.mapAll(members);
+    }
+}
@@ -0,0 +1,74 @@
+package org.yardimci.asocialoud.benchmarks.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the rate limit check on the create and follow paths, which has to stay well under a microsecond.
+ * Keys are spread over {@code members} members, a single member is the most contended case. Allowed checks run
+ * with a rate no one reaches, denied ones with a member that used up its burst. Buckets of the allowing limiter
+ * refill at once, so with many members they are swept and created again as for members posting now and then.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "100000"})
+    private int members;
+
+    private RateLimiter<Long> allowing;
+    private RateLimiter<Long> denying;
+
+    @State(Scope.Thread)
+    public static class Member {
+        private long next;
+
+        long next(int members) {
+            next = next + 1 == members ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        allowing = new RateLimiter<>(1e9, 1_000_000);
+        denying = new RateLimiter<>(1e-3, 1);
+        for (long member = 0; member < members; member++) {
+            allowing.tryAcquire(member);
+            denying.tryAcquire(member);
+        }
+    }
+
+    @Benchmark
+    public long allowed(Member member) {
+        return allowing.tryAcquire(member.next(members));
+    }
+
+    @Benchmark
+    public long denied(Member member) {
+        return denying.tryAcquire(member.next(members));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long allowedContended(Member member) {
+        return allowing.tryAcquire(member.next(members));
+    }
+}
@@ -0,0 +1,216 @@
+package org.yardimci.asocialoud.benchmarks.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.benchmarks.db.SeededDatabase;
+import org.yardimci.asocialoud.members.db.model.LoginGrams;
+import org.yardimci.asocialoud.members.db.model.Member;
+import org.yardimci.asocialoud.members.db.model.MemberType;
+import org.yardimci.asocialoud.members.dto.MemberMapper;
+import org.yardimci.asocialoud.members.dto.MemberSearchResultDto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Member search of {@code /api/members/search/{userName}} with the followed by me and follows me flags of every
+ * result, on a seeded members database of {@link #MEMBERS} members named member1, member2... each following
+ * {@link #FOLLOWINGS_PER_MEMBER} others. Searched texts match 1, 11 and 111 members.
+ * <ul>
+ * <li>flagsPerResult : the login gram query, then two follow checks per result, as the controller does</li>
+ * <li>flagsBatched : the login gram query, then one query per flag for all the results</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberSearchBenchmark {
+
+    static final int MEMBERS = 10000;
+    static final int FOLLOWINGS_PER_MEMBER = 20;
+
+    // the searching member, following many more members than the others
+    private static final long OWNER_ID = 1;
+    private static final int OWNER_FOLLOWINGS = 500;
+
+    @Param({"ber4567", "ber456", "ber45"})
+    private String text;
+
+    private final MemberMapper memberMapper = new MemberMapper();
+
+    private SeededDatabase database;
+    private PreparedStatement search;
+    private PreparedStatement followCheck;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = SeededDatabase.create("members", "V1__create_members_schema.sql", "V2__add_query_indexes.sql",
+                "V3__add_member_login_grams.sql");
+        Connection connection = database.connection();
+        seed(connection);
+        database.analyze();
+
+        search = connection.prepareStatement("select m.id, m.type, m.username, m.realname, m.email, m.password " +
+                "from tbl_members m inner join tbl_member_login_grams g on m.id = g.member_id " +
+                "where g.gram = ? and lower(m.username) like ? escape '\\' and m.type = ?");
+        followCheck = connection.prepareStatement("select f.id from tbl_follow_data f where f.owner_id = ? and f.target_id = ? limit ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<MemberSearchResultDto> flagsPerResult() throws SQLException {
+        List<MemberSearchResultDto> results = new ArrayList<>();
+        for (Member member : search()) {
+            MemberSearchResultDto dto = memberMapper.map(member);
+            dto.setId(-1L);
+            dto.setFollowedByMe(follows(OWNER_ID, member.getId()));
+            dto.setFollowsMe(follows(member.getId(), OWNER_ID));
+            results.add(dto);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<MemberSearchResultDto> flagsBatched() throws SQLException {
+        List<Member> members = search();
+        List<MemberSearchResultDto> results = new ArrayList<>(members.size());
+        if (members.isEmpty()) {
+            return results;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (Member member : members) {
+            ids.append(ids.length() == 0 ? "" : ", ").append(member.getId());
+        }
+        Set<Long> followedByMe = ids("select f.target_id from tbl_follow_data f where f.owner_id = " + OWNER_ID +
+                " and f.target_id in (" + ids + ")");
+        Set<Long> followsMe = ids("select f.owner_id from tbl_follow_data f where f.target_id = " + OWNER_ID +
+                " and f.owner_id in (" + ids + ")");
+        for (Member member : members) {
+            MemberSearchResultDto dto = memberMapper.map(member);
+            dto.setId(-1L);
+            dto.setFollowedByMe(followedByMe.contains(member.getId()));
+            dto.setFollowsMe(followsMe.contains(member.getId()));
+            results.add(dto);
+        }
+        return results;
+    }
+
+    private List<Member> search() throws SQLException {
+        search.setString(1, LoginGrams.searchGramOf(text));
+        search.setString(2, LoginGrams.containsPatternOf(text));
+        search.setString(3, MemberType.B.name());
+        List<Member> members = new ArrayList<>();
+        try (ResultSet rows = search.executeQuery()) {
+            while (rows.next()) {
+                Member member = new Member();
+                member.setId(rows.getLong(1));
+                member.setMemberType(MemberType.valueOf(rows.getString(2)));
+                member.setLoginName(rows.getString(3));
+                member.setRealName(rows.getString(4));
+                member.setEmail(rows.getString(5));
+                member.setPassword(rows.getString(6));
+                members.add(member);
+            }
+        }
+        return members;
+    }
+
+    private boolean follows(long ownerId, long targetId) throws SQLException {
+        followCheck.setLong(1, ownerId);
+        followCheck.setLong(2, targetId);
+        followCheck.setInt(3, 1);
+        try (ResultSet rows = followCheck.executeQuery()) {
+            return rows.next();
+        }
+    }
+
+    private Set<Long> ids(String query) throws SQLException {
+        Set<Long> ids = new HashSet<>();
+        try (Statement statement = database.connection().createStatement();
+             ResultSet rows = statement.executeQuery(query)) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static void seed(Connection connection) throws SQLException {
+        try (PreparedStatement member = connection.prepareStatement(
+                "insert into tbl_members (id, type, username, realname, email, password) values (?, ?, ?, ?, ?, ?)");
+             PreparedStatement gram = connection.prepareStatement(
+                     "insert into tbl_member_login_grams (member_id, gram) values (?, ?)")) {
+            for (long id = 1; id <= MEMBERS; id++) {
+                String loginName = "member" + id;
+                member.setLong(1, id);
+                member.setString(2, MemberType.B.name());
+                member.setString(3, loginName);
+                member.setString(4, "Member " + id);
+                member.setString(5, loginName + "@asocialoud.org");
+                member.setString(6, "$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchmarkbe");
+                member.addBatch();
+                for (String loginGram : LoginGrams.of(loginName)) {
+                    gram.setLong(1, id);
+                    gram.setString(2, loginGram);
+                    gram.addBatch();
+                }
+            }
+            member.executeBatch();
+            gram.executeBatch();
+        }
+
+        Random random = new Random(11);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        long followId = 0;
+        try (PreparedStatement follow = connection.prepareStatement(
+                "insert into tbl_follow_data (id, follow_date, owner_id, target_id, allow_relaud) values (?, ?, ?, ?, true)")) {
+            for (long owner = 1; owner <= MEMBERS; owner++) {
+                Set<Long> targets = new HashSet<>();
+                int count = owner == OWNER_ID ? OWNER_FOLLOWINGS : FOLLOWINGS_PER_MEMBER;
+                while (targets.size() < count) {
+                    long target = 1 + random.nextInt(MEMBERS);
+                    if (target != owner) {
+                        targets.add(target);
+                    }
+                }
+                for (long target : targets) {
+                    follow.setLong(1, ++followId);
+                    follow.setTimestamp(2, now);
+                    follow.setLong(3, owner);
+                    follow.setLong(4, target);
+                    follow.addBatch();
+                }
+            }
+            follow.executeBatch();
+        }
+        connection.commit();
+    }
+}
@@ -0,0 +1,123 @@
+package org.yardimci.asocialoud.benchmarks.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.yardimci.asocialoud.members.config.security.JwtConfig;
+import org.yardimci.asocialoud.members.config.security.JwtTokenAuthenticationFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link JwtTokenAuthenticationFilter} on every authenticated request of the members service: a token
+ * signed the way the login filter signs it, a token signed with another key, and a request without a token.
+ * {@code parse} is the signature check and claims parsing alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// the configuration class is proxied by cglib, which needs java.lang opened
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@State(Scope.Benchmark)
+public class JwtFilterBenchmark {
+
+    private static final FilterChain CHAIN = (request, response) -> {
+    };
+
+    private AnnotationConfigApplicationContext context;
+    private JwtConfig jwtConfig;
+    private JwtTokenAuthenticationFilter filter;
+    private String token;
+    private MockHttpServletRequest validRequest;
+    private MockHttpServletRequest forgedRequest;
+    private MockHttpServletRequest anonymousRequest;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        // the service's jwt settings with their defaults
+        context = new AnnotationConfigApplicationContext(JwtConfig.class);
+        jwtConfig = context.getBean(JwtConfig.class);
+        filter = new JwtTokenAuthenticationFilter(jwtConfig);
+
+        token = tokenSignedWith(jwtConfig.getSecret());
+        validRequest = requestWith(jwtConfig.getPrefix() + token);
+        forgedRequest = requestWith(jwtConfig.getPrefix() + tokenSignedWith("AnotherSecretKey"));
+        anonymousRequest = requestWith(null);
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Benchmark
+    public Authentication validToken() throws ServletException, IOException {
+        filter.doFilter(validRequest, response, CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Authentication forgedToken() throws ServletException, IOException {
+        filter.doFilter(forgedRequest, response, CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Authentication noToken() throws ServletException, IOException {
+        filter.doFilter(anonymousRequest, response, CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Claims parse() {
+        return Jwts.parser()
+                .setSigningKey(jwtConfig.getSecret().getBytes())
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    // as JwtUsernameAndPasswordAuthenticationFilter creates it on login
+    private String tokenSignedWith(String secret) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject("member42")
+                .claim("authorities", Collections.singletonList("ROLE_USER"))
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + TimeUnit.DAYS.toMillis(1)))
+                .signWith(SignatureAlgorithm.HS512, secret.getBytes())
+                .compact();
+    }
+
+    private MockHttpServletRequest requestWith(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/members/search/member");
+        if (authorization != null) {
+            request.addHeader(jwtConfig.getHeader(), authorization);
+        }
+        return request;
+    }
+}
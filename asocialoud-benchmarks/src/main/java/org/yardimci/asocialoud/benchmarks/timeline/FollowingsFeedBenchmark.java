@@ -0,0 +1,163 @@
+package org.yardimci.asocialoud.benchmarks.timeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.benchmarks.db.SeededDatabase;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of {@code /api/feeds/followings/{memberIds}} read from a seeded feeds database, for members following
+ * {@code followings} authors, with the queries hibernate sends for each way of reading it:
+ * <ul>
+ * <li>inQuery : one keyset query over every author, sorting all of their matching feeds</li>
+ * <li>perAuthorMerge : a segment of each author read on its index, merged newest first, as the timeline merge
+ * engine does before its author indexes are filled</li>
+ * </ul>
+ * The database holds {@link #AUTHORS} authors of {@link #FEEDS_PER_AUTHOR} feeds each over the last 90 days.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FollowingsFeedBenchmark {
+
+    static final int AUTHORS = 2000;
+    static final int FEEDS_PER_AUTHOR = 50;
+
+    // the merge engine's default asocialoud.timeline.segment-size
+    private static final int SEGMENT_SIZE = 20;
+
+    private static final String COLUMNS = "f.id, f.text, f.media_uri, f.member_id, f.publish_date, f.relaud_of";
+
+    @Param({"10", "100", "1000"})
+    private int followings;
+
+    private SeededDatabase database;
+    private PreparedStatement inQuery;
+    private PreparedStatement authorQuery;
+    private long[] authorIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = SeededDatabase.create("feeds", "V1__create_feeds_schema.sql", "V2__create_post_counters.sql",
+                "V3__add_query_indexes.sql", "V4__add_publish_date_index.sql", "V5__add_relaud_of.sql");
+        Connection connection = database.connection();
+        seed(connection);
+        database.analyze();
+
+        Random random = new Random(42);
+        List<Long> authors = new ArrayList<>(AUTHORS);
+        for (long author = 1; author <= AUTHORS; author++) {
+            authors.add(author);
+        }
+        Collections.shuffle(authors, random);
+        authorIds = authors.subList(0, followings).stream().mapToLong(Long::longValue).toArray();
+
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < followings; i++) {
+            parameters.append(i == 0 ? "?" : ", ?");
+        }
+        inQuery = connection.prepareStatement("select " + COLUMNS + " from tbl_feeds f where f.member_id in (" + parameters + ") " +
+                "and f.publish_date > ? order by f.publish_date desc, f.id desc limit ?");
+        authorQuery = connection.prepareStatement("select " + COLUMNS + " from tbl_feeds f where f.member_id = ? " +
+                "order by f.publish_date desc, f.id desc limit ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Feed> inQuery() throws SQLException {
+        for (int i = 0; i < authorIds.length; i++) {
+            inQuery.setLong(i + 1, authorIds[i]);
+        }
+        inQuery.setTimestamp(authorIds.length + 1, new Timestamp(0));
+        inQuery.setInt(authorIds.length + 2, FeedRepository.FETCH_COUNT);
+        return feedsOf(inQuery);
+    }
+
+    @Benchmark
+    public List<Feed> perAuthorMerge() throws SQLException {
+        Comparator<Feed> newestFirst = Comparator.comparing(Feed::getPublishDate).thenComparing(Feed::getId).reversed();
+        PriorityQueue<Feed> heads = new PriorityQueue<>(authorIds.length, newestFirst);
+        for (long authorId : authorIds) {
+            authorQuery.setLong(1, authorId);
+            authorQuery.setInt(2, SEGMENT_SIZE);
+            heads.addAll(feedsOf(authorQuery));
+        }
+        List<Feed> page = new ArrayList<>(FeedRepository.FETCH_COUNT);
+        while (page.size() < FeedRepository.FETCH_COUNT && !heads.isEmpty()) {
+            page.add(heads.poll());
+        }
+        return page;
+    }
+
+    private static List<Feed> feedsOf(PreparedStatement query) throws SQLException {
+        List<Feed> feeds = new ArrayList<>();
+        try (ResultSet rows = query.executeQuery()) {
+            while (rows.next()) {
+                Feed feed = new Feed();
+                feed.setId(rows.getLong(1));
+                feed.setText(rows.getString(2));
+                feed.setMediaUri(rows.getString(3));
+                feed.setMemberId(rows.getLong(4));
+                feed.setPublishDate(rows.getTimestamp(5));
+                long relaudOf = rows.getLong(6);
+                feed.setRelaudOf(rows.wasNull() ? null : relaudOf);
+                feeds.add(feed);
+            }
+        }
+        return feeds;
+    }
+
+    private static void seed(Connection connection) throws SQLException {
+        Random random = new Random(7);
+        long now = System.currentTimeMillis();
+        long period = TimeUnit.DAYS.toMillis(90);
+        long id = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into tbl_feeds (id, text, media_uri, member_id, publish_date) values (?, ?, ?, ?, ?)")) {
+            for (long author = 1; author <= AUTHORS; author++) {
+                for (int i = 0; i < FEEDS_PER_AUTHOR; i++) {
+                    insert.setLong(1, ++id);
+                    insert.setString(2, "feed " + i + " of member " + author + " with a #tag");
+                    insert.setString(3, null);
+                    insert.setLong(4, author);
+                    insert.setTimestamp(5, new Timestamp(now - (long) (random.nextDouble() * period)));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        connection.commit();
+    }
+}
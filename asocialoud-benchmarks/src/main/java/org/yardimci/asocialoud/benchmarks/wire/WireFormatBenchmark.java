@@ -0,0 +1,121 @@
+package org.yardimci.asocialoud.benchmarks.wire;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yardimci.asocialoud.feeds.controller.FeedResponse;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization time of a page of feeds in its response envelope, in each wire format the services offer.
+ * Bytes on the wire of every format, plain and gzipped, are printed once before measuring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"5", "50"})
+    private int pageSize;
+
+    // the services' json settings : iso dates, pretty printed before, compact now
+    private final ObjectMapper prettyJson = new ObjectMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).enable(SerializationFeature.INDENT_OUTPUT);
+    private final ObjectMapper compactJson = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+    private FeedResponse page;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Feed> feeds = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Feed feed = new Feed();
+            feed.setId(1546300800000L + i);
+            feed.setMemberId((long) (i % 7));
+            feed.setText("feed text number " + i + " with a few more words, #tags and a @mention of someone");
+            feed.setMediaUri(i % 3 == 0 ? "/media/" + Long.toHexString(0x5eed0000L + i) + ".jpg" : "");
+            feed.setPublishDate(new Date(1546300800000L + i * 1000L));
+            feeds.add(feed);
+        }
+
+        page = new FeedResponse();
+        page.setStatus("200");
+        page.setData(new FeedMapper().mapAll(feeds));
+        page.setCursor(FeedCursor.of(feeds.get(feeds.size() - 1)).encode());
+
+        System.out.printf("%nbytes of a page of %d feeds%n", pageSize);
+        printSize("json pretty", prettyJson.writeValueAsBytes(page));
+        printSize("json compact", compactJson.writeValueAsBytes(page));
+        printSize("cbor", cbor.writeValueAsBytes(page));
+        printSize("smile", smile.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] jsonPretty() throws JsonProcessingException {
+        return prettyJson.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] jsonCompact() throws JsonProcessingException {
+        return compactJson.writeValueAsBytes(page);
+    }
+
+    // what the server does for a page over the compression threshold
+    @Benchmark
+    public byte[] jsonCompactGzip() throws JsonProcessingException {
+        return gzip(compactJson.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] cbor() throws JsonProcessingException {
+        return cbor.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] smile() throws JsonProcessingException {
+        return smile.writeValueAsBytes(page);
+    }
+
+    private static void printSize(String format, byte[] bytes) {
+        System.out.printf("%-14s %7d, gzipped %7d%n", format, bytes.length, gzip(bytes).length);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.id.generated;
+public class FeedInsertBenchmark_jmhType extends FeedInsertBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.mapping.generated;
+public class FeedPageBenchmark_jmhType extends FeedPageBenchmark_jmhType_B3 {
+}
+
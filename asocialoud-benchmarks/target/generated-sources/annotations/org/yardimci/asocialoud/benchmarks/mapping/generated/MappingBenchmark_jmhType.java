@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.mapping.generated;
+public class MappingBenchmark_jmhType extends MappingBenchmark_jmhType_B3 {
+}
+
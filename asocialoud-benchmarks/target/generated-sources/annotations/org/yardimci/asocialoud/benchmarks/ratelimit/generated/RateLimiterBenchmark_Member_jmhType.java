@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.ratelimit.generated;
+public class RateLimiterBenchmark_Member_jmhType extends RateLimiterBenchmark_Member_jmhType_B3 {
+}
+
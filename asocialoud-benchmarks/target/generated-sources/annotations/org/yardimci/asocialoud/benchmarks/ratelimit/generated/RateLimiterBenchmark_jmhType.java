@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.ratelimit.generated;
+public class RateLimiterBenchmark_jmhType extends RateLimiterBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.search.generated;
+public class MemberSearchBenchmark_jmhType extends MemberSearchBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.security.generated;
+public class JwtFilterBenchmark_jmhType extends JwtFilterBenchmark_jmhType_B3 {
+}
+
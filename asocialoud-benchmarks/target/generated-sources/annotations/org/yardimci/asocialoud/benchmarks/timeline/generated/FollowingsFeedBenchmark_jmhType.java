@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.timeline.generated;
+public class FollowingsFeedBenchmark_jmhType extends FollowingsFeedBenchmark_jmhType_B3 {
+}
+
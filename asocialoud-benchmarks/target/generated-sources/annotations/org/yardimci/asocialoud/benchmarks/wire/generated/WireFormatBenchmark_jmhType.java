@@ -0,0 +1,4 @@
+package org.yardimci.asocialoud.benchmarks.wire.generated;
+public class WireFormatBenchmark_jmhType extends WireFormatBenchmark_jmhType_B3 {
+}
+
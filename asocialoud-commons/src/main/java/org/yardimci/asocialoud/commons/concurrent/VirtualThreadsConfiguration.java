@@ -0,0 +1,65 @@
+package org.yardimci.asocialoud.commons.concurrent;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in execution mode, enabled with {@code asocialoud.threads.virtual=true}: Tomcat runs every request
+ * on a new virtual thread instead of its fixed worker pool, and the data source lets at most
+ * {@code asocialoud.threads.db-permits} of them use a connection at once. Services import it next to their application class.
+ */
+@Configuration
+@ConditionalOnProperty(name = "asocialoud.threads.virtual", havingValue = "true")
+public class VirtualThreadsConfiguration implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    private final ExecutorService requestExecutor = VirtualThreads.newExecutor("http-virtual-");
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsTomcatCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            ProtocolHandler handler = connector.getProtocolHandler();
+            if (handler instanceof AbstractProtocol) {
+                AbstractProtocol<?> protocol = (AbstractProtocol<?>) handler;
+                logger.info("Requests of {} run on virtual threads", protocol.getName());
+                protocol.setExecutor(requestExecutor);
+            }
+        });
+    }
+
+    // static, post processors are created before the other beans of the configuration
+    @Bean
+    public static BeanPostProcessor dataSourcePermits(Environment environment) {
+        int permits = environment.getProperty("asocialoud.threads.db-permits", Integer.class, 10);
+        long timeoutMillis = environment.getProperty("asocialoud.threads.db-permit-timeout-millis", Long.class, 30000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof PermitDataSource)) {
+                    logger.info("Data source {} limited to {} connections at once", beanName, permits);
+                    return new PermitDataSource((DataSource) bean, permits, timeoutMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        requestExecutor.shutdown();
+    }
+}
@@ -0,0 +1,64 @@
+package org.yardimci.asocialoud.commons.id;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate id generator that never needs the inserted row to learn its id, so inserts can be batched.
+ * <ul>
+ * <li>{@code asocialoud.id.strategy=time} : {@link TimeOrderedIdAllocator}, node given by {@code asocialoud.id.node}</li>
+ * <li>{@code asocialoud.id.strategy=sequence} : pooled database sequence, configured by the generator parameters</li>
+ * </ul>
+ * Both settings are read from the hibernate properties ({@code spring.jpa.properties.*}).
+ * An id already set on the entity is kept, so that ids can be handed out before the row is written, see {@link #allocatorOf}.
+ */
+public class AsocialoudIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "asocialoud.id.strategy";
+    public static final String NODE = "asocialoud.id.node";
+
+    // one allocator per node, shared by every entity so ids stay unique across tables too
+    private static final Map<Integer, TimeOrderedIdAllocator> ALLOCATORS = new ConcurrentHashMap<>();
+
+    private IdAllocator allocator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        // sequence is always declared, so that switching strategies does not need a schema change
+        super.configure(type, params, serviceRegistry);
+
+        Map settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String strategy = ConfigurationHelper.getString(STRATEGY, settings, "time");
+        if ("time".equalsIgnoreCase(strategy)) {
+            int node = ConfigurationHelper.getInt(NODE, settings, 0);
+            allocator = allocatorOf(node);
+        } else if (!"sequence".equalsIgnoreCase(strategy)) {
+            throw new MappingException("Unknown id strategy : " + strategy);
+        }
+    }
+
+    // allocator of the node for code that needs ids before saving, shared with the generators of that node
+    public static IdAllocator allocatorOf(int node) {
+        return ALLOCATORS.computeIfAbsent(node, TimeOrderedIdAllocator::new);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        Serializable assigned = session.getEntityPersister(null, object).getIdentifier(object, session);
+        if (assigned != null) {
+            return assigned;
+        }
+        return allocator != null ? allocator.nextId() : super.generate(session, object);
+    }
+}
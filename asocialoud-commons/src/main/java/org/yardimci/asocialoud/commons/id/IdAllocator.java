@@ -0,0 +1,7 @@
+package org.yardimci.asocialoud.commons.id;
+
+public interface IdAllocator {
+
+    long nextId();
+
+}
@@ -0,0 +1,73 @@
+package org.yardimci.asocialoud.commons.id;
+
+/**
+ * Allocates ids without asking the database, laid out as
+ * [41 bits milliseconds since 2019-01-01 | 4 bits node | 8 bits sequence].
+ * Ids of a node grow with time, and ids of different nodes sort roughly by publish time.
+ * The layout fits in 53 bits, so ids stay exact as javascript numbers on the frontend.
+ */
+public class TimeOrderedIdAllocator implements IdAllocator {
+
+    public static final long EPOCH = 1546300800000L;
+
+    static final int NODE_BITS = 4;
+    static final int SEQUENCE_BITS = 8;
+    static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+    private final long node;
+
+    private long lastTimestamp = -1L;
+    private int sequence;
+
+    public TimeOrderedIdAllocator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE + " : " + node);
+        }
+        this.node = node;
+    }
+
+    @Override
+    public synchronized long nextId() {
+        long timestamp = currentTimeMillis();
+
+        if (timestamp < lastTimestamp) {
+            // clock moved backwards, keep counting on the last timestamp instead of reusing ids
+            timestamp = lastTimestamp;
+        }
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                timestamp = waitNextMillis(lastTimestamp);
+            }
+        } else {
+            sequence = 0;
+        }
+
+        lastTimestamp = timestamp;
+        return idOf(timestamp, node, sequence);
+    }
+
+    // id of the layout for ids made outside an allocator, such as generated data, which must keep them unique
+    public static long idOf(long timestamp, long node, int sequence) {
+        return ((timestamp - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private long waitNextMillis(long last) {
+        long timestamp = currentTimeMillis();
+        while (timestamp <= last) {
+            Thread.onSpinWait();
+            timestamp = currentTimeMillis();
+        }
+        return timestamp;
+    }
+}
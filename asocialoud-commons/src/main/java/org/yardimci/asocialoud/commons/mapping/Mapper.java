@@ -0,0 +1,22 @@
+package org.yardimci.asocialoud.commons.mapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maps a model to a dto with plain getter and setter calls.
+ * Implementations are stateless and shared, no type introspection happens while serving a request.
+ */
+public interface Mapper<S, D> {
+
+    D map(S source);
+
+    default List<D> mapAll(Collection<? extends S> sources) {
+        List<D> result = new ArrayList<>(sources.size());
+        for (S source : sources) {
+            result.add(map(source));
+        }
+        return result;
+    }
+}
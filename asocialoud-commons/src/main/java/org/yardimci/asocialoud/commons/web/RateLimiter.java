@@ -0,0 +1,91 @@
+package org.yardimci.asocialoud.commons.web;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per key, {@code burst} tokens refilled at {@code permitsPerSecond}. A bucket is one
+ * {@link AtomicLong} holding the time its next token is due (the generic cell rate algorithm), so taking a token
+ * is a map lookup and one compare-and-set, without locks; the map itself is striped by key.
+ * <p>
+ * A bucket that has refilled completely holds nothing worth keeping. Such idle buckets are dropped when new keys
+ * have grown the map past twice its size after the previous sweep, so the map stays bounded by the active keys
+ * without a cleaner thread. A request racing with the removal of its key's bucket may get one token for free.
+ */
+public class RateLimiter<K> {
+
+    private static final int MIN_SWEEP_SIZE = 1024;
+
+    private final long interval;
+    private final long tolerance;
+    private final boolean enabled;
+
+    private final Map<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private volatile int sweepSize = MIN_SWEEP_SIZE;
+
+    /**
+     * @param permitsPerSecond sustained rate, 0 or less lets everything through
+     * @param burst            tokens a key can take at once after being idle
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.enabled = permitsPerSecond > 0;
+        this.interval = enabled ? Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond)) : 0;
+        this.tolerance = interval * Math.max(1, burst);
+    }
+
+    /**
+     * Takes a token of the key. Returns 0 when it got one, otherwise the nanoseconds until one is available.
+     */
+    public long tryAcquire(K key) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(key, now);
+        }
+        while (true) {
+            long due = bucket.get();
+            long next = Math.max(due, now) + interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(due, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // value of a Retry-After header for a wait returned by tryAcquire
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong newBucket(K key, long now) {
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        if (buckets.size() > sweepSize) {
+            sweep(now);
+        }
+        return bucket;
+    }
+
+    private synchronized void sweep(long now) {
+        if (buckets.size() <= sweepSize) {
+            return;
+        }
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() <= now);
+        sweepSize = Math.max(MIN_SWEEP_SIZE, buckets.size() * 2);
+    }
+}
@@ -0,0 +1,97 @@
+package org.yardimci.asocialoud.commons.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last change time of keys, in milliseconds, used to answer conditional requests without reading or serializing
+ * anything. Stamps only grow and no two changes share one, so a strong entity tag built from a stamp changes
+ * with every change. Keys not changed since start carry the start time, a restart therefore changes every tag.
+ * Stamps live in the memory of one instance, changes must go through that instance.
+ */
+public class VersionStamps<K> {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong clock = new AtomicLong(startTime);
+    private final Map<K, Long> stamps = new ConcurrentHashMap<>();
+
+    private final String cacheControl;
+
+    /**
+     * @param cacheControl sent with every validated response, it has to make clients revalidate (no-cache)
+     *                     or they may reuse a page heuristically from its Last-Modified
+     */
+    public VersionStamps(String cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    // called once the change is visible to readers, a read racing with it then gets new data under the old tag and refetches later
+    public long touch(K key) {
+        long stamp = clock.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+        stamps.merge(key, stamp, Math::max);
+        return stamp;
+    }
+
+    public long stampOf(K key) {
+        return stamps.getOrDefault(key, startTime);
+    }
+
+    public int size() {
+        return stamps.size();
+    }
+
+    /**
+     * Strong tag of the current version of the key. Everything else the response depends on (parameters, negotiated
+     * format and encoding, the requesting member) goes into the variant.
+     */
+    public String entityTag(K key, String... variant) {
+        return entityTagOf(stampOf(key), variant);
+    }
+
+    public static String entityTagOf(long stamp, String... variant) {
+        long hash = FNV_OFFSET;
+        for (String part : variant) {
+            byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+            // separator, so that ("ab", "") and ("a", "b") differ
+            hash = (hash ^ 0xff) * FNV_PRIME;
+        }
+        return "\"" + Long.toHexString(stamp) + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Sets the validators of the key's current version on the response and returns true when the request's
+     * If-None-Match already names it. The response is then a 304 and the handler returns without a body.
+     * If-Modified-Since alone is not trusted, HTTP dates are in seconds and a key may change twice in one.
+     */
+    public boolean checkNotModified(K key, ServletWebRequest request, String... variant) {
+        String[] parts = new String[variant.length + 2];
+        parts[0] = request.getHeader(HttpHeaders.ACCEPT);
+        parts[1] = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        System.arraycopy(variant, 0, parts, 2, variant.length);
+
+        long stamp = stampOf(key);
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, stamp);
+        }
+        return request.checkNotModified(entityTagOf(stamp, parts));
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+}
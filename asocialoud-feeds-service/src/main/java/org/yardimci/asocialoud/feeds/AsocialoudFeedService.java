@@ -4,14 +4,17 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.Ordered;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.yardimci.asocialoud.commons.concurrent.VirtualThreadsConfiguration;
 
 import java.util.Collections;
 
 @SpringBootApplication
+@Import(VirtualThreadsConfiguration.class)
 //@EnableEurekaClient
 public class AsocialoudFeedService {
 
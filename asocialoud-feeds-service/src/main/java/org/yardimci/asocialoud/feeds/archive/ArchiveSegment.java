@@ -0,0 +1,256 @@
+package org.yardimci.asocialoud.feeds.archive;
+
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of archived feeds of one month, written by {@link ArchiveSegmentWriter}.
+ * <pre>
+ * [block]...          feeds of one member newest first, deflated :
+ *                     [long id | long publish time | string text | string media uri | long relauded feed id, 0 if none]...
+ * [member index]      by member id : [long member id | long block offset | int block length | int feed count | int block crc32]...
+ * [id index]          by feed id   : [long feed id | int member index slot]...
+ * [footer]            [long member index offset | int members | long id index offset | int feeds
+ *                      | long month start | long month end | long min id | long max id | int magic]
+ * </pre>
+ * Strings are [int utf-8 length | bytes], -1 for null. Only the footer is kept in memory, indexes are
+ * binary searched with positional reads, so open segments cost no heap whatever their size.
+ * Segments written before relauds end with {@link #MAGIC_V1} and have no relauded feed id in their records.
+ */
+class ArchiveSegment implements Closeable {
+
+    static final int MAGIC = 0x46415232;
+    static final int MAGIC_V1 = 0x46415231;
+    static final int MEMBER_ENTRY = 2 * Long.BYTES + 3 * Integer.BYTES;
+    static final int ID_ENTRY = Long.BYTES + Integer.BYTES;
+    static final int FOOTER = 6 * Long.BYTES + 3 * Integer.BYTES;
+
+    interface MemberCountVisitor {
+        void visit(long memberId, int count);
+    }
+
+    private final File file;
+    private final FileChannel channel;
+
+    private final long memberIndexOffset;
+    private final int members;
+    private final long idIndexOffset;
+    private final int feeds;
+    private final long monthStart;
+    private final long monthEnd;
+    private final long minId;
+    private final long maxId;
+    private final boolean relauds;
+
+    private ArchiveSegment(File file, FileChannel channel, ByteBuffer footer) {
+        this.file = file;
+        this.channel = channel;
+        this.memberIndexOffset = footer.getLong();
+        this.members = footer.getInt();
+        this.idIndexOffset = footer.getLong();
+        this.feeds = footer.getInt();
+        this.monthStart = footer.getLong();
+        this.monthEnd = footer.getLong();
+        this.minId = footer.getLong();
+        this.maxId = footer.getLong();
+        this.relauds = footer.getInt() == MAGIC;
+    }
+
+    static ArchiveSegment open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER) {
+                throw new IOException("Archive segment " + file + " is too short");
+            }
+            ByteBuffer footer = read(channel, size - FOOTER, FOOTER);
+            int magic = footer.getInt(FOOTER - Integer.BYTES);
+            if (magic != MAGIC && magic != MAGIC_V1) {
+                throw new IOException("Archive segment " + file + " has no footer");
+            }
+            return new ArchiveSegment(file, channel, footer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long getMonthStart() {
+        return monthStart;
+    }
+
+    long getMonthEnd() {
+        return monthEnd;
+    }
+
+    int getFeedCount() {
+        return feeds;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int countOf(long memberId) throws IOException {
+        int slot = slotOf(memberId);
+        return slot < 0 ? 0 : memberEntry(slot).getInt(2 * Long.BYTES + Integer.BYTES);
+    }
+
+    // feeds of the member in this month, newest first
+    List<Feed> feedsOf(long memberId) throws IOException {
+        int slot = slotOf(memberId);
+        return slot < 0 ? new ArrayList<>() : readBlock(slot);
+    }
+
+    Feed findById(long id) throws IOException {
+        if (id < minId || id > maxId) {
+            return null;
+        }
+        int low = 0;
+        int high = feeds - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            ByteBuffer entry = read(channel, idIndexOffset + (long) mid * ID_ENTRY, ID_ENTRY);
+            long midId = entry.getLong(0);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                for (Feed feed : readBlock(entry.getInt(Long.BYTES))) {
+                    if (feed.getId() == id) {
+                        return feed;
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    void forEachMember(MemberCountVisitor visitor) throws IOException {
+        ByteBuffer index = read(channel, memberIndexOffset, members * MEMBER_ENTRY);
+        for (int slot = 0; slot < members; slot++) {
+            visitor.visit(index.getLong(slot * MEMBER_ENTRY), index.getInt(slot * MEMBER_ENTRY + 2 * Long.BYTES + Integer.BYTES));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int slotOf(long memberId) throws IOException {
+        int low = 0;
+        int high = members - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = read(channel, memberIndexOffset + (long) mid * MEMBER_ENTRY, Long.BYTES).getLong(0);
+            if (midId < memberId) {
+                low = mid + 1;
+            } else if (midId > memberId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private ByteBuffer memberEntry(int slot) throws IOException {
+        return read(channel, memberIndexOffset + (long) slot * MEMBER_ENTRY, MEMBER_ENTRY);
+    }
+
+    private List<Feed> readBlock(int slot) throws IOException {
+        ByteBuffer entry = memberEntry(slot);
+        long memberId = entry.getLong(0);
+        long offset = entry.getLong(Long.BYTES);
+        int length = entry.getInt(2 * Long.BYTES);
+        int count = entry.getInt(2 * Long.BYTES + Integer.BYTES);
+        int crc = entry.getInt(2 * Long.BYTES + 2 * Integer.BYTES);
+
+        byte[] compressed = read(channel, offset, length).array();
+        CRC32 check = new CRC32();
+        check.update(compressed);
+        if ((int) check.getValue() != crc) {
+            throw new IOException("Corrupt block of member " + memberId + " in " + file);
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(inflate(compressed));
+        List<Feed> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Feed feed = new Feed();
+            feed.setId(records.getLong());
+            feed.setMemberId(memberId);
+            feed.setPublishDate(new Date(records.getLong()));
+            feed.setText(readString(records));
+            feed.setMediaUri(readString(records));
+            if (relauds) {
+                long relaudOf = records.getLong();
+                feed.setRelaudOf(relaudOf == 0 ? null : relaudOf);
+            }
+            result.add(feed);
+        }
+        return result;
+    }
+
+    private byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[Math.max(64, compressed.length * 4)];
+            int size = 0;
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int inflated = inflater.inflate(buffer, size, buffer.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated block in " + file);
+                }
+                size += inflated;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block in " + file, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive segment at " + (position + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
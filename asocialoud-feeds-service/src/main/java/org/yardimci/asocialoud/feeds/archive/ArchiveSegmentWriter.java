@@ -0,0 +1,180 @@
+package org.yardimci.asocialoud.feeds.archive;
+
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an {@link ArchiveSegment}. Members are added in increasing id order, each with its feeds newest first.
+ * The file is written under a temporary name and renamed by {@link #finish()}; closing an unfinished writer
+ * deletes it, so a segment file is either complete or absent.
+ */
+class ArchiveSegmentWriter implements Closeable {
+
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final File file;
+    private final File temporary;
+    private final long monthStart;
+    private final long monthEnd;
+
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater();
+    private final byte[] chunk = new byte[8192];
+    private long offset;
+    private boolean finished;
+
+    private long[] memberIds = new long[64];
+    private long[] offsets = new long[64];
+    private int[] lengths = new int[64];
+    private int[] counts = new int[64];
+    private int[] crcs = new int[64];
+    private int members;
+
+    private long[] ids = new long[256];
+    private int[] slots = new int[256];
+    private int feeds;
+
+    ArchiveSegmentWriter(File file, long monthStart, long monthEnd) throws IOException {
+        this.file = file;
+        this.temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+        this.monthStart = monthStart;
+        this.monthEnd = monthEnd;
+        this.fileOut = new FileOutputStream(temporary);
+        this.out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+    }
+
+    void add(long memberId, List<Feed> memberFeeds) throws IOException {
+        if (members > 0 && memberId <= memberIds[members - 1]) {
+            throw new IllegalArgumentException("Members must be added in increasing id order : " + memberId);
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(memberFeeds.size() * 128);
+        DataOutputStream records = new DataOutputStream(raw);
+        for (Feed feed : memberFeeds) {
+            records.writeLong(feed.getId());
+            records.writeLong(feed.getPublishDate().getTime());
+            writeString(records, feed.getText());
+            writeString(records, feed.getMediaUri());
+            records.writeLong(feed.getRelaudOf() == null ? 0 : feed.getRelaudOf());
+
+            if (feeds == ids.length) {
+                ids = Arrays.copyOf(ids, feeds * 2);
+                slots = Arrays.copyOf(slots, feeds * 2);
+            }
+            ids[feeds] = feed.getId();
+            slots[feeds] = members;
+            feeds++;
+        }
+        byte[] compressed = deflate(raw.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+        out.write(compressed);
+
+        if (members == memberIds.length) {
+            memberIds = Arrays.copyOf(memberIds, members * 2);
+            offsets = Arrays.copyOf(offsets, members * 2);
+            lengths = Arrays.copyOf(lengths, members * 2);
+            counts = Arrays.copyOf(counts, members * 2);
+            crcs = Arrays.copyOf(crcs, members * 2);
+        }
+        memberIds[members] = memberId;
+        offsets[members] = offset;
+        lengths[members] = compressed.length;
+        counts[members] = memberFeeds.size();
+        crcs[members] = (int) crc.getValue();
+        members++;
+        offset += compressed.length;
+    }
+
+    int getFeedCount() {
+        return feeds;
+    }
+
+    // writes the indexes, syncs and renames the file to its final name
+    File finish() throws IOException {
+        long memberIndexOffset = offset;
+        for (int slot = 0; slot < members; slot++) {
+            out.writeLong(memberIds[slot]);
+            out.writeLong(offsets[slot]);
+            out.writeInt(lengths[slot]);
+            out.writeInt(counts[slot]);
+            out.writeInt(crcs[slot]);
+        }
+        long idIndexOffset = memberIndexOffset + (long) members * ArchiveSegment.MEMBER_ENTRY;
+
+        // ids of a member block are newest first, the index is sorted once for the whole month
+        Integer[] order = new Integer[feeds];
+        for (int i = 0; i < feeds; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+        for (Integer i : order) {
+            out.writeLong(ids[i]);
+            out.writeInt(slots[i]);
+        }
+
+        out.writeLong(memberIndexOffset);
+        out.writeInt(members);
+        out.writeLong(idIndexOffset);
+        out.writeInt(feeds);
+        out.writeLong(monthStart);
+        out.writeLong(monthEnd);
+        out.writeLong(feeds == 0 ? 0 : ids[order[0]]);
+        out.writeLong(feeds == 0 ? 0 : ids[order[feeds - 1]]);
+        out.writeInt(ArchiveSegment.MAGIC);
+        out.flush();
+        fileOut.getFD().sync();
+        out.close();
+
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!finished) {
+            out.close();
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    private byte[] deflate(byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            compressed.write(chunk, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,287 @@
+package org.yardimci.asocialoud.feeds.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cold tier of the feeds : months moved out of the feed store by {@link FeedArchiver}, one or more immutable
+ * {@link ArchiveSegment} files per month. Every archived feed is older than every feed left in the store,
+ * so listings read the store first and continue here when it runs out, see {@link #fillUp}.
+ */
+@Component
+public class FeedArchive implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedArchive.class);
+
+    static final String SUFFIX = ".arc";
+
+    private static final Comparator<Feed> NEWEST_FIRST =
+            Comparator.comparing(Feed::getPublishDate).thenComparing(Feed::getId).reversed();
+
+    private final File directory;
+
+    // month start -> segments of the month, a month archived again after a partial run has more than one
+    private final ConcurrentNavigableMap<Long, List<ArchiveSegment>> months = new ConcurrentSkipListMap<>();
+
+    public FeedArchive(@Value("${asocialoud.archive.directory:${user.home}/asocialoud-feeds-archive}") String directory) {
+        this.directory = new File(directory);
+
+        File[] files = this.directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.getName().endsWith(ArchiveSegmentWriter.TEMPORARY_SUFFIX)) {
+                // left by an archiver that stopped while writing
+                if (!file.delete()) {
+                    logger.warn("Unable to delete {}", file);
+                }
+            } else if (file.getName().endsWith(SUFFIX)) {
+                try {
+                    add(ArchiveSegment.open(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to open archive segment " + file, e);
+                }
+            }
+        }
+        logger.info("Feed archive opened at {}, {} months", directory, months.size());
+    }
+
+    /**
+     * Appends to the feeds read from the store the archived feeds older than the last of them, or than the cursor
+     * when there are none, until there are {@code count} feeds. Returns the feeds as they are when they are enough.
+     */
+    public List<Feed> fillUp(Long memberId, List<Feed> feeds, FeedCursor cursor, int count) {
+        if (feeds.size() >= count || months.isEmpty()) {
+            return feeds;
+        }
+        List<Feed> result = new ArrayList<>(feeds);
+        result.addAll(findBefore(memberId, feeds.isEmpty() ? cursor : FeedCursor.of(feeds.get(feeds.size() - 1)), count - feeds.size()));
+        return result;
+    }
+
+    /**
+     * Offset paging over both tiers : a page the store could not fill continues with the newest archived feeds,
+     * skipping those that earlier pages beyond the store's feeds already showed.
+     */
+    public List<Feed> fillPage(Long memberId, List<Feed> feeds, int page, int size, LongSupplier storedCount) {
+        if (feeds.size() >= size || months.isEmpty()) {
+            return feeds;
+        }
+        long offset = feeds.isEmpty() ? Math.max(0, (long) page * size - storedCount.getAsLong()) : 0;
+        List<Feed> result = new ArrayList<>(feeds);
+        result.addAll(findPage(memberId, offset, size - feeds.size()));
+        return result;
+    }
+
+    // archived feeds of the member strictly older than the cursor, all of them from the newest when it is null
+    public List<Feed> findBefore(Long memberId, FeedCursor cursor, int count) {
+        List<Feed> result = new ArrayList<>(count);
+        Map<Long, List<ArchiveSegment>> candidates = cursor == null ? months.descendingMap() :
+                months.headMap(cursor.getPublishTime(), true).descendingMap();
+        for (List<ArchiveSegment> segments : candidates.values()) {
+            for (Feed feed : feedsOf(memberId, segments)) {
+                if (result.size() >= count) {
+                    return result;
+                }
+                if (cursor == null || isBefore(feed, cursor)) {
+                    result.add(feed);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<Feed> findPage(Long memberId, long offset, int count) {
+        List<Feed> result = new ArrayList<>(count);
+        long skip = offset;
+        try {
+            for (List<ArchiveSegment> segments : months.descendingMap().values()) {
+                if (result.size() >= count) {
+                    break;
+                }
+                long monthCount = 0;
+                for (ArchiveSegment segment : segments) {
+                    monthCount += segment.countOf(memberId);
+                }
+                if (skip >= monthCount) {
+                    // whole month skipped without reading its blocks
+                    skip -= monthCount;
+                    continue;
+                }
+                List<Feed> feeds = feedsOf(memberId, segments);
+                for (int i = (int) skip; i < feeds.size() && result.size() < count; i++) {
+                    result.add(feeds.get(i));
+                }
+                skip = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read archived feeds of " + memberId, e);
+        }
+        return result;
+    }
+
+    // archived feeds among the ids, in no particular order
+    public List<Feed> findAllById(Collection<Long> ids) {
+        List<Feed> result = new ArrayList<>();
+        if (months.isEmpty()) {
+            return result;
+        }
+        try {
+            for (Long id : ids) {
+                for (List<ArchiveSegment> segments : months.values()) {
+                    Feed feed = findById(segments, id);
+                    if (feed != null) {
+                        result.add(feed);
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read archived feeds", e);
+        }
+        return result;
+    }
+
+    /**
+     * Feed count of every member over both tiers. Runs while no month is being moved, so that a feed already
+     * archived but not yet deleted from the store is not counted twice.
+     */
+    public synchronized Map<Long, Long> countAll(Supplier<Map<Long, Long>> storedCounts) {
+        Map<Long, Long> counts = new HashMap<>(storedCounts.get());
+        try {
+            for (List<ArchiveSegment> segments : months.values()) {
+                for (ArchiveSegment segment : segments) {
+                    segment.forEachMember((memberId, count) -> counts.merge(memberId, (long) count, Long::sum));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to count archived feeds", e);
+        }
+        return counts;
+    }
+
+    public Map<String, Object> stats() {
+        long feeds = 0;
+        long bytes = 0;
+        int segments = 0;
+        for (List<ArchiveSegment> month : months.values()) {
+            for (ArchiveSegment segment : month) {
+                feeds += segment.getFeedCount();
+                bytes += segment.getFile().length();
+                segments++;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("months", months.size());
+        stats.put("segments", segments);
+        stats.put("feeds", feeds);
+        stats.put("bytes", bytes);
+        stats.put("newestMonth", months.isEmpty() ? null : months.lastKey());
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (List<ArchiveSegment> segments : months.values()) {
+            for (ArchiveSegment segment : segments) {
+                segment.close();
+            }
+        }
+        months.clear();
+    }
+
+    // next free segment file of the month, named by month in utc
+    File newSegmentFile(long monthStart) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create feed archive directory " + directory);
+        }
+        String month = String.format("feeds-%tY-%<tm", calendarOf(monthStart));
+        for (int number = 0; ; number++) {
+            File file = new File(directory, String.format("%s-%03d%s", month, number, SUFFIX));
+            if (!file.exists()) {
+                return file;
+            }
+        }
+    }
+
+    boolean contains(long monthStart, long id) throws IOException {
+        List<ArchiveSegment> segments = months.get(monthStart);
+        return segments != null && findById(segments, id) != null;
+    }
+
+    /**
+     * Makes a written segment visible to readers, then removes its feeds from the store. Counting waits for both.
+     */
+    synchronized void install(File file, Runnable removeFromStore) throws IOException {
+        if (file != null) {
+            add(ArchiveSegment.open(file));
+        }
+        removeFromStore.run();
+    }
+
+    static Calendar calendarOf(long time) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(time);
+        return calendar;
+    }
+
+    private void add(ArchiveSegment segment) {
+        months.computeIfAbsent(segment.getMonthStart(), k -> new CopyOnWriteArrayList<>()).add(segment);
+    }
+
+    private List<Feed> feedsOf(Long memberId, List<ArchiveSegment> segments) {
+        try {
+            if (segments.size() == 1) {
+                return segments.get(0).feedsOf(memberId);
+            }
+            List<Feed> feeds = new ArrayList<>();
+            for (ArchiveSegment segment : segments) {
+                feeds.addAll(segment.feedsOf(memberId));
+            }
+            feeds.sort(NEWEST_FIRST);
+            return feeds;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read archived feeds of " + memberId, e);
+        }
+    }
+
+    private static Feed findById(List<ArchiveSegment> segments, long id) throws IOException {
+        for (ArchiveSegment segment : segments) {
+            Feed feed = segment.findById(id);
+            if (feed != null) {
+                return feed;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBefore(Feed feed, FeedCursor cursor) {
+        long time = feed.getPublishDate().getTime();
+        return time < cursor.getPublishTime() || (time == cursor.getPublishTime() && feed.getId() < cursor.getId());
+    }
+}
@@ -0,0 +1,172 @@
+package org.yardimci.asocialoud.feeds.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves whole months of feeds older than {@code afterMonths} from tbl_feeds to the {@link FeedArchive}, oldest
+ * month first, every {@code intervalMillis}. The feeds table keeps the recent months only, so its indexes stay
+ * small. A month is read member by member through the member index, written to a segment file and only then
+ * deleted from the table; a run that stops half way leaves feeds in both tiers, the next run skips those
+ * already archived and deletes them. Only the jpa store is archived, the log store keeps every feed.
+ */
+@Component
+@ConditionalOnProperty(name = "asocialoud.feeds.store", havingValue = "jpa", matchIfMissing = true)
+public class FeedArchiver implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedArchiver.class);
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private FeedArchive feedArchive;
+
+    private final int afterMonths;
+    private final long intervalMillis;
+    private final int deleteBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    public FeedArchiver(@Value("${asocialoud.archive.after-months:12}") int afterMonths,
+                        @Value("${asocialoud.archive.interval-millis:3600000}") long intervalMillis,
+                        @Value("${asocialoud.archive.delete-batch-size:500}") int deleteBatchSize) {
+        if (afterMonths < 1) {
+            throw new IllegalArgumentException("Feeds are archived after one month at least : " + afterMonths);
+        }
+        this.afterMonths = afterMonths;
+        this.intervalMillis = intervalMillis;
+        this.deleteBatchSize = deleteBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "feed-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // 0 leaves archiving to explicit calls
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::archiveQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // archives every month that ended more than afterMonths ago, returns the number of months moved
+    public int archive() {
+        Calendar cutoff = FeedArchive.calendarOf(System.currentTimeMillis());
+        toMonthStart(cutoff);
+        cutoff.add(Calendar.MONTH, -afterMonths);
+        return archiveBefore(cutoff.getTime());
+    }
+
+    // archives the months ending before the cutoff, oldest first
+    public synchronized int archiveBefore(Date cutoff) {
+        int archived = 0;
+        long lastMonthStart = Long.MIN_VALUE;
+        for (Date oldest = feedRepository.findOldestPublishDate(); oldest != null; oldest = feedRepository.findOldestPublishDate()) {
+            Calendar month = FeedArchive.calendarOf(oldest.getTime());
+            toMonthStart(month);
+            long monthStart = month.getTimeInMillis();
+            month.add(Calendar.MONTH, 1);
+            long monthEnd = month.getTimeInMillis();
+            if (monthEnd > cutoff.getTime()) {
+                break;
+            }
+            if (monthStart == lastMonthStart) {
+                // feeds were added to the month while it was moved, they go with the next run
+                logger.warn("Feeds published from {} are left in the feed store", oldest);
+                break;
+            }
+            lastMonthStart = monthStart;
+            archiveMonth(monthStart, monthEnd);
+            archived++;
+        }
+        return archived;
+    }
+
+    private static void toMonthStart(Calendar calendar) {
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+    }
+
+    private void archiveMonth(long monthStart, long monthEnd) {
+        long started = System.currentTimeMillis();
+        Date from = new Date(monthStart);
+        Date to = new Date(monthEnd);
+        List<Long> memberIds = feedRepository.findMemberIdsPublishedBetween(from, to);
+
+        try {
+            File file = feedArchive.newSegmentFile(monthStart);
+            int feeds;
+            File written = null;
+            try (ArchiveSegmentWriter writer = new ArchiveSegmentWriter(file, monthStart, monthEnd)) {
+                for (Long memberId : memberIds) {
+                    List<Feed> monthFeeds = feedRepository.findAllOfMemberPublishedBetween(memberId, from, to);
+                    // archived by a run that stopped before deleting them
+                    monthFeeds.removeIf(feed -> containsQuietly(monthStart, feed.getId()));
+                    if (!monthFeeds.isEmpty()) {
+                        writer.add(memberId, monthFeeds);
+                    }
+                }
+                feeds = writer.getFeedCount();
+                if (feeds > 0) {
+                    written = writer.finish();
+                }
+            }
+
+            feedArchive.install(written, () -> {
+                for (int i = 0; i < memberIds.size(); i += deleteBatchSize) {
+                    feedRepository.deleteAllOfMembersPublishedBetween(memberIds.subList(i, Math.min(i + deleteBatchSize, memberIds.size())), from, to);
+                }
+            });
+            logger.info("Archived {} feeds of {} members published in {} in {} ms", feeds, memberIds.size(), from,
+                    System.currentTimeMillis() - started);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to archive feeds published from " + from, e);
+        }
+    }
+
+    private boolean containsQuietly(long monthStart, long id) {
+        try {
+            return feedArchive.contains(monthStart, id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            logger.error("Unable to archive feeds", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,16 @@
+package org.yardimci.asocialoud.feeds.cache;
+
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.web.VersionStamps;
+
+/**
+ * Version of every member's profile feeds, touched when a feed of the member is saved. Profile pages carry
+ * a tag built from it, so a client revalidating an unchanged page gets a 304 before any feed is read.
+ */
+@Component
+public class FeedVersions extends VersionStamps<Long> {
+
+    public FeedVersions() {
+        super("no-cache");
+    }
+}
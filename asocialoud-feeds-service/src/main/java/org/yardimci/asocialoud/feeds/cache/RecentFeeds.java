@@ -0,0 +1,124 @@
+package org.yardimci.asocialoud.feeds.cache;
+
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Latest feeds of one member, ready to be served, in a fixed-size ring buffer ordered by
+ * (publish time, feed id). A new feed is appended over the oldest one once the buffer is full.
+ */
+class RecentFeeds {
+
+    // rough heap cost of an entry besides its strings: dto, date, string headers and array slots
+    private static final int ENTRY_BYTES = 128;
+
+    private final long[] feedIds;
+    private final long[] publishTimes;
+    private final FeedResponseDto[] feeds;
+
+    // logical index 0 is the oldest entry
+    private int start;
+    private int size;
+
+    // true while the buffer holds every feed of the member
+    private boolean complete;
+    private long bytes;
+
+    RecentFeeds(int capacity, boolean complete) {
+        this.feedIds = new long[capacity];
+        this.publishTimes = new long[capacity];
+        this.feeds = new FeedResponseDto[capacity];
+        this.complete = complete;
+    }
+
+    /**
+     * Adds a feed and returns the change in the estimated size of the buffer.
+     */
+    synchronized long add(long feedId, long publishTime, FeedResponseDto feed) {
+        int capacity = feeds.length;
+        int position = insertionPoint(feedId, publishTime);
+        if (position > 0 && feedIds[physical(position - 1)] == feedId) {
+            return 0;
+        }
+
+        long before = bytes;
+        if (size == capacity) {
+            complete = false;
+            if (position == 0) {
+                return 0;
+            }
+            bytes -= sizeOf(feeds[start]);
+            feeds[start] = null;
+            start = (start + 1) % capacity;
+            size--;
+            position--;
+        }
+
+        for (int i = size; i > position; i--) {
+            int to = physical(i);
+            int from = physical(i - 1);
+            feedIds[to] = feedIds[from];
+            publishTimes[to] = publishTimes[from];
+            feeds[to] = feeds[from];
+        }
+        int p = physical(position);
+        feedIds[p] = feedId;
+        publishTimes[p] = publishTime;
+        feeds[p] = feed;
+        size++;
+        bytes += sizeOf(feed);
+        return bytes - before;
+    }
+
+    /**
+     * Returns up to {@code count} feeds, newest first, older than {@code cursor} when given and skipping
+     * the {@code offset} newest ones otherwise. Returns null when the buffer cannot tell the whole page.
+     */
+    synchronized RecentFeedsCache.Page page(FeedCursor cursor, int offset, int count) {
+        int from = cursor == null ? size - 1 - offset : insertionPoint(cursor.getId() - 1, cursor.getPublishTime()) - 1;
+        if (from - count + 1 < 0 && !complete) {
+            return null;
+        }
+
+        List<FeedResponseDto> page = new ArrayList<>(count);
+        FeedCursor last = null;
+        for (int i = from; i >= 0 && page.size() < count; i--) {
+            int p = physical(i);
+            page.add(feeds[p]);
+            last = new FeedCursor(publishTimes[p], feedIds[p]);
+        }
+        return new RecentFeedsCache.Page(page, page.size() < count ? null : last);
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    static long sizeOf(FeedResponseDto feed) {
+        long chars = (feed.getText() == null ? 0 : feed.getText().length()) + (feed.getMediaUri() == null ? 0 : feed.getMediaUri().length());
+        return ENTRY_BYTES + 2 * chars;
+    }
+
+    // first logical index whose entry is newer than the given one
+    private int insertionPoint(long feedId, long publishTime) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int p = physical(mid);
+            if (publishTimes[p] < publishTime || (publishTimes[p] == publishTime && feedIds[p] <= feedId)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int logical) {
+        return (start + logical) % feeds.length;
+    }
+}
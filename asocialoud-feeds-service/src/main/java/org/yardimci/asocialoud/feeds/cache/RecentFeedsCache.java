@@ -0,0 +1,164 @@
+package org.yardimci.asocialoud.feeds.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latest feeds of members' profiles, kept as response dtos so that the first pages of a profile
+ * are served without touching the database. New feeds are written through by {@link #add(Feed)};
+ * members are evicted least recently read first once the estimated size exceeds {@code maxBytes}.
+ */
+@Component
+public class RecentFeedsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentFeedsCache.class);
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private FeedMapper feedMapper;
+
+    @Value("${asocialoud.recent-feeds.capacity:50}")
+    private int capacity;
+
+    @Value("${asocialoud.recent-feeds.max-bytes:33554432}")
+    private long maxBytes;
+
+    // member id -> recent feeds, in access order
+    private final LinkedHashMap<Long, RecentFeeds> members = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    // bumped on every write, a fill started before a write of the same stripe is not installed
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Returns the page from the cache, or null when the member is not cached or the page goes past the cached feeds.
+     */
+    public Page find(Long memberId, FeedCursor cursor, int offset, int count) {
+        RecentFeeds recentFeeds;
+        synchronized (members) {
+            recentFeeds = members.get(memberId);
+        }
+
+        Page page = recentFeeds == null ? null : recentFeeds.page(cursor, offset, count);
+        if (page == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return page;
+    }
+
+    public long stamp(Long memberId) {
+        return writeStamps.get(stripe(memberId));
+    }
+
+    /**
+     * Caches the newest feeds of a member, read from the database after {@link #stamp(Long)} returned {@code stamp},
+     * and returns the first page of them.
+     */
+    public Page fill(Long memberId, long stamp, List<Feed> newestFeeds, int count) {
+        RecentFeeds recentFeeds = new RecentFeeds(capacity, newestFeeds.size() < capacity);
+        long size = 0;
+        for (Feed feed : newestFeeds) {
+            size += recentFeeds.add(feed.getId(), feed.getPublishDate().getTime(), feedMapper.map(feed));
+        }
+
+        synchronized (members) {
+            if (writeStamps.get(stripe(memberId)) == stamp && !members.containsKey(memberId)) {
+                members.put(memberId, recentFeeds);
+                bytes.addAndGet(size);
+            } else {
+                logger.debug("Feeds of {} changed while being read, not cached", memberId);
+            }
+        }
+        evict();
+        return recentFeeds.page(null, 0, count);
+    }
+
+    public void add(Feed feed) {
+        Long memberId = feed.getMemberId();
+        writeStamps.incrementAndGet(stripe(memberId));
+
+        FeedResponseDto dto = feedMapper.map(feed);
+        synchronized (members) {
+            RecentFeeds recentFeeds = members.get(memberId);
+            if (recentFeeds == null) {
+                return;
+            }
+            bytes.addAndGet(recentFeeds.add(feed.getId(), feed.getPublishDate().getTime(), dto));
+        }
+        evict();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        synchronized (members) {
+            stats.put("members", members.size());
+        }
+        stats.put("bytes", bytes.get());
+        return stats;
+    }
+
+    private void evict() {
+        if (bytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (members) {
+            Iterator<RecentFeeds> eldest = members.values().iterator();
+            // the most recently used member is kept even if it alone is over the budget
+            while (bytes.get() > maxBytes && members.size() > 1) {
+                bytes.addAndGet(-eldest.next().bytes());
+                eldest.remove();
+            }
+        }
+    }
+
+    private static int stripe(Long memberId) {
+        return Long.hashCode(memberId) & (STRIPES - 1);
+    }
+
+    public static class Page {
+        private final List<FeedResponseDto> feeds;
+        private final FeedCursor nextCursor;
+
+        Page(List<FeedResponseDto> feeds, FeedCursor nextCursor) {
+            this.feeds = feeds;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<FeedResponseDto> getFeeds() {
+            return feeds;
+        }
+
+        // null when the page is the last one
+        public FeedCursor getNextCursor() {
+            return nextCursor;
+        }
+    }
+}
@@ -1,93 +1,469 @@
 package org.yardimci.asocialoud.feeds.controller;
 
 
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.util.HtmlUtils;
 import org.springframework.web.util.UriUtils;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+import org.yardimci.asocialoud.feeds.archive.FeedArchive;
+import org.yardimci.asocialoud.feeds.cache.FeedVersions;
+import org.yardimci.asocialoud.feeds.cache.RecentFeedsCache;
+import org.yardimci.asocialoud.feeds.counters.PostCounters;
+import org.yardimci.asocialoud.feeds.counters.RelaudCounters;
 import org.yardimci.asocialoud.feeds.db.model.Feed;
 import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
 import org.yardimci.asocialoud.feeds.dto.FeedDto;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
 import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+import org.yardimci.asocialoud.feeds.follow.FollowGraphClient;
+import org.yardimci.asocialoud.feeds.search.FeedSearchIndex;
+import org.yardimci.asocialoud.feeds.security.MemberTokens;
+import org.yardimci.asocialoud.feeds.stream.FeedBroadcaster;
+import org.yardimci.asocialoud.feeds.tags.TagIndex;
+import org.yardimci.asocialoud.feeds.tags.TrendingTags;
+import org.yardimci.asocialoud.feeds.timeline.HomeTimelineService;
+import org.yardimci.asocialoud.feeds.timeline.TimelineMergeEngine;
+import org.yardimci.asocialoud.feeds.write.FeedPublisher;
+import org.yardimci.asocialoud.feeds.write.FeedWriteBehind;
+import org.yardimci.asocialoud.feeds.write.PostRateLimiter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/feeds")
+@Profile("!reactive")
 public class FeedController {
 
     private static final Logger logger = LoggerFactory.getLogger(FeedController.class);
 
     @Autowired
-    private FeedRepository feedRepository;
+    private FeedStore feedStore;
+
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+
+    @Autowired
+    private FollowGraphClient followGraphClient;
+
+    @Autowired
+    private TimelineMergeEngine timelineMergeEngine;
+
+    @Autowired
+    private FeedMapper feedMapper;
+
+    @Autowired
+    private RecentFeedsCache recentFeedsCache;
+
+    @Autowired
+    private FeedBroadcaster feedBroadcaster;
+
+    @Autowired
+    private FeedSearchIndex feedSearchIndex;
+
+    @Autowired
+    private TagIndex tagIndex;
+
+    @Autowired
+    private TrendingTags trendingTags;
+
+    @Autowired
+    private PostCounters postCounters;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    @Autowired
+    private FeedArchive feedArchive;
+
+    @Autowired
+    private FeedPublisher feedPublisher;
+
+    @Autowired
+    private FeedWriteBehind feedWriteBehind;
+
+    @Autowired
+    private PostRateLimiter postRateLimiter;
+
+    @Autowired
+    private RelaudCounters relaudCounters;
+
+    @Autowired
+    private MemberTokens memberTokens;
+
+    @Value("${asocialoud.stream.timeout-millis:1800000}")
+    private long streamTimeout;
 
     //@LoadBalanced
     @GetMapping("/of/{memberId}")
-    public FeedResponse findFeeds(@PathVariable("memberId") Long memberId, @RequestParam(value = "start", required = false) Integer start) {
+    public FeedResponse findFeeds(@PathVariable("memberId") Long memberId,
+                                  @RequestParam(value = "cursor", required = false) String cursor,
+                                  @RequestParam(value = "start", required = false) Integer start,
+                                  @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                  ServletWebRequest webRequest) {
         logger.info("Retrieving all feeds of : {}", memberId);
+        // only the author sees the feeds still queued for writing, so the author's pages are tagged apart
+        boolean author = memberTokens.isIssuedTo(authorization, memberId);
+        // page the client already has, answered with 304 and no body
+        if (feedVersions.checkNotModified(memberId, webRequest, cursor, start == null ? null : start.toString(), author ? "author" : null)) {
+            return null;
+        }
+        FeedResponse feedResponse = new FeedResponse();
+
+        FeedCursor feedCursor = decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidcursor");
+            return feedResponse;
+        }
+
+        // latest pages of a profile are served from memory
+        int offset = feedCursor == null && start != null && start > 0 ? start * FeedRepository.FETCH_COUNT : 0;
+        RecentFeedsCache.Page cachedPage = recentFeedsCache.find(memberId, feedCursor, offset, FeedRepository.FETCH_COUNT);
+        if (cachedPage == null && feedCursor == null && offset == 0) {
+            long stamp = recentFeedsCache.stamp(memberId);
+            List<Feed> newestFeeds = feedArchive.fillUp(memberId, feedStore.findNewest(memberId, recentFeedsCache.getCapacity()),
+                    null, recentFeedsCache.getCapacity());
+            cachedPage = recentFeedsCache.fill(memberId, stamp, newestFeeds, FeedRepository.FETCH_COUNT);
+        }
+        if (cachedPage != null) {
+            feedResponse.setData(author && feedCursor == null && offset == 0 ? withPending(memberId, cachedPage.getFeeds()) : cachedPage.getFeeds());
+            feedResponse.setCursor(cachedPage.getNextCursor() == null ? null : cachedPage.getNextCursor().encode());
+            feedResponse.setStatus(HttpStatus.OK.toString());
+            return feedResponse;
+        }
+
+        // pages going past the feeds of the store continue in the archive
+        List<Feed> feeds;
+        if (feedCursor != null) {
+            feeds = feedArchive.fillUp(memberId, feedStore.findBefore(memberId, feedCursor, FeedRepository.FETCH_COUNT),
+                    feedCursor, FeedRepository.FETCH_COUNT);
+        } else if (start != null && start > 0) {
+            // offset paging is kept for older clients
+            feeds = feedArchive.fillPage(memberId, feedStore.findPage(memberId, start, FeedRepository.FETCH_COUNT),
+                    start, FeedRepository.FETCH_COUNT, () -> feedStore.countByMemberId(memberId));
+        } else {
+            feeds = feedArchive.fillUp(memberId, feedStore.findNewest(memberId, FeedRepository.FETCH_COUNT), null, FeedRepository.FETCH_COUNT);
+        }
+
+        List<FeedResponseDto> searchResultList = feedMapper.mapAll(feeds);
+
+        feedResponse.setData(author && feedCursor == null && offset == 0 ? withPending(memberId, searchResultList) : searchResultList);
+        feedResponse.setCursor(nextCursor(feeds));
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+
+    // only to the member, whose token is checked on every request since followings may come from the cache
+    @GetMapping("/home/{memberId}")
+    public ResponseEntity<FeedResponse> findHomeFeeds(@PathVariable("memberId") Long memberId,
+                                                      @RequestParam(value = "dateAfter", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date dateAfter,
+                                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                                      @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        logger.info("Retrieving home feeds of : {}", memberId);
         FeedResponse feedResponse = new FeedResponse();
 
-        List<Feed> feeds = feedRepository.findAllByMemberIdOrderByPublishDateDesc(memberId, PageRequest.of(start == null ? 0 : start.intValue(), FeedRepository.FETCH_COUNT));
-        ModelMapper modelMapper = new ModelMapper();
-        List<FeedResponseDto> searchResultList =
-                feeds
-                        .stream()
-                        .map(source -> modelMapper.map(source, FeedResponseDto.class))
-                        .collect(Collectors.toList());
+        if (!memberTokens.isIssuedTo(authorization, memberId)) {
+            feedResponse.setStatus(HttpStatus.UNAUTHORIZED.toString());
+            feedResponse.setData("error.unauthorized");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(feedResponse);
+        }
+
+        FeedCursor feedCursor = decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidcursor");
+            return ResponseEntity.ok(feedResponse);
+        }
+
+        Set<Long> followings;
+        Set<Long> relaudsMuted;
+        try {
+            followings = followGraphClient.followingsOf(memberId, authorization);
+            relaudsMuted = followings.isEmpty() ? Collections.emptySet() : followGraphClient.relaudsMutedOf(memberId, authorization);
+        } catch (RestClientException e) {
+            logger.error("Unable to retrieve followings of " + memberId, e);
+            feedResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.toString());
+            feedResponse.setData("error.servererror");
+            return ResponseEntity.ok(feedResponse);
+        }
+
+        List<Feed> feeds = followings.isEmpty() ? new ArrayList<>() :
+                homeTimelineService.findPage(memberId, followings, relaudsMuted, dateAfter, feedCursor, 0);
+
+        List<FeedResponseDto> searchResultList = timelinePage(feeds);
 
         feedResponse.setData(searchResultList);
+        feedResponse.setCursor(nextCursor(feeds));
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return ResponseEntity.ok(feedResponse);
+    }
+
+    // new feeds of followings as server-sent events, EventSource can not set headers so the token may come as a parameter
+    @GetMapping(path = "/stream/{memberId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamFeeds(@PathVariable("memberId") Long memberId,
+                                                  @RequestParam(value = "token", required = false) String token,
+                                                  @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        logger.info("Opening feed stream of : {}", memberId);
+
+        String memberAuthorization = authorization == null ? memberTokens.authorizationOf(token) : authorization;
+        if (!memberTokens.isIssuedTo(memberAuthorization, memberId)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Set<Long> followings;
+        try {
+            followings = followGraphClient.followingsOf(memberId, memberAuthorization);
+        } catch (RestClientException e) {
+            logger.error("Unable to retrieve followings of " + memberId, e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        return ResponseEntity.ok(feedBroadcaster.subscribe(memberId, followings, new SseEmitter(streamTimeout)));
+    }
+
+    // newest feeds containing every word of the query
+    @GetMapping("/search")
+    public FeedResponse search(@RequestParam(value = "q", required = false) String query,
+                               @RequestParam(value = "cursor", required = false) String cursor) {
+        logger.info("Searching feeds : {}", query);
+        FeedResponse feedResponse = new FeedResponse();
+
+        if (StringUtils.isEmpty(query)) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.missinginformation");
+            return feedResponse;
+        }
+
+        FeedCursor feedCursor = decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidcursor");
+            return feedResponse;
+        }
+
+        return feedsOf(feedSearchIndex.search(query, feedCursor == null ? null : feedCursor.getId(), FeedRepository.FETCH_COUNT));
+    }
+
+    @GetMapping("/tag/{tag}")
+    public FeedResponse findTaggedFeeds(@PathVariable("tag") String tag,
+                                        @RequestParam(value = "cursor", required = false) String cursor) {
+        logger.info("Retrieving feeds tagged : {}", tag);
+
+        FeedCursor feedCursor = decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            FeedResponse feedResponse = new FeedResponse();
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidcursor");
+            return feedResponse;
+        }
+
+        return feedsOf(tagIndex.findTagged(tag, feedCursor == null ? null : feedCursor.getId(), FeedRepository.FETCH_COUNT));
+    }
+
+    @GetMapping("/mentions/{loginName}")
+    public FeedResponse findMentioningFeeds(@PathVariable("loginName") String loginName,
+                                            @RequestParam(value = "cursor", required = false) String cursor) {
+        logger.info("Retrieving feeds mentioning : {}", loginName);
+
+        FeedCursor feedCursor = decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            FeedResponse feedResponse = new FeedResponse();
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidcursor");
+            return feedResponse;
+        }
+
+        return feedsOf(tagIndex.findMentioning(loginName, feedCursor == null ? null : feedCursor.getId(), FeedRepository.FETCH_COUNT));
+    }
+
+    // window is one of 5m, 1h, 24h
+    @GetMapping("/trending")
+    public FeedResponse trendingTags(@RequestParam(value = "window", defaultValue = "1h") String window,
+                                     @RequestParam(value = "count", defaultValue = "10") int count) {
+        FeedResponse feedResponse = new FeedResponse();
+
+        List<TrendingTags.TagCount> tags = trendingTags.trending(window, count);
+        if (tags == null) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidwindow");
+            return feedResponse;
+        }
+
+        feedResponse.setData(tags);
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    // profile stats, from the post counters
+    @GetMapping("/stats/{memberId}")
+    public FeedResponse memberStats(@PathVariable("memberId") Long memberId) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("memberId", memberId);
+        stats.put("postCount", postCounters.count(memberId));
+
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(stats);
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    @GetMapping("/counters/stats")
+    public FeedResponse postCountersStats() {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(postCounters.stats());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    // counts every feed again, for counters that drifted after a crash
+    @PostMapping("/counters/rebuild")
+    public FeedResponse rebuildPostCounters() {
+        logger.info("Rebuilding post counters");
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(postCounters.rebuild());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    @GetMapping("/write-behind/stats")
+    public FeedResponse writeBehindStats() {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(feedWriteBehind.stats());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    @GetMapping("/archive/stats")
+    public FeedResponse archiveStats() {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(feedArchive.stats());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    @GetMapping("/search/stats")
+    public FeedResponse searchIndexStats() {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(feedSearchIndex.stats());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    @GetMapping("/cache/stats")
+    public FeedResponse recentFeedsCacheStats() {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(recentFeedsCache.stats());
         feedResponse.setStatus(HttpStatus.OK.toString());
         return feedResponse;
     }
 
+    // called by the members service when a member follows or unfollows someone, with the internal secret
+    @PostMapping("/home/{memberId}/invalidate")
+    public ResponseEntity<FeedResponse> invalidateFollowings(@PathVariable("memberId") Long memberId,
+                                                             @RequestHeader(value = MemberTokens.INTERNAL_SECRET_HEADER, required = false) String secret) {
+        FeedResponse feedResponse = new FeedResponse();
+        if (!memberTokens.isInternal(secret)) {
+            logger.warn("Invalidation of the followings of {} without the internal secret", memberId);
+            feedResponse.setStatus(HttpStatus.FORBIDDEN.toString());
+            feedResponse.setData("error.forbidden");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(feedResponse);
+        }
+
+        logger.info("Followings of {} changed", memberId);
+        followGraphClient.invalidate(memberId);
+        feedBroadcaster.disconnect(memberId);
+
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return ResponseEntity.ok(feedResponse);
+    }
+
 
     //@LoadBalanced
-    //todo instead of this, ask member service for all followings
+    // kept for clients that resolve followings themselves, see /home/{memberId}
+    // a followerId registers these followings for the home timeline of that member, so it takes the member's token
     @GetMapping("/followingsof/{memberIds}")
-    public FeedResponse findFeedsOfFollowings(@PathVariable("memberIds") Long[] memberIds,
-                                              @RequestParam(value = "dateAfter", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date dateAfter,
-                                              @RequestParam(value = "start", required = false) Integer start) {
+    public ResponseEntity<FeedResponse> findFeedsOfFollowings(@PathVariable("memberIds") Long[] memberIds,
+                                                              @RequestParam(value = "dateAfter", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date dateAfter,
+                                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                                              @RequestParam(value = "start", required = false) Integer start,
+                                                              @RequestParam(value = "followerId", required = false) Long followerId,
+                                                              @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         logger.info("Retrieving all followings feeds");
         FeedResponse feedResponse = new FeedResponse();
 
+        if (followerId != null && !memberTokens.isIssuedTo(authorization, followerId)) {
+            feedResponse.setStatus(HttpStatus.UNAUTHORIZED.toString());
+            feedResponse.setData("error.unauthorized");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(feedResponse);
+        }
+
         if (memberIds == null || memberIds.length < 1) {
             logger.warn("Missing feed info");
             feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
             feedResponse.setData("error.missinginformation");
-            return feedResponse;
+            return ResponseEntity.ok(feedResponse);
         }
 
-        PageRequest pageRequest = PageRequest.of(start == null ? 0 : start.intValue(), FeedRepository.FETCH_COUNT);
+        FeedCursor feedCursor = decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.invalidcursor");
+            return ResponseEntity.ok(feedResponse);
+        }
 
-        List<Feed> feeds = dateAfter == null ? feedRepository.findAllByMemberIdInOrderByPublishDateDesc(memberIds, pageRequest) :
-                feedRepository.findAllByMemberIdInAndPublishDateAfterOrderByPublishDateDesc(memberIds, dateAfter, pageRequest);
+        List<Long> authorIds = Arrays.asList(memberIds);
+        int page = start == null ? 0 : start.intValue();
+        List<Feed> feeds;
+        if (followerId != null) {
+            // served from the precomputed home timeline of the follower
+            feeds = homeTimelineService.findPage(followerId, authorIds, Collections.emptySet(), dateAfter, feedCursor, page);
+        } else {
+            // merged from per-author streams instead of one IN query sorting every matching row
+            int offset = feedCursor == null ? page * FeedRepository.FETCH_COUNT : 0;
+            feeds = timelineMergeEngine.findFeeds(authorIds, feedCursor, dateAfter, offset, FeedRepository.FETCH_COUNT);
+        }
 
-        ModelMapper modelMapper = new ModelMapper();
-        List<FeedResponseDto> searchResultList =
-                feeds
-                        .stream()
-                        .map(source -> modelMapper.map(source, FeedResponseDto.class))
-                        .collect(Collectors.toList());
+        List<FeedResponseDto> searchResultList = timelinePage(feeds);
 
         feedResponse.setData(searchResultList);
+        feedResponse.setCursor(nextCursor(feeds));
         feedResponse.setStatus(HttpStatus.OK.toString());
-        return feedResponse;
+        return ResponseEntity.ok(feedResponse);
     }
 
     // todo check if member exists
+    // 201 once saved, or 202 once queued when feeds are written behind
     @PostMapping("/create")
-    @ResponseStatus(HttpStatus.CREATED)
-    public FeedResponse create(@RequestBody FeedDto feedDto) {
+    public ResponseEntity<FeedResponse> create(@RequestBody FeedDto feedDto) {
         logger.info("Save feed request received");
         FeedResponse feedResponse = new FeedResponse();
 
@@ -95,7 +471,15 @@ public class FeedController {
             logger.warn("Missing feed info");
             feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
             feedResponse.setData("error.missinginformation");
-            return feedResponse;
+            return ResponseEntity.status(HttpStatus.CREATED).body(feedResponse);
+        }
+        long wait = postRateLimiter.tryAcquire(feedDto.getMemberId());
+        if (wait > 0) {
+            logger.warn("Member {} creates feeds too fast", feedDto.getMemberId());
+            feedResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.toString());
+            feedResponse.setData("error.toomanyrequests");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(wait))).body(feedResponse);
         }
         Feed newFeed = new Feed();
         newFeed.setMemberId(feedDto.getMemberId());
@@ -103,23 +487,188 @@ public class FeedController {
         newFeed.setMediaUri(StringUtils.isEmpty(feedDto.getMediaUri()) ? "" : UriUtils.encodePath(feedDto.getMediaUri() , "UTF-8"));
         newFeed.setPublishDate(new Date());
 
+        if (feedWriteBehind.isEnabled()) {
+            if (!feedWriteBehind.offer(newFeed)) {
+                logger.warn("Feed write queue is full");
+                feedResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.toString());
+                feedResponse.setData("error.busy");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(feedResponse);
+            }
+            feedResponse.setStatus(HttpStatus.ACCEPTED.toString());
+            feedResponse.setData(feedMapper.map(newFeed));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(feedResponse);
+        }
+
         try {
             logger.info("Saving feed");
-            feedRepository.save(newFeed);
+            feedStore.save(newFeed);
             feedResponse.setStatus(HttpStatus.CREATED.toString());
-
-            ModelMapper modelMapper = new ModelMapper();
-            FeedResponseDto feedResponseDto = modelMapper.map(newFeed, FeedResponseDto.class);
-
-            feedResponse.setData(feedResponseDto);
+            feedResponse.setData(feedPublisher.published(newFeed));
         } catch (Exception e) {
             logger.error("Unable to save feed", e);
             feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
             feedResponse.setData("error.servererror");
         }
 
+        return ResponseEntity.status(HttpStatus.CREATED).body(feedResponse);
+    }
+
+    // reposts someone else's feed to the member's followers, relauding a relaud relauds its original
+    @PostMapping("/relaud/{feedId}")
+    public ResponseEntity<FeedResponse> relaud(@PathVariable("feedId") Long feedId, @RequestBody FeedDto feedDto) {
+        logger.info("Relaud request received for feed {}", feedId);
+        FeedResponse feedResponse = new FeedResponse();
+
+        if (feedDto.getMemberId() == null || feedDto.getMemberId() < 1L) {
+            logger.warn("Missing relaud info");
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.missinginformation");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(feedResponse);
+        }
+        long wait = postRateLimiter.tryAcquire(feedDto.getMemberId());
+        if (wait > 0) {
+            logger.warn("Member {} relauds too fast", feedDto.getMemberId());
+            feedResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.toString());
+            feedResponse.setData("error.toomanyrequests");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(wait))).body(feedResponse);
+        }
+
+        List<Feed> found = findAllById(Collections.singletonList(feedId));
+        if (!found.isEmpty() && found.get(0).getRelaudOf() != null) {
+            found = findAllById(Collections.singletonList(found.get(0).getRelaudOf()));
+        }
+        if (found.isEmpty()) {
+            feedResponse.setStatus(HttpStatus.NOT_FOUND.toString());
+            feedResponse.setData("error.notfound");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(feedResponse);
+        }
+        Feed original = found.get(0);
+        if (original.getMemberId().equals(feedDto.getMemberId())) {
+            feedResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            feedResponse.setData("error.ownfeed");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(feedResponse);
+        }
+        if (feedStore.hasRelauded(feedDto.getMemberId(), original.getId())) {
+            feedResponse.setStatus(HttpStatus.EXPECTATION_FAILED.toString());
+            feedResponse.setData("info.exists");
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(feedResponse);
+        }
+
+        Feed relaud = new Feed();
+        relaud.setMemberId(feedDto.getMemberId());
+        relaud.setText(original.getText());
+        relaud.setMediaUri(original.getMediaUri());
+        relaud.setPublishDate(new Date());
+        relaud.setRelaudOf(original.getId());
+        try {
+            // written right away, the relauded check needs to see it
+            feedStore.save(relaud);
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Feed {} already relauded by {}", original.getId(), feedDto.getMemberId());
+            feedResponse.setStatus(HttpStatus.EXPECTATION_FAILED.toString());
+            feedResponse.setData("info.exists");
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(feedResponse);
+        }
+
+        FeedResponseDto published = feedPublisher.published(relaud);
+        published.setRelaudedBy(relaud.getMemberId());
+        feedResponse.setStatus(HttpStatus.CREATED.toString());
+        feedResponse.setData(published);
+        return ResponseEntity.status(HttpStatus.CREATED).body(feedResponse);
+    }
+
+    // relauds are shown as their original and who relauded it, every feed with the relaud count of its original
+    private List<FeedResponseDto> timelinePage(List<Feed> feeds) {
+        List<Long> originalIds = new ArrayList<>(feeds.size());
+        List<Long> relaudedIds = new ArrayList<>();
+        for (Feed feed : feeds) {
+            originalIds.add(feed.getRelaudOf() != null ? feed.getRelaudOf() : feed.getId());
+            if (feed.getRelaudOf() != null) {
+                relaudedIds.add(feed.getRelaudOf());
+            }
+        }
+        Map<Long, Feed> originals = new HashMap<>();
+        if (!relaudedIds.isEmpty()) {
+            findAllById(relaudedIds).forEach(original -> originals.put(original.getId(), original));
+        }
+        Map<Long, Long> relauds = originalIds.isEmpty() ? Collections.emptyMap() : relaudCounters.countsOf(originalIds);
+
+        List<FeedResponseDto> page = new ArrayList<>(feeds.size());
+        for (int i = 0; i < feeds.size(); i++) {
+            Feed feed = feeds.get(i);
+            Feed original = feed.getRelaudOf() == null ? null : originals.get(feed.getRelaudOf());
+            FeedResponseDto dto = feedMapper.map(original != null ? original : feed);
+            if (feed.getRelaudOf() != null) {
+                dto.setRelaudOf(feed.getRelaudOf());
+                dto.setRelaudedBy(feed.getMemberId());
+            }
+            dto.setRelauds(relauds.get(originalIds.get(i)));
+            page.add(dto);
+        }
+        return page;
+    }
+
+    // feeds queued for writing are shown to their token-checked author on top of the first page
+    private List<FeedResponseDto> withPending(Long memberId, List<FeedResponseDto> page) {
+        List<Feed> pending = feedWriteBehind.pendingOf(memberId);
+        if (pending.isEmpty()) {
+            return page;
+        }
+        // a queued feed no newer than the page is already written and on it
+        long newest = page.isEmpty() ? Long.MIN_VALUE : page.get(0).getPublishDate().getTime();
+        List<FeedResponseDto> result = new ArrayList<>(pending.size() + page.size());
+        for (Feed feed : pending) {
+            if (feed.getPublishDate().getTime() > newest) {
+                result.add(feedMapper.map(feed));
+            }
+        }
+        result.addAll(page);
+        return result;
+    }
+
+    // page of feeds found by id in an index, newest first
+    private FeedResponse feedsOf(List<Long> ids) {
+        List<Feed> feeds = findAllById(ids);
+        feeds.sort(Comparator.comparing(Feed::getId).reversed());
+
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(feedMapper.mapAll(feeds));
+        feedResponse.setCursor(nextCursor(feeds));
+        feedResponse.setStatus(HttpStatus.OK.toString());
         return feedResponse;
     }
 
+    // feeds of the store, then of the archive for the ids it does not have
+    private List<Feed> findAllById(List<Long> ids) {
+        List<Feed> feeds = ids.isEmpty() ? new ArrayList<>() : feedStore.findAllById(ids);
+        if (feeds.size() < ids.size()) {
+            // indexes and relauds keep the ids of archived feeds
+            Set<Long> found = new HashSet<>();
+            feeds.forEach(feed -> found.add(feed.getId()));
+            feeds.addAll(feedArchive.findAllById(ids.stream().filter(id -> !found.contains(id)).collect(Collectors.toList())));
+        }
+        return feeds;
+    }
+
+    static FeedCursor decodeCursor(String cursor) {
+        if (StringUtils.isEmpty(cursor)) {
+            return null;
+        }
+        try {
+            return FeedCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cursor received : {}", cursor);
+            return null;
+        }
+    }
+
+    // a short page means there is nothing older to fetch
+    static String nextCursor(List<Feed> feeds) {
+        if (feeds.size() < FeedRepository.FETCH_COUNT) {
+            return null;
+        }
+        return FeedCursor.of(feeds.get(feeds.size() - 1)).encode();
+    }
 
 }
@@ -1,5 +1,6 @@
 package org.yardimci.asocialoud.feeds.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class FeedResponse {
@@ -8,6 +9,10 @@ public class FeedResponse {
     private String status;
     @JsonProperty("data")
     private Object data;
+    // position of the next page for listings, absent on the last page
+    @JsonProperty("cursor")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cursor;
 
     public String getStatus() {
         return status;
@@ -24,4 +29,12 @@ public class FeedResponse {
     public void setData(Object data) {
         this.data = data;
     }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
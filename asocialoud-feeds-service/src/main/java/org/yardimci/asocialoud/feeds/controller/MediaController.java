@@ -0,0 +1,196 @@
+package org.yardimci.asocialoud.feeds.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+import org.yardimci.asocialoud.feeds.media.MediaStore;
+import org.yardimci.asocialoud.feeds.write.PostRateLimiter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Media of feeds : uploads go to the {@link MediaStore}, and the uri returned is given as the media uri of a feed.
+ * Stored media never change, so they are served with immutable cache headers, with the hash as entity tag and
+ * single byte ranges. Large files are handed to tomcat's sendfile, the kernel copies them to the socket;
+ * otherwise they are written with {@link FileChannel#transferTo}.
+ */
+@RestController
+@RequestMapping("/api/feeds/media")
+@Profile("!reactive")
+public class MediaController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaController.class);
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // below this the copy costs less than setting up sendfile, as for tomcat's default servlet
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @Autowired
+    private PostRateLimiter postRateLimiter;
+
+    // the body is the media itself, with its content type
+    @PostMapping
+    public ResponseEntity<FeedResponse> upload(@RequestParam("memberId") Long memberId, HttpServletRequest request) {
+        logger.info("Media upload of {} received", memberId);
+        FeedResponse feedResponse = new FeedResponse();
+
+        if (request.getContentLengthLong() > mediaStore.getMaxBytes()) {
+            return error(feedResponse, HttpStatus.PAYLOAD_TOO_LARGE, "error.toolarge");
+        }
+        long wait = postRateLimiter.tryAcquire(memberId);
+        if (wait > 0) {
+            logger.warn("Member {} uploads media too fast", memberId);
+            feedResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.toString());
+            feedResponse.setData("error.toomanyrequests");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(wait))).body(feedResponse);
+        }
+
+        try {
+            String name = mediaStore.store(request.getInputStream(), request.getContentType());
+            feedResponse.setStatus(HttpStatus.CREATED.toString());
+            feedResponse.setData("/api/feeds/media/" + name);
+            return ResponseEntity.status(HttpStatus.CREATED).body(feedResponse);
+        } catch (IllegalArgumentException e) {
+            return error(feedResponse, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "error.unsupportedmedia");
+        } catch (MediaStore.TooLargeException e) {
+            return error(feedResponse, HttpStatus.PAYLOAD_TOO_LARGE, "error.toolarge");
+        } catch (IOException e) {
+            logger.error("Unable to store media of " + memberId, e);
+            return error(feedResponse, HttpStatus.INTERNAL_SERVER_ERROR, "error.servererror");
+        }
+    }
+
+    @GetMapping("/stats")
+    public FeedResponse mediaStats() {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(mediaStore.stats());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    @GetMapping("/{name:.+}")
+    public void serve(@PathVariable("name") String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        File file = mediaStore.find(name);
+        if (file == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String etag = "\"" + MediaStore.hashOf(name) + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = file.length();
+        long start = 0;
+        long end = length - 1;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        long[] range = ifRange == null || ifRange.equals(etag) ? rangeOf(request.getHeader(HttpHeaders.RANGE), length) : null;
+        if (range == UNSATISFIABLE) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+        if (range != null) {
+            start = range[0];
+            end = range[1];
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+        long count = end - start + 1;
+        response.setContentType(MediaStore.contentTypeOf(name));
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // tomcat sends the file once the request returns
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = start; position <= end; ) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    /**
+     * First and last byte of a single range header, null to send the whole file : without a range, or for several
+     * ranges which are allowed to be answered with the whole file.
+     */
+    static long[] rangeOf(String header, long length) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // the last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1 : Math.min(length - 1, Long.parseLong(spec.substring(dash + 1)));
+            }
+            if (start >= length || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static ResponseEntity<FeedResponse> error(FeedResponse feedResponse, HttpStatus status, String code) {
+        feedResponse.setStatus(status.toString());
+        feedResponse.setData(code);
+        return ResponseEntity.status(status).body(feedResponse);
+    }
+}
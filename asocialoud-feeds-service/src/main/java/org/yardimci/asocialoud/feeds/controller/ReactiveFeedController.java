@@ -0,0 +1,262 @@
+package org.yardimci.asocialoud.feeds.controller;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.HtmlUtils;
+import org.springframework.web.util.UriUtils;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+import org.yardimci.asocialoud.commons.web.VersionStamps;
+import org.yardimci.asocialoud.feeds.archive.FeedArchive;
+import org.yardimci.asocialoud.feeds.cache.FeedVersions;
+import org.yardimci.asocialoud.feeds.cache.RecentFeedsCache;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+import org.yardimci.asocialoud.feeds.db.store.ReactiveFeedStore;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import org.yardimci.asocialoud.feeds.dto.FeedDto;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
+import org.yardimci.asocialoud.feeds.security.MemberTokens;
+import org.yardimci.asocialoud.feeds.timeline.HomeTimelineService;
+import org.yardimci.asocialoud.feeds.timeline.TimelineMergeEngine;
+import org.yardimci.asocialoud.feeds.write.FeedPublisher;
+import org.yardimci.asocialoud.feeds.write.FeedWriteBehind;
+import org.yardimci.asocialoud.feeds.write.PostRateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reactive versions of the feed listing and creation endpoints, active with the reactive profile.
+ * Cached pages are answered on the event loop, everything reaching the store goes through {@link ReactiveFeedStore}.
+ * <p>
+ * A benchmark-only subset of {@link FeedController} : home timelines, streams, search, tags, mentions, trending,
+ * stats, invalidation and relauds have no reactive version and answer 404 under the profile.
+ */
+@RestController
+@RequestMapping("/api/feeds")
+@Profile("reactive")
+public class ReactiveFeedController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveFeedController.class);
+
+    @Autowired
+    private ReactiveFeedStore reactiveFeedStore;
+
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+
+    @Autowired
+    private TimelineMergeEngine timelineMergeEngine;
+
+    @Autowired
+    private FeedMapper feedMapper;
+
+    @Autowired
+    private RecentFeedsCache recentFeedsCache;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    @Autowired
+    private FeedArchive feedArchive;
+
+    @Autowired
+    private FeedStore feedStore;
+
+    @Autowired
+    private FeedPublisher feedPublisher;
+
+    @Autowired
+    private PostRateLimiter postRateLimiter;
+
+    @Autowired
+    private FeedWriteBehind feedWriteBehind;
+
+    @Autowired
+    private MemberTokens memberTokens;
+
+    @GetMapping("/of/{memberId}")
+    public Mono<FeedResponse> findFeeds(@PathVariable("memberId") Long memberId,
+                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                        @RequestParam(value = "start", required = false) Integer start,
+                                        ServerWebExchange exchange) {
+        logger.info("Retrieving all feeds of : {}", memberId);
+        if (checkNotModified(memberId, exchange, cursor, start)) {
+            return Mono.empty();
+        }
+
+        FeedCursor feedCursor = FeedController.decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            return Mono.just(error(HttpStatus.BAD_REQUEST, "error.invalidcursor"));
+        }
+
+        int offset = feedCursor == null && start != null && start > 0 ? start * FeedRepository.FETCH_COUNT : 0;
+        RecentFeedsCache.Page cachedPage = recentFeedsCache.find(memberId, feedCursor, offset, FeedRepository.FETCH_COUNT);
+        if (cachedPage != null) {
+            return Mono.just(cachedResponse(cachedPage));
+        }
+
+        if (feedCursor == null && offset == 0) {
+            long stamp = recentFeedsCache.stamp(memberId);
+            int capacity = recentFeedsCache.getCapacity();
+            return reactiveFeedStore.findNewest(memberId, capacity).collectList()
+                    .flatMap(newestFeeds -> newestFeeds.size() < capacity ?
+                            reactiveFeedStore.call(() -> feedArchive.fillUp(memberId, newestFeeds, null, capacity)) : Mono.just(newestFeeds))
+                    .map(newestFeeds -> cachedResponse(recentFeedsCache.fill(memberId, stamp, newestFeeds, FeedRepository.FETCH_COUNT)));
+        }
+
+        // a short page continues in the archive, read on the store scheduler as it is blocking file io
+        if (feedCursor != null) {
+            return reactiveFeedStore.findBefore(memberId, feedCursor, FeedRepository.FETCH_COUNT).collectList()
+                    .flatMap(feeds -> feeds.size() < FeedRepository.FETCH_COUNT ?
+                            reactiveFeedStore.call(() -> feedArchive.fillUp(memberId, feeds, feedCursor, FeedRepository.FETCH_COUNT)) : Mono.just(feeds))
+                    .map(this::response);
+        }
+        return reactiveFeedStore.findPage(memberId, start, FeedRepository.FETCH_COUNT).collectList()
+                .flatMap(feeds -> feeds.size() < FeedRepository.FETCH_COUNT ?
+                        reactiveFeedStore.call(() -> feedArchive.fillPage(memberId, feeds, start, FeedRepository.FETCH_COUNT,
+                                () -> feedStore.countByMemberId(memberId))) : Mono.just(feeds))
+                .map(this::response);
+    }
+
+    // a followerId registers these followings for the home timeline of that member, so it takes the member's token
+    @GetMapping("/followingsof/{memberIds}")
+    public Mono<ResponseEntity<FeedResponse>> findFeedsOfFollowings(@PathVariable("memberIds") Long[] memberIds,
+                                                                    @RequestParam(value = "dateAfter", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date dateAfter,
+                                                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                                                    @RequestParam(value = "start", required = false) Integer start,
+                                                                    @RequestParam(value = "followerId", required = false) Long followerId,
+                                                                    @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        logger.info("Retrieving all followings feeds");
+
+        if (followerId != null && !memberTokens.isIssuedTo(authorization, followerId)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error(HttpStatus.UNAUTHORIZED, "error.unauthorized")));
+        }
+
+        if (memberIds == null || memberIds.length < 1) {
+            logger.warn("Missing feed info");
+            return Mono.just(ResponseEntity.ok(error(HttpStatus.BAD_REQUEST, "error.missinginformation")));
+        }
+
+        FeedCursor feedCursor = FeedController.decodeCursor(cursor);
+        if (cursor != null && feedCursor == null) {
+            return Mono.just(ResponseEntity.ok(error(HttpStatus.BAD_REQUEST, "error.invalidcursor")));
+        }
+
+        List<Long> authorIds = Arrays.asList(memberIds);
+        int page = start == null ? 0 : start.intValue();
+        int offset = feedCursor == null ? page * FeedRepository.FETCH_COUNT : 0;
+        return reactiveFeedStore.call(() -> followerId != null ?
+                homeTimelineService.findPage(followerId, authorIds, Collections.emptySet(), dateAfter, feedCursor, page) :
+                timelineMergeEngine.findFeeds(authorIds, feedCursor, dateAfter, offset, FeedRepository.FETCH_COUNT))
+                .map(feeds -> ResponseEntity.ok(response(feeds)));
+    }
+
+    @PostMapping("/create")
+    public Mono<ResponseEntity<FeedResponse>> create(@RequestBody FeedDto feedDto) {
+        logger.info("Save feed request received");
+
+        if (StringUtils.isEmpty(feedDto.getText()) || feedDto.getMemberId() == null || feedDto.getMemberId() < 1L) {
+            logger.warn("Missing feed info");
+            return Mono.just(ResponseEntity.status(HttpStatus.CREATED).body(error(HttpStatus.BAD_REQUEST, "error.missinginformation")));
+        }
+        long wait = postRateLimiter.tryAcquire(feedDto.getMemberId());
+        if (wait > 0) {
+            logger.warn("Member {} creates feeds too fast", feedDto.getMemberId());
+            return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(wait)))
+                    .body(error(HttpStatus.TOO_MANY_REQUESTS, "error.toomanyrequests")));
+        }
+        Feed newFeed = new Feed();
+        newFeed.setMemberId(feedDto.getMemberId());
+        newFeed.setText(HtmlUtils.htmlEscape(feedDto.getText()));
+        newFeed.setMediaUri(StringUtils.isEmpty(feedDto.getMediaUri()) ? "" : UriUtils.encodePath(feedDto.getMediaUri(), "UTF-8"));
+        newFeed.setPublishDate(new Date());
+
+        // queuing does not block, it is answered on the event loop like FeedController answers it
+        if (feedWriteBehind.isEnabled()) {
+            if (!feedWriteBehind.offer(newFeed)) {
+                logger.warn("Feed write queue is full");
+                return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(error(HttpStatus.SERVICE_UNAVAILABLE, "error.busy")));
+            }
+            FeedResponse feedResponse = new FeedResponse();
+            feedResponse.setStatus(HttpStatus.ACCEPTED.toString());
+            feedResponse.setData(feedMapper.map(newFeed));
+            return Mono.just(ResponseEntity.status(HttpStatus.ACCEPTED).body(feedResponse));
+        }
+
+        return reactiveFeedStore.save(newFeed)
+                .map(savedFeed -> {
+                    FeedResponse feedResponse = new FeedResponse();
+                    feedResponse.setStatus(HttpStatus.CREATED.toString());
+                    feedResponse.setData(feedPublisher.published(savedFeed));
+                    return feedResponse;
+                })
+                .onErrorResume(e -> {
+                    logger.error("Unable to save feed", e);
+                    return Mono.just(error(HttpStatus.BAD_REQUEST, "error.servererror"));
+                })
+                .map(feedResponse -> ResponseEntity.status(HttpStatus.CREATED).body(feedResponse));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Object> handle(Exception ex) {
+        logger.error("Error will be handled : " + ex.getClass(), ex);
+        if (ex instanceof NullPointerException) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+
+    // same validators as FeedController, through the exchange
+    private boolean checkNotModified(Long memberId, ServerWebExchange exchange, String cursor, Integer start) {
+        HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+        long stamp = feedVersions.stampOf(memberId);
+
+        HttpHeaders responseHeaders = exchange.getResponse().getHeaders();
+        responseHeaders.setCacheControl(feedVersions.getCacheControl());
+        responseHeaders.setVary(Arrays.asList(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+        responseHeaders.setLastModified(stamp);
+        return exchange.checkNotModified(VersionStamps.entityTagOf(stamp,
+                requestHeaders.getFirst(HttpHeaders.ACCEPT), requestHeaders.getFirst(HttpHeaders.ACCEPT_ENCODING),
+                cursor, start == null ? null : start.toString()));
+    }
+
+    private FeedResponse response(List<Feed> feeds) {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(feedMapper.mapAll(feeds));
+        feedResponse.setCursor(FeedController.nextCursor(feeds));
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    private static FeedResponse cachedResponse(RecentFeedsCache.Page page) {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setData(page.getFeeds());
+        feedResponse.setCursor(page.getNextCursor() == null ? null : page.getNextCursor().encode());
+        feedResponse.setStatus(HttpStatus.OK.toString());
+        return feedResponse;
+    }
+
+    private static FeedResponse error(HttpStatus status, String code) {
+        FeedResponse feedResponse = new FeedResponse();
+        feedResponse.setStatus(status.toString());
+        feedResponse.setData(code);
+        return feedResponse;
+    }
+}
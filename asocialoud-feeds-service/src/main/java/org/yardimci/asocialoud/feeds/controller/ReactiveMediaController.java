@@ -0,0 +1,47 @@
+package org.yardimci.asocialoud.feeds.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import org.yardimci.asocialoud.feeds.media.MediaStore;
+
+import java.io.File;
+
+/**
+ * Serving of stored media with the reactive profile. A file resource is written by netty with zero-copy file
+ * regions, ranges included, so only the headers of {@link MediaController} are set here. Uploads are servlet only.
+ */
+@RestController
+@RequestMapping("/api/feeds/media")
+@Profile("reactive")
+public class ReactiveMediaController {
+
+    @Autowired
+    private MediaStore mediaStore;
+
+    @GetMapping("/{name:.+}")
+    public ResponseEntity<Resource> serve(@PathVariable("name") String name, ServerWebExchange exchange) {
+        File file = mediaStore.find(name);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + MediaStore.hashOf(name) + "\"";
+        if (exchange.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, MediaController.CACHE_CONTROL)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(MediaType.parseMediaType(MediaStore.contentTypeOf(name)))
+                .body(new FileSystemResource(file));
+    }
+}
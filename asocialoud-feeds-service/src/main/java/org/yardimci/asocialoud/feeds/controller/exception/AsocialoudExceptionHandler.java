@@ -3,6 +3,7 @@ package org.yardimci.asocialoud.feeds.controller.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,6 +13,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 @ControllerAdvice
+@Profile("!reactive")
 public class AsocialoudExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(AsocialoudExceptionHandler.class);
@@ -0,0 +1,226 @@
+package org.yardimci.asocialoud.feeds.counters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yardimci.asocialoud.feeds.archive.FeedArchive;
+import org.yardimci.asocialoud.feeds.db.model.PostCounter;
+import org.yardimci.asocialoud.feeds.db.repository.PostCounterRepository;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Feed count of every member, read in constant time instead of counting feed rows.
+ * Counts live in memory, are bumped as feeds are created or deleted and are written to tbl_post_counters
+ * in batches every {@code flushMillis}. A member's count is read from that table the first time it is touched.
+ * Bumps not yet flushed are lost if the service dies, {@link #rebuild()} counts the feeds again.
+ */
+@Component
+public class PostCounters implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostCounters.class);
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private FeedStore feedStore;
+
+    @Autowired
+    private FeedArchive feedArchive;
+
+    @Autowired
+    private PostCounterRepository postCounterRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final long flushMillis;
+    private final int flushBatchSize;
+    private final boolean rebuildOnStart;
+
+    // bumps take a read lock of their member's stripe, a rebuild takes every write lock
+    private final ReadWriteLock[] stripes = new ReadWriteLock[STRIPES];
+
+    private final Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+    // members counted since the last flush
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService flusher;
+    private TransactionTemplate transactionTemplate;
+
+    public PostCounters(@Value("${asocialoud.counters.flush-millis:1000}") long flushMillis,
+                        @Value("${asocialoud.counters.flush-batch-size:500}") int flushBatchSize,
+                        @Value("${asocialoud.counters.rebuild-on-start:false}") boolean rebuildOnStart) {
+        this.flushMillis = flushMillis;
+        this.flushBatchSize = flushBatchSize;
+        this.rebuildOnStart = rebuildOnStart;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "post-counters-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // an empty table is a new database or one created before the counters
+        if (rebuildOnStart || postCounterRepository.count() == 0) {
+            rebuild();
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void increment(Long memberId) {
+        add(memberId, 1);
+    }
+
+    public long count(Long memberId) {
+        ReadWriteLock stripe = stripeOf(memberId);
+        stripe.readLock().lock();
+        try {
+            return counterOf(memberId).sum();
+        } finally {
+            stripe.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the feeds of every member again and replaces the stored counters. Bumps wait until it is done, a feed
+     * saved just before it started but bumped after it may be counted twice. Returns the number of members having feeds.
+     */
+    public synchronized int rebuild() {
+        for (ReadWriteLock stripe : stripes) {
+            stripe.writeLock().lock();
+        }
+        try {
+            long started = System.currentTimeMillis();
+            // archived feeds still count
+            Map<Long, Long> totals = feedArchive.countAll(feedStore::countAllByMemberId);
+
+            List<PostCounter> rows = new ArrayList<>(totals.size());
+            totals.forEach((memberId, count) -> rows.add(new PostCounter(memberId, count)));
+            transactionTemplate.execute(status -> {
+                postCounterRepository.deleteAllInBatch();
+                postCounterRepository.saveAll(rows);
+                return null;
+            });
+
+            counts.clear();
+            dirty.clear();
+            logger.info("Post counters of {} members rebuilt in {} ms", totals.size(), System.currentTimeMillis() - started);
+            return totals.size();
+        } finally {
+            for (ReadWriteLock stripe : stripes) {
+                stripe.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the counts changed since the last flush, {@code flushBatchSize} members per transaction.
+     */
+    public synchronized void flush() {
+        List<Long> memberIds = new ArrayList<>(dirty);
+        for (int from = 0; from < memberIds.size(); from += flushBatchSize) {
+            List<Long> batch = memberIds.subList(from, Math.min(from + flushBatchSize, memberIds.size()));
+
+            // removed before reading, so a bump racing with the read marks the member again
+            Map<Long, Long> values = new HashMap<>(batch.size() * 2);
+            for (Long memberId : batch) {
+                dirty.remove(memberId);
+                LongAdder counter = counts.get(memberId);
+                if (counter != null) {
+                    values.put(memberId, counter.sum());
+                }
+            }
+
+            try {
+                transactionTemplate.execute(status -> {
+                    List<PostCounter> rows = new ArrayList<>(values.size());
+                    for (PostCounter row : postCounterRepository.findAllById(values.keySet())) {
+                        row.setPostCount(values.remove(row.getMemberId()));
+                        rows.add(row);
+                    }
+                    values.forEach((memberId, count) -> rows.add(new PostCounter(memberId, count)));
+                    postCounterRepository.saveAll(rows);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                dirty.addAll(batch);
+                throw e;
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("members", counts.size());
+        stats.put("pending", dirty.size());
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flushQuietly();
+    }
+
+    private void add(Long memberId, long delta) {
+        ReadWriteLock stripe = stripeOf(memberId);
+        stripe.readLock().lock();
+        try {
+            counterOf(memberId).add(delta);
+            dirty.add(memberId);
+        } finally {
+            stripe.readLock().unlock();
+        }
+    }
+
+    // loaded once per member, a member without a row has no feeds. Read outside the map so that the query does not
+    // hold a bin of it, a counter loaded at the same time by another thread is dropped
+    private LongAdder counterOf(Long memberId) {
+        LongAdder counter = counts.get(memberId);
+        if (counter != null) {
+            return counter;
+        }
+        LongAdder loaded = new LongAdder();
+        postCounterRepository.findById(memberId).ifPresent(row -> loaded.add(row.getPostCount()));
+        counter = counts.putIfAbsent(memberId, loaded);
+        return counter != null ? counter : loaded;
+    }
+
+    private ReadWriteLock stripeOf(Long memberId) {
+        return stripes[(int) (memberId & (STRIPES - 1))];
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Unable to flush post counters", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.yardimci.asocialoud.feeds.counters;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relaud count of originals shown on timeline pages. Counts of the {@code maxOriginals} originals shown last are kept
+ * in memory, the ones a page misses are loaded with a single grouped count on the relaud index. A relaud bumps the
+ * count of its original only while it is kept, otherwise the next load counts it; one racing with that load may be
+ * missed until the count is dropped. Relauds moved to the archive are no longer counted.
+ */
+@Component
+public class RelaudCounters {
+
+    @Autowired
+    private FeedStore feedStore;
+
+    // original id -> {relaud count}, least recently shown ones are dropped first
+    private final Map<Long, long[]> counts;
+
+    public RelaudCounters(@Value("${asocialoud.relauds.counters.max-originals:100000}") int maxOriginals) {
+        this.counts = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxOriginals;
+            }
+        };
+    }
+
+    public void increment(Long originalId) {
+        synchronized (counts) {
+            long[] count = counts.get(originalId);
+            if (count != null) {
+                count[0]++;
+            }
+        }
+    }
+
+    // original id -> relaud count, 0 for originals never relauded
+    public Map<Long, Long> countsOf(Collection<Long> originalIds) {
+        Map<Long, Long> result = new HashMap<>(originalIds.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        synchronized (counts) {
+            for (Long originalId : originalIds) {
+                long[] count = counts.get(originalId);
+                if (count != null) {
+                    result.put(originalId, count[0]);
+                } else {
+                    missing.add(originalId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, Long> loaded = feedStore.countRelaudsOf(missing);
+        synchronized (counts) {
+            for (Long originalId : missing) {
+                long[] count = counts.computeIfAbsent(originalId, k -> new long[]{loaded.getOrDefault(k, 0L)});
+                result.put(originalId, count[0]);
+            }
+        }
+        return result;
+    }
+}
@@ -1,6 +1,9 @@
 package org.yardimci.asocialoud.feeds.db.model;
 
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.util.Date;
 
@@ -9,7 +12,12 @@ import java.util.Date;
 public class Feed {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "feed_id")
+    @GenericGenerator(name = "feed_id", strategy = "org.yardimci.asocialoud.commons.id.AsocialoudIdGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "seq_feeds"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @Column(name = "text", nullable = false, length = 256)
@@ -25,6 +33,10 @@ public class Feed {
     @Column(name = "publish_date", nullable = false)
     private Date publishDate;
 
+    // id of the original feed when this one is a relaud of it, text and media are copied from the original
+    @Column(name = "relaud_of", nullable = true)
+    private Long relaudOf;
+
     public Long getId() {
         return id;
     }
@@ -66,4 +78,12 @@ public class Feed {
     public void setPublishDate(Date publishDate) {
         this.publishDate = publishDate;
     }
+
+    public Long getRelaudOf() {
+        return relaudOf;
+    }
+
+    public void setRelaudOf(Long relaudOf) {
+        this.relaudOf = relaudOf;
+    }
 }
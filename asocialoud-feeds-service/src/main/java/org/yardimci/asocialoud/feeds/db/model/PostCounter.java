@@ -0,0 +1,55 @@
+package org.yardimci.asocialoud.feeds.db.model;
+
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+
+/**
+ * Number of feeds of a member, kept up to date by {@link org.yardimci.asocialoud.feeds.counters.PostCounters}.
+ */
+@Entity
+@Table(name = "tbl_post_counters")
+public class PostCounter implements Persistable<Long> {
+
+    @Id
+    @Column(name = "member_id", nullable = false)
+    private Long memberId;
+
+    @Column(name = "post_count", nullable = false)
+    private long postCount;
+
+    // ids are assigned, so tell spring data to persist new rows instead of merging them
+    @Transient
+    private boolean newCounter;
+
+    public PostCounter() {
+    }
+
+    public PostCounter(Long memberId, long postCount) {
+        this.memberId = memberId;
+        this.postCount = postCount;
+        this.newCounter = true;
+    }
+
+    @Override
+    public Long getId() {
+        return memberId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newCounter;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public long getPostCount() {
+        return postCount;
+    }
+
+    public void setPostCount(long postCount) {
+        this.postCount = postCount;
+    }
+}
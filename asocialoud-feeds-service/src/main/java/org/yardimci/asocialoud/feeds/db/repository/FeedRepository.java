@@ -1,9 +1,14 @@
 package org.yardimci.asocialoud.feeds.db.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.yardimci.asocialoud.feeds.db.model.Feed;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -13,10 +18,62 @@ public interface FeedRepository extends PagingAndSortingRepository<Feed, Long> {
 
     Long countByMemberId(Long memberId);
 
+    // member id, feed count
+    @Query("select f.memberId, count(f) from Feed f group by f.memberId")
+    List<Object[]> countGroupByMemberId();
+
     List<Feed> findAllByMemberIdInAndPublishDateAfterOrderByPublishDateDesc(Long[] memberIds, Date publishDateAfter, Pageable pageable);
 
     List<Feed> findAllByMemberIdOrderByPublishDateDesc(Long memberId, Pageable pageable);
 
     List<Feed> findAllByMemberIdInOrderByPublishDateDesc(Long[] memberIds, Pageable pageable);
 
+    List<Feed> findAllByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // keyset pages : always request page 0, the position is given by (publishDate, id) of the last seen feed
+
+    @Query("select f from Feed f where f.memberId = :memberId order by f.publishDate desc, f.id desc")
+    List<Feed> findKeysetPageByMemberId(@Param("memberId") Long memberId, Pageable pageable);
+
+    @Query("select f from Feed f where f.memberId = :memberId " +
+            "and (f.publishDate < :publishDate or (f.publishDate = :publishDate and f.id < :id)) " +
+            "order by f.publishDate desc, f.id desc")
+    List<Feed> findKeysetPageByMemberIdBefore(@Param("memberId") Long memberId, @Param("publishDate") Date publishDate,
+                                              @Param("id") Long id, Pageable pageable);
+
+    @Query("select f from Feed f where f.memberId in :memberIds and f.publishDate > :publishedAfter " +
+            "order by f.publishDate desc, f.id desc")
+    List<Feed> findKeysetPageByMemberIdIn(@Param("memberIds") Collection<Long> memberIds, @Param("publishedAfter") Date publishedAfter,
+                                          Pageable pageable);
+
+    @Query("select f from Feed f where f.memberId in :memberIds and f.publishDate > :publishedAfter " +
+            "and (f.publishDate < :publishDate or (f.publishDate = :publishDate and f.id < :id)) " +
+            "order by f.publishDate desc, f.id desc")
+    List<Feed> findKeysetPageByMemberIdInBefore(@Param("memberIds") Collection<Long> memberIds, @Param("publishedAfter") Date publishedAfter,
+                                                @Param("publishDate") Date publishDate, @Param("id") Long id, Pageable pageable);
+
+    // relauds, counted by original and looked up by relauding member
+
+    @Query("select f.relaudOf, count(f) from Feed f where f.relaudOf in :feedIds group by f.relaudOf")
+    List<Object[]> countGroupByRelaudOf(@Param("feedIds") Collection<Long> feedIds);
+
+    boolean existsByMemberIdAndRelaudOf(Long memberId, Long relaudOf);
+
+    // months moved to the archive, see FeedArchiver
+
+    @Query("select min(f.publishDate) from Feed f")
+    Date findOldestPublishDate();
+
+    @Query("select distinct f.memberId from Feed f where f.publishDate >= :from and f.publishDate < :to order by f.memberId")
+    List<Long> findMemberIdsPublishedBetween(@Param("from") Date from, @Param("to") Date to);
+
+    @Query("select f from Feed f where f.memberId = :memberId and f.publishDate >= :from and f.publishDate < :to " +
+            "order by f.publishDate desc, f.id desc")
+    List<Feed> findAllOfMemberPublishedBetween(@Param("memberId") Long memberId, @Param("from") Date from, @Param("to") Date to);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Feed f where f.memberId in :memberIds and f.publishDate >= :from and f.publishDate < :to")
+    int deleteAllOfMembersPublishedBetween(@Param("memberIds") Collection<Long> memberIds, @Param("from") Date from, @Param("to") Date to);
+
 }
@@ -0,0 +1,8 @@
+package org.yardimci.asocialoud.feeds.db.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.yardimci.asocialoud.feeds.db.model.PostCounter;
+
+public interface PostCounterRepository extends JpaRepository<PostCounter, Long> {
+
+}
@@ -0,0 +1,236 @@
+package org.yardimci.asocialoud.feeds.db.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records in fixed-size, memory-mapped segment files.
+ * A record is [int payload length | int crc32 of payload | payload]; a zero length marks the end of a segment.
+ * Positions are global: segment number x segment size + offset in the segment.
+ * The segment size is kept in a marker file of the directory, a log is never opened with another size
+ * since its file names and positions would no longer match.
+ * Not thread safe for appends, callers serialize them.
+ */
+class FeedLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedLog.class);
+
+    private static final int HEADER = 2 * Integer.BYTES;
+    private static final String SUFFIX = ".log";
+    private static final String SEGMENT_SIZE_MARKER = "segment-size";
+
+    interface RecordVisitor {
+        void visit(long position, ByteBuffer payload);
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final boolean syncWrites;
+
+    // segment number -> segment, appended to while readers look up older ones
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    private long writePosition;
+    // first segment appended to since the last force, -1 when there is none
+    private int unsynced = -1;
+
+    FeedLog(File directory, int segmentSize, boolean syncWrites) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * Opens the existing segments and hands every intact record to the visitor, in append order.
+     * Everything after the first torn or corrupt record is dropped, as it can only come from an interrupted write.
+     */
+    void recover(RecordVisitor visitor) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create feed log directory " + directory);
+        }
+        checkSegmentSize();
+
+        long records = 0;
+        for (int number = 0; segmentFile(number).exists(); number++) {
+            Segment segment = open(number);
+            segments.add(segment);
+
+            int offset = 0;
+            while (offset + HEADER <= segmentSize) {
+                int length = segment.buffer.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || offset + HEADER + length > segmentSize || segment.crcOf(offset + HEADER, length) != segment.buffer.getInt(offset + Integer.BYTES)) {
+                    logger.warn("Torn record at {} of {}, truncating the log", offset, segmentFile(number));
+                    segment.zero(offset);
+                    deleteSegmentsAfter(number);
+                    writePosition = segment.base + offset;
+                    logger.info("Feed log recovered, {} records", records);
+                    return;
+                }
+                visitor.visit(segment.base + offset, segment.slice(offset + HEADER, length));
+                records++;
+                offset += HEADER + length;
+            }
+            writePosition = segment.base + offset;
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(open(0));
+            writePosition = 0;
+        }
+        logger.info("Feed log recovered, {} records", records);
+    }
+
+    long append(ByteBuffer payload) throws IOException {
+        return append(payload, syncWrites);
+    }
+
+    // appends without syncing when sync is false, for batches synced once by sync()
+    long append(ByteBuffer payload, boolean sync) throws IOException {
+        int length = payload.remaining();
+        if (HEADER + length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a segment");
+        }
+
+        Segment segment = segments.get(segments.size() - 1);
+        int offset = (int) (writePosition - segment.base);
+        if (offset + HEADER + length > segmentSize) {
+            // rest of the segment stays zero, which readers take as its end
+            segment = open(segments.size());
+            segments.add(segment);
+            offset = 0;
+        }
+
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset + HEADER);
+        target.put(payload.duplicate());
+        target.putInt(offset + Integer.BYTES, segment.crcOf(offset + HEADER, length));
+        // length goes last, a record without it is never read back
+        target.putInt(offset, length);
+        if (sync) {
+            segment.buffer.force();
+        } else if (unsynced < 0) {
+            unsynced = (int) (segment.base / segmentSize);
+        }
+
+        long position = segment.base + offset;
+        writePosition = position + HEADER + length;
+        return position;
+    }
+
+    // forces the records appended without syncing, when writes are synced at all
+    void sync() {
+        if (!syncWrites || unsynced < 0) {
+            return;
+        }
+        for (int number = unsynced; number < segments.size(); number++) {
+            segments.get(number).buffer.force();
+        }
+        unsynced = -1;
+    }
+
+    ByteBuffer read(long position) {
+        Segment segment = segments.get((int) (position / segmentSize));
+        int offset = (int) (position % segmentSize);
+        return segment.slice(offset + HEADER, segment.buffer.getInt(offset));
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    private void checkSegmentSize() throws IOException {
+        File marker = new File(directory, SEGMENT_SIZE_MARKER);
+        long written;
+        if (marker.exists()) {
+            written = Long.parseLong(new String(Files.readAllBytes(marker.toPath()), StandardCharsets.US_ASCII).trim());
+        } else {
+            // logs older than the marker : every segment file has the length of a segment
+            written = segmentFile(0).exists() ? segmentFile(0).length() : segmentSize;
+            Files.write(marker.toPath(), Long.toString(written).getBytes(StandardCharsets.US_ASCII));
+        }
+        if (written != segmentSize) {
+            throw new IOException("Feed log " + directory + " was written with segments of " + written
+                    + " bytes, asocialoud.feeds.log.segment-size is " + segmentSize);
+        }
+    }
+
+    private Segment open(int number) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile(number), "rw");
+        try {
+            if (file.length() < segmentSize) {
+                file.setLength(segmentSize);
+            }
+            FileChannel channel = file.getChannel();
+            return new Segment((long) number * segmentSize, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void deleteSegmentsAfter(int number) {
+        for (int next = number + 1; segmentFile(next).exists(); next++) {
+            if (!segmentFile(next).delete()) {
+                logger.warn("Unable to delete {}", segmentFile(next));
+            }
+        }
+    }
+
+    private File segmentFile(int number) {
+        return new File(directory, String.format("%020d%s", (long) number * segmentSize, SUFFIX));
+    }
+
+    private static class Segment {
+        private final long base;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        Segment(long base, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        ByteBuffer slice(int offset, int length) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(offset).limit(offset + length);
+            return slice.slice().asReadOnlyBuffer();
+        }
+
+        int crcOf(int offset, int length) {
+            CRC32 crc = new CRC32();
+            ByteBuffer data = buffer.duplicate();
+            data.position(offset).limit(offset + length);
+            crc.update(data);
+            return (int) crc.getValue();
+        }
+
+        void zero(int offset) {
+            for (int i = offset; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+}
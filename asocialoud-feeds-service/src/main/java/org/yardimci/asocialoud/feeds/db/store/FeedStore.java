@@ -0,0 +1,51 @@
+package org.yardimci.asocialoud.feeds.db.store;
+
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage engine of feeds, selected with {@code asocialoud.feeds.store} : {@code jpa} (default) or {@code log}.
+ * Listings are newest first, ordered by (publish date, id).
+ */
+public interface FeedStore {
+
+    Feed save(Feed feed);
+
+    // saved together, in one transaction or with one sync, ids already set are kept
+    List<Feed> saveAll(List<Feed> feeds);
+
+    // found feeds in no particular order, unknown ids are skipped
+    List<Feed> findAllById(Collection<Long> ids);
+
+    long countByMemberId(Long memberId);
+
+    // member id -> feed count of every member having feeds, scans all feeds
+    Map<Long, Long> countAllByMemberId();
+
+    List<Feed> findNewest(Long memberId, int count);
+
+    // feeds strictly older than the cursor
+    List<Feed> findBefore(Long memberId, FeedCursor cursor, int count);
+
+    // offset paging, kept for older clients
+    List<Feed> findPage(Long memberId, int page, int size);
+
+    List<Feed> findNewestOf(Collection<Long> memberIds, Date publishedAfter, int count);
+
+    // feeds of the members strictly older than the cursor
+    List<Feed> findBeforeOf(Collection<Long> memberIds, Date publishedAfter, FeedCursor cursor, int count);
+
+    // feeds with a greater id in id order, for rebuilding what is derived from feeds
+    List<Feed> findAfter(long id, int count);
+
+    // original id -> relaud count, of the given originals having relauds
+    Map<Long, Long> countRelaudsOf(Collection<Long> feedIds);
+
+    boolean hasRelauded(Long memberId, Long feedId);
+
+}
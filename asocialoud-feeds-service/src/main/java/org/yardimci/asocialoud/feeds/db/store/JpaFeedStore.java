@@ -0,0 +1,118 @@
+package org.yardimci.asocialoud.feeds.db.store;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "asocialoud.feeds.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaFeedStore implements FeedStore {
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Feed save(Feed feed) {
+        return feedRepository.save(feed);
+    }
+
+    // inserts go out in jdbc batches on the flush, one commit for all of them
+    @Override
+    @Transactional
+    public List<Feed> saveAll(List<Feed> feeds) {
+        // persist takes a feed with an id for a detached one, and the repository would merge it row by row
+        Session session = entityManager.unwrap(Session.class);
+        for (Feed feed : feeds) {
+            session.save(feed);
+        }
+        session.flush();
+        return feeds;
+    }
+
+    @Override
+    public List<Feed> findAllById(Collection<Long> ids) {
+        List<Feed> feeds = new ArrayList<>(ids.size());
+        feedRepository.findAllById(ids).forEach(feeds::add);
+        return feeds;
+    }
+
+    @Override
+    public long countByMemberId(Long memberId) {
+        return feedRepository.countByMemberId(memberId);
+    }
+
+    @Override
+    public Map<Long, Long> countAllByMemberId() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : feedRepository.countGroupByMemberId()) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Override
+    public List<Feed> findNewest(Long memberId, int count) {
+        return feedRepository.findKeysetPageByMemberId(memberId, PageRequest.of(0, count));
+    }
+
+    @Override
+    public List<Feed> findBefore(Long memberId, FeedCursor cursor, int count) {
+        return feedRepository.findKeysetPageByMemberIdBefore(memberId, cursor.getPublishDate(), cursor.getId(), PageRequest.of(0, count));
+    }
+
+    @Override
+    public List<Feed> findPage(Long memberId, int page, int size) {
+        return feedRepository.findAllByMemberIdOrderByPublishDateDesc(memberId, PageRequest.of(page, size));
+    }
+
+    @Override
+    public List<Feed> findNewestOf(Collection<Long> memberIds, Date publishedAfter, int count) {
+        return feedRepository.findKeysetPageByMemberIdIn(memberIds, publishedAfter, PageRequest.of(0, count));
+    }
+
+    @Override
+    public List<Feed> findBeforeOf(Collection<Long> memberIds, Date publishedAfter, FeedCursor cursor, int count) {
+        return feedRepository.findKeysetPageByMemberIdInBefore(memberIds, publishedAfter, cursor.getPublishDate(), cursor.getId(),
+                PageRequest.of(0, count));
+    }
+
+    @Override
+    public List<Feed> findAfter(long id, int count) {
+        return feedRepository.findAllByIdGreaterThanOrderByIdAsc(id, PageRequest.of(0, count));
+    }
+
+    @Override
+    public Map<Long, Long> countRelaudsOf(Collection<Long> feedIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (feedIds.isEmpty()) {
+            return counts;
+        }
+        for (Object[] row : feedRepository.countGroupByRelaudOf(feedIds)) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Override
+    public boolean hasRelauded(Long memberId, Long feedId) {
+        return feedRepository.existsByMemberIdAndRelaudOf(memberId, feedId);
+    }
+}
@@ -0,0 +1,451 @@
+package org.yardimci.asocialoud.feeds.db.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.id.AsocialoudIdGenerator;
+import org.yardimci.asocialoud.commons.id.IdAllocator;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Feeds in a memory-mapped append-only {@link FeedLog}. Every record points back to the previous
+ * record of the same member, so a member's feeds are read newest first by following the chain from
+ * its newest record. A sparse index of every {@code indexInterval}th record lets cursor reads start
+ * close to the cursor instead of at the newest feed. Indexes are in memory and rebuilt from the log on start.
+ */
+@Component
+@ConditionalOnProperty(name = "asocialoud.feeds.store", havingValue = "log")
+public class LogFeedStore implements FeedStore, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogFeedStore.class);
+
+    private static final long NONE = -1L;
+
+    private final FeedLog log;
+    private final int indexInterval;
+    private final IdAllocator idAllocator;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // member id -> chain head and sparse index, feed id -> record position
+    private final Map<Long, MemberIndex> members = new HashMap<>();
+    private final NavigableMap<Long, Long> positions = new TreeMap<>();
+    // original id -> members who relauded it
+    private final Map<Long, Set<Long>> relauders = new HashMap<>();
+
+    public LogFeedStore(@Value("${asocialoud.feeds.log.directory:${user.home}/asocialoud-feeds-log}") String directory,
+                        @Value("${asocialoud.feeds.log.segment-size:67108864}") int segmentSize,
+                        @Value("${asocialoud.feeds.log.sync-writes:false}") boolean syncWrites,
+                        @Value("${asocialoud.feeds.log.index-interval:16}") int indexInterval,
+                        @Value("${spring.jpa.properties.asocialoud.id.node:0}") int node) {
+        this.log = new FeedLog(new File(directory), segmentSize, syncWrites);
+        this.indexInterval = indexInterval;
+        // shared with the write-behind queue, which hands out ids before feeds reach the store
+        this.idAllocator = AsocialoudIdGenerator.allocatorOf(node);
+
+        logger.info("Opening feed log at {}", directory);
+        try {
+            log.recover((position, payload) -> index(decode(payload), position));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open feed log at " + directory, e);
+        }
+    }
+
+    @Override
+    public Feed save(Feed feed) {
+        lock.writeLock().lock();
+        try {
+            if (feed.getId() == null) {
+                feed.setId(idAllocator.nextId());
+            }
+            MemberIndex member = members.get(feed.getMemberId());
+            long position = log.append(encode(feed, member == null ? NONE : member.head));
+            index(feed, position);
+            return feed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append feed of " + feed.getMemberId(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // one sync for the whole batch
+    @Override
+    public List<Feed> saveAll(List<Feed> feeds) {
+        lock.writeLock().lock();
+        try {
+            for (Feed feed : feeds) {
+                if (feed.getId() == null) {
+                    feed.setId(idAllocator.nextId());
+                }
+                MemberIndex member = members.get(feed.getMemberId());
+                index(feed, log.append(encode(feed, member == null ? NONE : member.head), false));
+            }
+            log.sync();
+            return feeds;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append " + feeds.size() + " feeds", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Feed> findAllById(Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Feed> feeds = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Long position = positions.get(id);
+                if (position != null) {
+                    feeds.add(decode(log.read(position)));
+                }
+            }
+            return feeds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countByMemberId(Long memberId) {
+        lock.readLock().lock();
+        try {
+            MemberIndex member = members.get(memberId);
+            return member == null ? 0 : member.count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, Long> countAllByMemberId() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> counts = new HashMap<>(members.size() * 2);
+            members.forEach((memberId, member) -> counts.put(memberId, member.count));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Feed> findNewest(Long memberId, int count) {
+        return findPage(memberId, 0, count);
+    }
+
+    @Override
+    public List<Feed> findBefore(Long memberId, FeedCursor cursor, int count) {
+        lock.readLock().lock();
+        try {
+            MemberIndex member = members.get(memberId);
+            List<Feed> feeds = new ArrayList<>(count);
+            if (member == null) {
+                return feeds;
+            }
+            Chain chain = new Chain(member.seek(cursor.getPublishTime(), cursor.getId()));
+            for (Feed feed = chain.next(); feed != null && feeds.size() < count; feed = chain.next()) {
+                if (isBefore(feed, cursor.getPublishTime(), cursor.getId())) {
+                    feeds.add(feed);
+                }
+            }
+            return feeds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Feed> findPage(Long memberId, int page, int size) {
+        lock.readLock().lock();
+        try {
+            MemberIndex member = members.get(memberId);
+            List<Feed> feeds = new ArrayList<>(size);
+            if (member == null) {
+                return feeds;
+            }
+            Chain chain = new Chain(member.head);
+            chain.skip((long) page * size);
+            for (Feed feed = chain.next(); feed != null && feeds.size() < size; feed = chain.next()) {
+                feeds.add(feed);
+            }
+            return feeds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Feed> findNewestOf(Collection<Long> memberIds, Date publishedAfter, int count) {
+        return findNewestOf(memberIds, publishedAfter, null, count);
+    }
+
+    @Override
+    public List<Feed> findBeforeOf(Collection<Long> memberIds, Date publishedAfter, FeedCursor cursor, int count) {
+        return findNewestOf(memberIds, publishedAfter, cursor, count);
+    }
+
+    private List<Feed> findNewestOf(Collection<Long> memberIds, Date publishedAfter, FeedCursor cursor, int count) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Chain> heap = new PriorityQueue<>(Math.max(1, memberIds.size()),
+                    (a, b) -> isBefore(a.peek(), b.peek().getPublishDate().getTime(), b.peek().getId()) ? 1 : -1);
+            for (Long memberId : memberIds) {
+                MemberIndex member = members.get(memberId);
+                if (member != null) {
+                    Chain chain = new Chain(cursor == null ? member.head : member.seek(cursor.getPublishTime(), cursor.getId()));
+                    // a seek lands at or above the cursor
+                    while (cursor != null && chain.peek() != null && !isBefore(chain.peek(), cursor.getPublishTime(), cursor.getId())) {
+                        chain.next();
+                    }
+                    if (chain.peek() != null) {
+                        heap.add(chain);
+                    }
+                }
+            }
+
+            List<Feed> feeds = new ArrayList<>(count);
+            while (!heap.isEmpty() && feeds.size() < count) {
+                Chain chain = heap.poll();
+                Feed feed = chain.next();
+                if (!feed.getPublishDate().after(publishedAfter)) {
+                    // every feed left in this chain is older
+                    continue;
+                }
+                feeds.add(feed);
+                if (chain.peek() != null) {
+                    heap.add(chain);
+                }
+            }
+            return feeds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Feed> findAfter(long id, int count) {
+        lock.readLock().lock();
+        try {
+            List<Feed> feeds = new ArrayList<>(count);
+            for (Long position : positions.tailMap(id, false).values()) {
+                if (feeds.size() >= count) {
+                    break;
+                }
+                feeds.add(decode(log.read(position)));
+            }
+            return feeds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, Long> countRelaudsOf(Collection<Long> feedIds) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> counts = new HashMap<>();
+            for (Long feedId : feedIds) {
+                Set<Long> members = relauders.get(feedId);
+                if (members != null) {
+                    counts.put(feedId, (long) members.size());
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean hasRelauded(Long memberId, Long feedId) {
+        lock.readLock().lock();
+        try {
+            Set<Long> members = relauders.get(feedId);
+            return members != null && members.contains(memberId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Feed feed, long position) {
+        MemberIndex member = members.computeIfAbsent(feed.getMemberId(), k -> new MemberIndex());
+        if (member.count % indexInterval == 0) {
+            member.addSparse(feed.getPublishDate().getTime(), feed.getId(), position);
+        }
+        member.head = position;
+        member.count++;
+        positions.put(feed.getId(), position);
+        if (feed.getRelaudOf() != null) {
+            relauders.computeIfAbsent(feed.getRelaudOf(), k -> new HashSet<>()).add(feed.getMemberId());
+        }
+    }
+
+    private static boolean isBefore(Feed feed, long publishTime, long id) {
+        long time = feed.getPublishDate().getTime();
+        return time < publishTime || (time == publishTime && feed.getId() < id);
+    }
+
+    // id, member id, publish time, previous record of the member, text, media uri, then the original id for relauds only,
+    // so records written before relauds read the same
+    private static ByteBuffer encode(Feed feed, long previous) {
+        byte[] text = feed.getText().getBytes(StandardCharsets.UTF_8);
+        byte[] mediaUri = feed.getMediaUri() == null ? null : feed.getMediaUri().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES + 2 * Integer.BYTES + text.length + (mediaUri == null ? 0 : mediaUri.length)
+                + (feed.getRelaudOf() == null ? 0 : Long.BYTES));
+        buffer.putLong(feed.getId()).putLong(feed.getMemberId()).putLong(feed.getPublishDate().getTime()).putLong(previous);
+        buffer.putInt(text.length).put(text);
+        buffer.putInt(mediaUri == null ? -1 : mediaUri.length);
+        if (mediaUri != null) {
+            buffer.put(mediaUri);
+        }
+        if (feed.getRelaudOf() != null) {
+            buffer.putLong(feed.getRelaudOf());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Feed decode(ByteBuffer payload) {
+        Feed feed = new Feed();
+        feed.setId(payload.getLong(0));
+        feed.setMemberId(payload.getLong(Long.BYTES));
+        feed.setPublishDate(new Date(payload.getLong(2 * Long.BYTES)));
+
+        ByteBuffer strings = payload.duplicate();
+        strings.position(4 * Long.BYTES);
+        feed.setText(readString(strings));
+        feed.setMediaUri(readString(strings));
+        if (strings.remaining() >= Long.BYTES) {
+            feed.setRelaudOf(strings.getLong());
+        }
+        return feed;
+    }
+
+    private static long previousOf(ByteBuffer payload) {
+        return payload.getLong(3 * Long.BYTES);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Newest record of a member and every {@code indexInterval}th record of it (publish time, id, position), in append order.
+     */
+    private static class MemberIndex {
+        private long head = NONE;
+        private long count;
+
+        private long[] sparse = new long[3 * 4];
+        private int sparseSize;
+
+        void addSparse(long publishTime, long id, long position) {
+            if (3 * (sparseSize + 1) > sparse.length) {
+                sparse = Arrays.copyOf(sparse, sparse.length * 2);
+            }
+            sparse[3 * sparseSize] = publishTime;
+            sparse[3 * sparseSize + 1] = id;
+            sparse[3 * sparseSize + 2] = position;
+            sparseSize++;
+        }
+
+        /**
+         * Returns a record to start a newest-first scan for feeds older than the given position. It is one sparse
+         * entry past the first one newer than the position, so that feeds appended slightly out of order are not missed.
+         */
+        long seek(long publishTime, long id) {
+            int low = 0;
+            int high = sparseSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                long time = sparse[3 * mid];
+                if (time < publishTime || (time == publishTime && sparse[3 * mid + 1] < id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low + 1 < sparseSize ? sparse[3 * (low + 1) + 2] : head;
+        }
+    }
+
+    // a member's records newest first, following the back pointers
+    private class Chain {
+        private long position;
+        private Feed next;
+
+        Chain(long position) {
+            this.position = position;
+        }
+
+        Feed peek() {
+            if (next == null && position != NONE) {
+                ByteBuffer payload = log.read(position);
+                next = decode(payload);
+                position = previousOf(payload);
+            }
+            return next;
+        }
+
+        Feed next() {
+            Feed feed = peek();
+            next = null;
+            return feed;
+        }
+
+        void skip(long count) {
+            for (long i = 0; i < count; i++) {
+                if (next != null) {
+                    next = null;
+                } else if (position != NONE) {
+                    position = previousOf(log.read(position));
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.yardimci.asocialoud.feeds.db.store;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking view of the {@link FeedStore} for the reactive endpoints. There is no reactive driver for
+ * this database, so store calls run on a fixed scheduler sized like the connection pool and event loop
+ * threads never wait on jdbc; with the log engine the calls are memory reads and return right away.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveFeedStore implements DisposableBean {
+
+    @Autowired
+    private FeedStore feedStore;
+
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+
+    public ReactiveFeedStore(@Value("${asocialoud.reactive.store-threads:10}") int threads) {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.scheduler = Schedulers.fromExecutorService(executor);
+    }
+
+    public Mono<Feed> save(Feed feed) {
+        return call(() -> feedStore.save(feed));
+    }
+
+    public Flux<Feed> findNewest(Long memberId, int count) {
+        return call(() -> feedStore.findNewest(memberId, count)).flatMapIterable(feeds -> feeds);
+    }
+
+    public Flux<Feed> findBefore(Long memberId, FeedCursor cursor, int count) {
+        return call(() -> feedStore.findBefore(memberId, cursor, count)).flatMapIterable(feeds -> feeds);
+    }
+
+    public Flux<Feed> findPage(Long memberId, int page, int size) {
+        return call(() -> feedStore.findPage(memberId, page, size)).flatMapIterable(feeds -> feeds);
+    }
+
+    // for collaborators that read the store themselves, like the timeline services
+    public <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,52 @@
+package org.yardimci.asocialoud.feeds.dto;
+
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset position in a newest-first feed listing: the (publish date, id) of the last
+ * feed a client has seen. The next page holds the feeds strictly older than this position.
+ */
+public final class FeedCursor {
+
+    private final long publishTime;
+    private final long id;
+
+    public FeedCursor(long publishTime, long id) {
+        this.publishTime = publishTime;
+        this.id = id;
+    }
+
+    public static FeedCursor of(Feed feed) {
+        return new FeedCursor(feed.getPublishDate().getTime(), feed.getId());
+    }
+
+    public static FeedCursor decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != 2 * Long.BYTES) {
+            throw new IllegalArgumentException("Invalid feed cursor : " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new FeedCursor(buffer.getLong(), buffer.getLong());
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES).putLong(publishTime).putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public long getPublishTime() {
+        return publishTime;
+    }
+
+    public Date getPublishDate() {
+        return new Date(publishTime);
+    }
+
+    public long getId() {
+        return id;
+    }
+}
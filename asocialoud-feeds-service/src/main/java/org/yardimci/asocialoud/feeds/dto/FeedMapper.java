@@ -0,0 +1,21 @@
+package org.yardimci.asocialoud.feeds.dto;
+
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.mapping.Mapper;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+@Component
+public class FeedMapper implements Mapper<Feed, FeedResponseDto> {
+
+    @Override
+    public FeedResponseDto map(Feed source) {
+        FeedResponseDto dto = new FeedResponseDto();
+        dto.setId(source.getId());
+        dto.setText(source.getText());
+        dto.setMediaUri(source.getMediaUri());
+        dto.setMemberId(source.getMemberId());
+        dto.setPublishDate(source.getPublishDate());
+        dto.setRelaudOf(source.getRelaudOf());
+        return dto;
+    }
+}
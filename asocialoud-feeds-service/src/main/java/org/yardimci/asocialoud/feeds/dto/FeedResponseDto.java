@@ -3,10 +3,24 @@ package org.yardimci.asocialoud.feeds.dto;
 import java.util.Date;
 
 public class FeedResponseDto {
+    private Long id;
     private String text;
     private String mediaUri;
     private Long memberId;
     private Date publishDate;
+    // set on relauds shown in a timeline, which carry the original feed
+    private Long relaudedBy;
+    private Long relaudOf;
+    // relauds of the original, set on timeline pages only
+    private Long relauds;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
 
     public String getText() {
         return text;
@@ -39,4 +53,28 @@ public class FeedResponseDto {
     public void setPublishDate(Date publishDate) {
         this.publishDate = publishDate;
     }
+
+    public Long getRelaudedBy() {
+        return relaudedBy;
+    }
+
+    public void setRelaudedBy(Long relaudedBy) {
+        this.relaudedBy = relaudedBy;
+    }
+
+    public Long getRelaudOf() {
+        return relaudOf;
+    }
+
+    public void setRelaudOf(Long relaudOf) {
+        this.relaudOf = relaudOf;
+    }
+
+    public Long getRelauds() {
+        return relauds;
+    }
+
+    public void setRelauds(Long relauds) {
+        this.relauds = relauds;
+    }
 }
@@ -0,0 +1,114 @@
+package org.yardimci.asocialoud.feeds.follow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves the members a member follows by asking the members service, keeping the answers in a local cache.
+ */
+@Component
+public class FollowGraphClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraphClient.class);
+
+    private final RestTemplate restTemplate;
+
+    private final String membersUrl;
+
+    private final FollowingsCache followingsCache;
+
+    // followings whose relauds the member does not take
+    private final FollowingsCache relaudsMutedCache;
+
+    public FollowGraphClient(RestTemplateBuilder restTemplateBuilder,
+                             @Value("${asocialoud.members.url:http://localhost:8070}") String membersUrl,
+                             @Value("${asocialoud.followings.cache.max-size:10000}") int cacheMaxSize,
+                             @Value("${asocialoud.followings.cache.ttl-seconds:60}") int cacheTtlSeconds) {
+        this.restTemplate = restTemplateBuilder.setConnectTimeout(500).setReadTimeout(2000).build();
+        this.membersUrl = membersUrl;
+        this.followingsCache = new FollowingsCache(cacheMaxSize, cacheTtlSeconds * 1000L);
+        this.relaudsMutedCache = new FollowingsCache(cacheMaxSize, cacheTtlSeconds * 1000L);
+    }
+
+    /**
+     * Returns the ids of the members followed by the given member. The caller's authorization header
+     * is passed on, since the members service only answers authenticated requests.
+     */
+    public Set<Long> followingsOf(Long memberId, String authorization) {
+        Set<Long> followings = followingsCache.get(memberId);
+        if (followings != null) {
+            return followings;
+        }
+
+        logger.debug("Fetching followings of {} from members service", memberId);
+        followings = fetch("/api/follow/of/id/{memberId}/ids", memberId, authorization);
+        followingsCache.put(memberId, followings);
+        return followings;
+    }
+
+    // ids of the followings the member turned relauding off for
+    public Set<Long> relaudsMutedOf(Long memberId, String authorization) {
+        Set<Long> muted = relaudsMutedCache.get(memberId);
+        if (muted != null) {
+            return muted;
+        }
+
+        logger.debug("Fetching relauds muted by {} from members service", memberId);
+        muted = fetch("/api/follow/of/id/{memberId}/relauds-muted", memberId, authorization);
+        relaudsMutedCache.put(memberId, muted);
+        return muted;
+    }
+
+    private Set<Long> fetch(String path, Long memberId, String authorization) {
+        HttpHeaders headers = new HttpHeaders();
+        if (!StringUtils.isEmpty(authorization)) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        FollowingIdsResponse response = restTemplate.exchange(membersUrl + path,
+                HttpMethod.GET, new HttpEntity<>(headers), FollowingIdsResponse.class, memberId).getBody();
+
+        return response == null || response.getData() == null ?
+                Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(response.getData()));
+    }
+
+    public void invalidate(Long memberId) {
+        logger.debug("Invalidating followings of {}", memberId);
+        followingsCache.invalidate(memberId);
+        relaudsMutedCache.invalidate(memberId);
+    }
+
+    // envelope returned by the members service
+    public static class FollowingIdsResponse {
+        private String status;
+        private List<Long> data;
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public List<Long> getData() {
+            return data;
+        }
+
+        public void setData(List<Long> data) {
+            this.data = data;
+        }
+    }
+}
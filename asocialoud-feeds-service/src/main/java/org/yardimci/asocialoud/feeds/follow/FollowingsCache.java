@@ -0,0 +1,63 @@
+package org.yardimci.asocialoud.feeds.follow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Size bounded, least recently used cache of member followings whose entries expire after a fixed time.
+ */
+public class FollowingsCache {
+
+    private final long ttlMillis;
+
+    private final Map<Long, CachedFollowings> entries;
+
+    public FollowingsCache(int maxSize, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Long, CachedFollowings>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedFollowings> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized Set<Long> get(Long memberId) {
+        CachedFollowings cached = entries.get(memberId);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expiresAt < System.currentTimeMillis()) {
+            entries.remove(memberId);
+            return null;
+        }
+        return cached.followings;
+    }
+
+    public synchronized void put(Long memberId, Set<Long> followings) {
+        entries.put(memberId, new CachedFollowings(followings, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void invalidate(Long memberId) {
+        entries.remove(memberId);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class CachedFollowings {
+        private final Set<Long> followings;
+        private final long expiresAt;
+
+        CachedFollowings(Set<Long> followings, long expiresAt) {
+            this.followings = followings;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
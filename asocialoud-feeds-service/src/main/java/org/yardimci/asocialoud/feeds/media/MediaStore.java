@@ -0,0 +1,202 @@
+package org.yardimci.asocialoud.feeds.media;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Content addressed store of uploaded media. A file is named by the sha-256 of its bytes and the extension of its
+ * content type, under two levels of directories taken from the hash ({@code ab/cd/abcd...png}), so uploading the
+ * same bytes again stores nothing and stored files never change.
+ * <p>
+ * Uploads are streamed to a temporary file through one {@code bufferSize} buffer, hashed on the way, and renamed
+ * to their name once complete. Nothing of an upload is kept on the heap and a partial upload never shows up.
+ */
+@Component
+public class MediaStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaStore.class);
+
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{2,4}");
+
+    // extension -> content type of the media accepted
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("webp", "image/webp");
+        CONTENT_TYPES.put("mp4", "video/mp4");
+    }
+
+    private final File directory;
+    private final File temporary;
+    private final long maxBytes;
+    private final int bufferSize;
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public MediaStore(@Value("${asocialoud.media.directory:${user.home}/asocialoud-media}") String directory,
+                      @Value("${asocialoud.media.max-bytes:10485760}") long maxBytes,
+                      @Value("${asocialoud.media.buffer-size:65536}") int bufferSize) {
+        this.directory = new File(directory);
+        this.temporary = new File(directory, "tmp");
+        this.maxBytes = maxBytes;
+        this.bufferSize = bufferSize;
+
+        if (!temporary.isDirectory() && !temporary.mkdirs()) {
+            throw new UncheckedIOException(new IOException("Unable to create media directory " + temporary));
+        }
+        // uploads cut short by a stop
+        File[] leftovers = temporary.listFiles();
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                if (!leftover.delete()) {
+                    logger.warn("Unable to delete unfinished upload {}", leftover);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the media read from {@code in} and returns its name. Throws an {@link IllegalArgumentException} for
+     * a content type that is not accepted and a {@link TooLargeException} past {@code maxBytes}.
+     */
+    public String store(InputStream in, String contentType) throws IOException {
+        String extension = extensionOf(contentType);
+        if (extension == null) {
+            rejected.increment();
+            throw new IllegalArgumentException("Media type not accepted : " + contentType);
+        }
+
+        MessageDigest digest = sha256();
+        File upload = File.createTempFile("upload", ".tmp", temporary);
+        try {
+            try (FileOutputStream out = new FileOutputStream(upload)) {
+                byte[] buffer = new byte[bufferSize];
+                long size = 0;
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    size += read;
+                    if (size > maxBytes) {
+                        rejected.increment();
+                        throw new TooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+                out.getFD().sync();
+            }
+
+            String name = hex(digest.digest()) + "." + extension;
+            File file = fileOf(name);
+            if (file.exists()) {
+                deduplicated.increment();
+                return name;
+            }
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+                throw new IOException("Unable to create media directory " + parent);
+            }
+            try {
+                Files.move(upload.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                stored.increment();
+            } catch (FileAlreadyExistsException e) {
+                // the same bytes uploaded at the same time
+                deduplicated.increment();
+            }
+            return name;
+        } finally {
+            Files.deleteIfExists(upload.toPath());
+        }
+    }
+
+    // stored file of the name, null for an unknown or malformed name
+    public File find(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            return null;
+        }
+        File file = fileOf(name);
+        return file.isFile() ? file : null;
+    }
+
+    public static String contentTypeOf(String name) {
+        String type = CONTENT_TYPES.get(name.substring(name.lastIndexOf('.') + 1));
+        return type == null ? "application/octet-stream" : type;
+    }
+
+    // the hash, which is also the entity tag of a file
+    public static String hashOf(String name) {
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("stored", stored.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    private File fileOf(String name) {
+        return new File(new File(new File(directory, name.substring(0, 2)), name.substring(2, 4)), name);
+    }
+
+    private static String extensionOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        // parameters such as a charset do not matter for media
+        String type = contentType.split(";", 2)[0].trim().toLowerCase();
+        for (Map.Entry<String, String> entry : CONTENT_TYPES.entrySet()) {
+            if (entry.getValue().equals(type)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long maxBytes) {
+            super("Media larger than " + maxBytes + " bytes");
+        }
+    }
+}
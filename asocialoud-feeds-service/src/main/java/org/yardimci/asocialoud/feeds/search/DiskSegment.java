@@ -0,0 +1,349 @@
+package org.yardimci.asocialoud.feeds.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable, memory-mapped segment of the search index:
+ * <pre>
+ * per term, in term order : [varint count][varint skip count][skips : long id, int data offset][ids]
+ * dictionary              : [int term count] per term [short length][utf-8 term][int count][int block offset]
+ * footer                  : [long dictionary offset][long max id][int magic]
+ * </pre>
+ * Ids are newest first, the first one as is and the others as varint deltas to the previous one.
+ * Every {@value #SKIP_INTERVAL}th id is also written to the fixed width skip list of the term,
+ * so that intersections jump over long lists with a binary search instead of decoding them.
+ */
+final class DiskSegment {
+
+    static final int SKIP_INTERVAL = 128;
+
+    private static final int MAGIC = 0x41465349;
+    private static final int FOOTER = 2 * Long.BYTES + Integer.BYTES;
+    private static final int SKIP_ENTRY = Long.BYTES + Integer.BYTES;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final long maxId;
+
+    // sorted, term i starts at offsets[i]
+    private final String[] terms;
+    private final int[] counts;
+    private final int[] offsets;
+
+    private DiskSegment(File file, MappedByteBuffer buffer, long maxId, String[] terms, int[] counts, int[] offsets) {
+        this.file = file;
+        this.buffer = buffer;
+        this.maxId = maxId;
+        this.terms = terms;
+        this.counts = counts;
+        this.offsets = offsets;
+    }
+
+    static DiskSegment open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < FOOTER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid search segment size " + channel.size() + " of " + file);
+            }
+            // the mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int footer = buffer.capacity() - FOOTER;
+        if (buffer.getInt(footer + 2 * Long.BYTES) != MAGIC) {
+            throw new IOException("Not a search segment : " + file);
+        }
+        int position = (int) buffer.getLong(footer);
+        long maxId = buffer.getLong(footer + Long.BYTES);
+
+        int termCount = buffer.getInt(position);
+        position += Integer.BYTES;
+        String[] terms = new String[termCount];
+        int[] counts = new int[termCount];
+        int[] offsets = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            byte[] bytes = new byte[buffer.getShort(position)];
+            ByteBuffer term = buffer.duplicate();
+            term.position(position + Short.BYTES);
+            term.get(bytes);
+            terms[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += Short.BYTES + bytes.length;
+            counts[i] = buffer.getInt(position);
+            offsets[i] = buffer.getInt(position + Integer.BYTES);
+            position += 2 * Integer.BYTES;
+        }
+        return new DiskSegment(file, buffer, maxId, terms, counts, offsets);
+    }
+
+    /**
+     * Writes the given terms, in ascending order, with their postings. Terms without postings are left out.
+     */
+    static void write(File file, long maxId, Iterator<Map.Entry<String, PostingIterator>> sortedTerms) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        int[] counts = new int[64];
+        int[] offsets = new int[64];
+
+        FileOutputStream fileOut = new FileOutputStream(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            Block block = new Block();
+            while (sortedTerms.hasNext()) {
+                Map.Entry<String, PostingIterator> entry = sortedTerms.next();
+                int count = block.encode(entry.getValue());
+                if (count == 0) {
+                    continue;
+                }
+                if (names.size() == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                counts[names.size()] = count;
+                offsets[names.size()] = out.size();
+                names.add(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                block.writeTo(out);
+            }
+
+            long dictionary = out.size();
+            out.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                out.writeShort(names.get(i).length);
+                out.write(names.get(i));
+                out.writeInt(counts[i]);
+                out.writeInt(offsets[i]);
+            }
+            out.writeLong(dictionary);
+            out.writeLong(maxId);
+            out.writeInt(MAGIC);
+            // the counter stops there, and a larger file could not be mapped anyway
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Search segment " + file + " is too large");
+            }
+            // on disk before it is renamed into place, a crash must not leave a segment without its content
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Terms of all the given segments in ascending order, each with the union of its postings.
+     */
+    static Iterator<Map.Entry<String, PostingIterator>> merge(List<DiskSegment> segments) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(segments.size(),
+                (a, b) -> segments.get(a[0]).terms[a[1]].compareTo(segments.get(b[0]).terms[b[1]]));
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).terms.length > 0) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        return new Iterator<Map.Entry<String, PostingIterator>>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<String, PostingIterator> next() {
+                if (heads.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                String term = termOf(heads.peek());
+                List<PostingIterator> postings = new ArrayList<>();
+                while (!heads.isEmpty() && termOf(heads.peek()).equals(term)) {
+                    int[] head = heads.poll();
+                    DiskSegment segment = segments.get(head[0]);
+                    postings.add(segment.new Postings(head[1]));
+                    if (++head[1] < segment.terms.length) {
+                        heads.add(head);
+                    }
+                }
+                return new AbstractMap.SimpleImmutableEntry<>(term, new MergedPostings(postings));
+            }
+
+            private String termOf(int[] head) {
+                return segments.get(head[0]).terms[head[1]];
+            }
+        };
+    }
+
+    PostingIterator postings(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index < 0 ? null : new Postings(index);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getMaxId() {
+        return maxId;
+    }
+
+    int getTermCount() {
+        return terms.length;
+    }
+
+    long getSize() {
+        return buffer.capacity();
+    }
+
+    private static int readVarInt(ByteBuffer buffer, int[] position) {
+        return (int) readVarLong(buffer, position);
+    }
+
+    private static long readVarLong(ByteBuffer buffer, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position[0]++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private class Postings implements PostingIterator {
+        private final int count;
+        private final int skipCount;
+        private final int skipStart;
+        private final int dataStart;
+
+        private final int[] position = new int[1];
+        private int index = -1;
+        private long current = END;
+
+        Postings(int term) {
+            position[0] = offsets[term];
+            this.count = readVarInt(buffer, position);
+            this.skipCount = readVarInt(buffer, position);
+            this.skipStart = position[0];
+            this.dataStart = skipStart + skipCount * SKIP_ENTRY;
+            position[0] = dataStart;
+        }
+
+        @Override
+        public long next() {
+            if (index + 1 >= count) {
+                index = count;
+                return current = END;
+            }
+            long value = readVarLong(buffer, position);
+            current = index < 0 ? value : current - value;
+            index++;
+            return current;
+        }
+
+        @Override
+        public long advance(long target) {
+            if (index >= 0 && current <= target) {
+                return current;
+            }
+            // last skip entry still above the target, ids of skip entries decrease
+            int low = 0;
+            int high = skipCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (buffer.getLong(skipStart + mid * SKIP_ENTRY) > target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int skip = low - 1;
+            if (skip >= 0 && (skip + 1) * SKIP_INTERVAL - 1 > index) {
+                index = (skip + 1) * SKIP_INTERVAL - 1;
+                current = buffer.getLong(skipStart + skip * SKIP_ENTRY);
+                position[0] = dataStart + buffer.getInt(skipStart + skip * SKIP_ENTRY + Long.BYTES);
+            }
+            while (current > target || index < 0) {
+                if (next() == END) {
+                    break;
+                }
+            }
+            return current;
+        }
+
+        @Override
+        public long cost() {
+            return count;
+        }
+    }
+
+    // postings of one term being written
+    private static final class Block {
+        private byte[] data = new byte[1024];
+        private int length;
+        private long[] skipIds = new long[16];
+        private int[] skipOffsets = new int[16];
+        private int skipCount;
+        private int count;
+
+        int encode(PostingIterator postings) {
+            length = 0;
+            skipCount = 0;
+            count = 0;
+            long previous = PostingIterator.END;
+            for (long id = postings.next(); id != PostingIterator.END; id = postings.next()) {
+                writeVarLong(count == 0 ? id : previous - id);
+                previous = id;
+                count++;
+                if (count % SKIP_INTERVAL == 0) {
+                    if (skipCount == skipIds.length) {
+                        skipIds = Arrays.copyOf(skipIds, skipCount * 2);
+                        skipOffsets = Arrays.copyOf(skipOffsets, skipCount * 2);
+                    }
+                    skipIds[skipCount] = id;
+                    skipOffsets[skipCount] = length;
+                    skipCount++;
+                }
+            }
+            return count;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            writeVarLong(out, count);
+            writeVarLong(out, skipCount);
+            for (int i = 0; i < skipCount; i++) {
+                out.writeLong(skipIds[i]);
+                out.writeInt(skipOffsets[i]);
+            }
+            out.write(data, 0, length);
+        }
+
+        private void writeVarLong(long value) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+}
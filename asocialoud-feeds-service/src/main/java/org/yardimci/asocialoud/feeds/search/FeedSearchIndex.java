@@ -0,0 +1,66 @@
+package org.yardimci.asocialoud.feeds.search;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text index of feed text, a query matches the feeds having every word of it.
+ */
+@Component
+public class FeedSearchIndex implements InitializingBean, DisposableBean {
+
+    @Autowired
+    private FeedStore feedStore;
+
+    private final File directory;
+    private final int flushPostings;
+    private final int maxSegments;
+    private final int mergeFactor;
+
+    private InvertedIndex index;
+
+    public FeedSearchIndex(@Value("${asocialoud.search.directory:${user.home}/asocialoud-feeds-search}") String directory,
+                           @Value("${asocialoud.search.flush-postings:100000}") int flushPostings,
+                           @Value("${asocialoud.search.max-segments:8}") int maxSegments,
+                           @Value("${asocialoud.search.merge-factor:4}") int mergeFactor) {
+        this.directory = new File(directory);
+        this.flushPostings = flushPostings;
+        this.maxSegments = maxSegments;
+        this.mergeFactor = mergeFactor;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        index = new InvertedIndex("search", directory, flushPostings, maxSegments, mergeFactor, feedStore,
+                feed -> Tokenizer.tokens(feed.getText()));
+        index.open();
+    }
+
+    public void add(Feed feed) {
+        index.add(feed);
+    }
+
+    // ids of the newest feeds having every word of the query, below beforeId when given
+    public List<Long> search(String query, Long beforeId, int count) {
+        return index.search(Tokenizer.tokens(query), beforeId, count);
+    }
+
+    public Map<String, Object> stats() {
+        return index.stats();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        index.close();
+    }
+}
@@ -0,0 +1,345 @@
+package org.yardimci.asocialoud.feeds.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Inverted index of terms taken from feeds, queried for the newest feeds having every given term.
+ * New feeds go to a {@link MemorySegment}; once it holds {@code flushPostings} postings it is written to
+ * disk as a {@link DiskSegment} in the background, and when there are more than {@code maxSegments} of
+ * those the {@code mergeFactor} smallest ones are merged. Postings are newest first, so a query stops after
+ * its first {@code count} matches and does not slow down as feeds pile up.
+ * Feeds created after the newest segment was written are read back from the store on {@link #open()}.
+ */
+public class InvertedIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvertedIndex.class);
+
+    private static final String SUFFIX = ".seg";
+    private static final int CATCH_UP_BATCH = 1000;
+
+    private final String name;
+    private final File directory;
+    private final int flushPostings;
+    private final int maxSegments;
+    private final int mergeFactor;
+    private final FeedStore feedStore;
+    private final Function<Feed, Set<String>> terms;
+
+    // flushes, merges and catching up run one at a time
+    private final ExecutorService background;
+
+    private final LongAdder queries = new LongAdder();
+
+    // writes and segment changes are synchronized on the index, queries read the current view
+    private volatile View view = new View(Collections.singletonList(new MemorySegment()), Collections.emptyList());
+    private long generation;
+    private volatile boolean closed;
+
+    public InvertedIndex(String name, File directory, int flushPostings, int maxSegments, int mergeFactor,
+                         FeedStore feedStore, Function<Feed, Set<String>> terms) {
+        this.name = name;
+        this.directory = directory;
+        this.flushPostings = flushPostings;
+        this.maxSegments = maxSegments;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.feedStore = feedStore;
+        this.terms = terms;
+        this.background = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "feed-" + name + "-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + name + " index directory " + directory);
+        }
+
+        List<DiskSegment> segments = new ArrayList<>();
+        long maxId = PostingIterator.END;
+        boolean dropped = false;
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                // interrupted flush or merge, its sources are still there
+                file.delete();
+            } else if (name.endsWith(SUFFIX)) {
+                generation = Math.max(generation, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) + 1);
+                try {
+                    DiskSegment segment = DiskSegment.open(file);
+                    segments.add(segment);
+                    maxId = Math.max(maxId, segment.getMaxId());
+                } catch (IOException | RuntimeException e) {
+                    // the index is only a copy of the store, a damaged segment costs a catch up but not the startup
+                    logger.warn("Unreadable {} index segment {}, deleting it : {}", this.name, file, e.toString());
+                    if (!file.delete()) {
+                        logger.warn("Unable to delete {} index segment {}", this.name, file);
+                    }
+                    dropped = true;
+                }
+            }
+        }
+        view = new View(view.memory, segments);
+        // feeds of a dropped segment may be older than the newest one kept, every feed is added again, postings
+        // already in a kept segment are merged without duplicates
+        long from = dropped ? PostingIterator.END : maxId;
+        logger.info("{} index opened with {} segments, catching up after feed {}", name, segments.size(), from);
+
+        background.execute(() -> catchUp(from));
+        background.execute(this::mergeSegments);
+    }
+
+    public synchronized void add(Feed feed) {
+        if (closed) {
+            return;
+        }
+        Set<String> feedTerms = terms.apply(feed);
+        if (feedTerms.isEmpty()) {
+            return;
+        }
+        MemorySegment active = view.memory.get(0);
+        active.add(feed.getId(), feedTerms);
+        if (active.getPostings() >= flushPostings) {
+            rotate();
+        }
+    }
+
+    /**
+     * Returns ids of the newest feeds having every given term, below {@code beforeId} when given, newest first.
+     */
+    public List<Long> search(Collection<String> queryTerms, Long beforeId, int count) {
+        queries.increment();
+        List<Long> ids = new ArrayList<>(count);
+        if (queryTerms.isEmpty()) {
+            return ids;
+        }
+
+        View current = view;
+        List<PostingIterator> lists = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            PostingIterator postings = current.postings(term);
+            if (postings == null) {
+                // a term found nowhere, nothing has them all
+                return ids;
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingLong(PostingIterator::cost));
+
+        PostingIterator lead = lists.get(0);
+        long candidate = lead.advance(beforeId == null ? Long.MAX_VALUE : beforeId - 1);
+        candidates:
+        while (candidate != PostingIterator.END && ids.size() < count) {
+            for (int i = 1; i < lists.size(); i++) {
+                long id = lists.get(i).advance(candidate);
+                if (id == PostingIterator.END) {
+                    break candidates;
+                }
+                if (id != candidate) {
+                    candidate = lead.advance(id);
+                    continue candidates;
+                }
+            }
+            ids.add(candidate);
+            candidate = lead.next();
+        }
+        return ids;
+    }
+
+    public Map<String, Object> stats() {
+        View current = view;
+        long memoryPostings = 0;
+        for (MemorySegment memory : current.memory) {
+            memoryPostings += memory.getPostings();
+        }
+        long diskBytes = 0;
+        for (DiskSegment segment : current.disk) {
+            diskBytes += segment.getSize();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("memoryPostings", memoryPostings);
+        stats.put("segments", current.disk.size());
+        stats.put("segmentBytes", diskBytes);
+        stats.put("queries", queries.sum());
+        return stats;
+    }
+
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            rotate();
+        }
+        // waits for the pending flushes, the last one included
+        background.shutdown();
+        if (!background.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("{} index not flushed in time, the latest feeds are read back from the store on start", name);
+        }
+    }
+
+    // hands the active memory segment to the background thread and starts a new one
+    private synchronized void rotate() {
+        MemorySegment full = view.memory.get(0);
+        if (full.getPostings() == 0) {
+            return;
+        }
+        List<MemorySegment> memory = new ArrayList<>(view.memory.size() + 1);
+        memory.add(new MemorySegment());
+        memory.addAll(view.memory);
+        view = new View(memory, view.disk);
+        long number = generation++;
+        background.execute(() -> flush(full, number));
+    }
+
+    private void flush(MemorySegment memory, long number) {
+        try {
+            DiskSegment segment = writeSegment(number, memory.getMaxId(), memory.sortedTerms());
+            synchronized (this) {
+                List<MemorySegment> remaining = new ArrayList<>(view.memory);
+                remaining.remove(memory);
+                List<DiskSegment> disk = new ArrayList<>(view.disk);
+                disk.add(segment);
+                view = new View(remaining, disk);
+            }
+            logger.debug("{} index segment {} written, {} terms", name, segment.getFile().getName(), segment.getTermCount());
+        } catch (IOException | UncheckedIOException e) {
+            // stays searchable in memory, and is read back from the store after a restart
+            logger.error("Unable to write " + name + " index segment " + number, e);
+            return;
+        }
+        mergeSegments();
+    }
+
+    private void mergeSegments() {
+        while (view.disk.size() > maxSegments && !Thread.currentThread().isInterrupted()) {
+            List<DiskSegment> inputs = new ArrayList<>(view.disk);
+            inputs.sort(Comparator.comparingLong(DiskSegment::getSize));
+            inputs = inputs.subList(0, Math.min(mergeFactor, inputs.size()));
+
+            long maxId = PostingIterator.END;
+            for (DiskSegment input : inputs) {
+                maxId = Math.max(maxId, input.getMaxId());
+            }
+            long number;
+            synchronized (this) {
+                number = generation++;
+            }
+            DiskSegment merged;
+            try {
+                merged = writeSegment(number, maxId, DiskSegment.merge(inputs));
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Unable to merge " + name + " index segments", e);
+                return;
+            }
+            synchronized (this) {
+                List<DiskSegment> disk = new ArrayList<>(view.disk);
+                disk.removeAll(inputs);
+                disk.add(merged);
+                view = new View(view.memory, disk);
+            }
+            // queries still reading them keep their mapping
+            for (DiskSegment input : inputs) {
+                if (!input.getFile().delete()) {
+                    logger.warn("Unable to delete merged {} index segment {}", name, input.getFile());
+                }
+            }
+            logger.debug("Merged {} {} index segments into {}", inputs.size(), name, merged.getFile().getName());
+        }
+    }
+
+    // feeds written after the newest segment, a batch per task so that flushes run in between
+    private void catchUp(long afterId) {
+        if (closed) {
+            return;
+        }
+        List<Feed> feeds = feedStore.findAfter(afterId, CATCH_UP_BATCH);
+        for (Feed feed : feeds) {
+            add(feed);
+        }
+        if (feeds.size() < CATCH_UP_BATCH) {
+            logger.info("{} index caught up", name);
+            return;
+        }
+        long next = feeds.get(feeds.size() - 1).getId();
+        synchronized (this) {
+            if (!closed) {
+                background.execute(() -> catchUp(next));
+            }
+        }
+    }
+
+    private DiskSegment writeSegment(long number, long maxId, Iterator<Map.Entry<String, PostingIterator>> terms) throws IOException {
+        File target = new File(directory, String.format("%020d%s", number, SUFFIX));
+        File temporary = new File(directory, target.getName() + ".tmp");
+        DiskSegment.write(temporary, maxId, terms);
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        return DiskSegment.open(target);
+    }
+
+    // makes the rename durable, directories can not be opened for that on every platform
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Unable to sync {} index directory : {}", name, e.getMessage());
+        }
+    }
+
+    private static final class View {
+        // active segment first
+        private final List<MemorySegment> memory;
+        private final List<DiskSegment> disk;
+
+        View(List<MemorySegment> memory, List<DiskSegment> disk) {
+            this.memory = Collections.unmodifiableList(memory);
+            this.disk = Collections.unmodifiableList(disk);
+        }
+
+        PostingIterator postings(String term) {
+            List<PostingIterator> sources = new ArrayList<>(memory.size() + disk.size());
+            for (MemorySegment segment : memory) {
+                PostingIterator postings = segment.postings(term);
+                if (postings != null) {
+                    sources.add(postings);
+                }
+            }
+            for (DiskSegment segment : disk) {
+                PostingIterator postings = segment.postings(term);
+                if (postings != null) {
+                    sources.add(postings);
+                }
+            }
+            if (sources.isEmpty()) {
+                return null;
+            }
+            return sources.size() == 1 ? sources.get(0) : new MergedPostings(sources);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.yardimci.asocialoud.feeds.search;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Postings of the latest feeds, until there are enough of them to be written as a {@link DiskSegment}.
+ * A single writer appends while readers iterate: ids of a term are kept ascending in an array that is
+ * published before its new size, so a reader sees at least every id below the size it read.
+ */
+final class MemorySegment {
+
+    private final Map<String, Ids> terms = new ConcurrentHashMap<>();
+
+    private volatile int postings;
+    private volatile long maxId = PostingIterator.END;
+
+    // single writer, see FeedSearchIndex
+    void add(long id, Collection<String> tokens) {
+        for (String token : tokens) {
+            if (terms.computeIfAbsent(token, t -> new Ids()).add(id)) {
+                postings++;
+            }
+        }
+        if (id > maxId) {
+            maxId = id;
+        }
+    }
+
+    PostingIterator postings(String term) {
+        Ids ids = terms.get(term);
+        return ids == null ? null : ids.iterator();
+    }
+
+    // terms in ascending order, only once no more feeds are added
+    Iterator<Map.Entry<String, PostingIterator>> sortedTerms() {
+        Iterator<Map.Entry<String, Ids>> sorted = new TreeMap<>(terms).entrySet().iterator();
+        return new Iterator<Map.Entry<String, PostingIterator>>() {
+            @Override
+            public boolean hasNext() {
+                return sorted.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, PostingIterator> next() {
+                Map.Entry<String, Ids> entry = sorted.next();
+                return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().iterator());
+            }
+        };
+    }
+
+    int getPostings() {
+        return postings;
+    }
+
+    long getMaxId() {
+        return maxId;
+    }
+
+    private static final class Ids {
+        private volatile long[] ids = new long[4];
+        private volatile int size;
+
+        boolean add(long id) {
+            long[] current = ids;
+            int length = size;
+            if (length > 0 && current[length - 1] >= id) {
+                // out of order, only when feeds come from several nodes or from a rebuild
+                int index = Arrays.binarySearch(current, 0, length, id);
+                if (index >= 0) {
+                    return false;
+                }
+                int insertion = -index - 1;
+                long[] copy = new long[Math.max(current.length, length + 1)];
+                System.arraycopy(current, 0, copy, 0, insertion);
+                copy[insertion] = id;
+                System.arraycopy(current, insertion, copy, insertion + 1, length - insertion);
+                ids = copy;
+                size = length + 1;
+                return true;
+            }
+            if (length == current.length) {
+                current = Arrays.copyOf(current, length * 2);
+            }
+            current[length] = id;
+            ids = current;
+            size = length + 1;
+            return true;
+        }
+
+        PostingIterator iterator() {
+            int length = size;
+            return new ArrayPostings(ids, length);
+        }
+    }
+
+    private static final class ArrayPostings implements PostingIterator {
+        private final long[] ids;
+        private final int length;
+        private int index;
+
+        ArrayPostings(long[] ids, int length) {
+            this.ids = ids;
+            this.length = length;
+            this.index = length;
+        }
+
+        @Override
+        public long next() {
+            if (index > 0) {
+                index--;
+                return ids[index];
+            }
+            index = -1;
+            return END;
+        }
+
+        @Override
+        public long advance(long target) {
+            if (index < length && (index < 0 || ids[index] <= target)) {
+                return index < 0 ? END : ids[index];
+            }
+            // highest index below the current one holding an id <= target
+            int found = Arrays.binarySearch(ids, 0, Math.min(index, length), target);
+            index = found >= 0 ? found : -found - 2;
+            return index < 0 ? END : ids[index];
+        }
+
+        @Override
+        public long cost() {
+            return length;
+        }
+    }
+}
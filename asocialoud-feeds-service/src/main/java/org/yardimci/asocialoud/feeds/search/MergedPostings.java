@@ -0,0 +1,70 @@
+package org.yardimci.asocialoud.feeds.search;
+
+import java.util.List;
+
+/**
+ * Union of the postings of one term in several segments, without duplicates.
+ * Segments are few, so the heads are scanned instead of kept in a heap.
+ */
+final class MergedPostings implements PostingIterator {
+
+    private final PostingIterator[] sources;
+    private final long[] heads;
+    private final long cost;
+    private boolean started;
+    private long current = END;
+
+    MergedPostings(List<PostingIterator> sources) {
+        this.sources = sources.toArray(new PostingIterator[0]);
+        this.heads = new long[this.sources.length];
+        long total = 0;
+        for (PostingIterator source : this.sources) {
+            total += source.cost();
+        }
+        this.cost = total;
+    }
+
+    @Override
+    public long next() {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < sources.length; i++) {
+                heads[i] = sources[i].next();
+            }
+        } else {
+            for (int i = 0; i < sources.length; i++) {
+                if (heads[i] != END && heads[i] == current) {
+                    heads[i] = sources[i].next();
+                }
+            }
+        }
+        return current = max();
+    }
+
+    @Override
+    public long advance(long target) {
+        if (started && current <= target) {
+            return current;
+        }
+        started = true;
+        for (int i = 0; i < sources.length; i++) {
+            heads[i] = sources[i].advance(target);
+        }
+        return current = max();
+    }
+
+    @Override
+    public long cost() {
+        return cost;
+    }
+
+    private long max() {
+        long max = END;
+        for (long head : heads) {
+            if (head > max) {
+                max = head;
+            }
+        }
+        return max;
+    }
+}
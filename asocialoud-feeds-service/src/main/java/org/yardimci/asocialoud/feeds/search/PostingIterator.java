@@ -0,0 +1,18 @@
+package org.yardimci.asocialoud.feeds.search;
+
+/**
+ * Feed ids of a term, highest (newest) first.
+ */
+interface PostingIterator {
+
+    long END = -1L;
+
+    // moves to the next id, END after the last one
+    long next();
+
+    // moves to the first id lower than or equal to target, staying on the current id if it already is
+    long advance(long target);
+
+    // number of ids, to intersect the shortest lists first
+    long cost();
+}
@@ -0,0 +1,41 @@
+package org.yardimci.asocialoud.feeds.search;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits feed text and queries into lower case runs of letters and digits. Feed text is stored html escaped,
+ * it is unescaped first so that entities do not turn into terms.
+ */
+final class Tokenizer {
+
+    static final int MAX_TOKEN_LENGTH = 40;
+
+    private Tokenizer() {
+    }
+
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String plain = HtmlUtils.htmlUnescape(text).toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= plain.length(); i++) {
+            boolean inToken = i < plain.length() && Character.isLetterOrDigit(plain.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                // longer runs are rarely words, mostly links and noise
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    tokens.add(plain.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
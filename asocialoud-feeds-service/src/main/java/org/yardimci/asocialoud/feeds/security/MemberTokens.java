@@ -0,0 +1,65 @@
+package org.yardimci.asocialoud.feeds.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Checks on every request of a member-only endpoint that the caller is that member, from the token the members
+ * service issued at login, and that internal calls come from the members service. Answers cached from an earlier
+ * authenticated request are never a proof of who is asking.
+ */
+@Component
+public class MemberTokens {
+
+    public static final String INTERNAL_SECRET_HEADER = "X-Asocialoud-Internal-Secret";
+
+    // claim of the member id, set by the members service on login
+    static final String MEMBER_ID = "memberId";
+
+    private final String prefix;
+    private final byte[] secret;
+    private final byte[] internalSecret;
+
+    public MemberTokens(@Value("${security.jwt.prefix:Bearer }") String prefix,
+                        @Value("${security.jwt.secret:JwtSecretKey}") String secret,
+                        @Value("${asocialoud.internal.secret:asocialoud-internal-secret}") String internalSecret) {
+        this.prefix = prefix;
+        this.secret = secret.getBytes();
+        this.internalSecret = internalSecret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * True when {@code authorization} is a valid, unexpired token issued to {@code memberId}.
+     */
+    public boolean isIssuedTo(String authorization, Long memberId) {
+        if (authorization == null || !authorization.startsWith(prefix) || memberId == null) {
+            return false;
+        }
+        try {
+            Claims claims = Jwts.parser()
+                    .setSigningKey(secret)
+                    .parseClaimsJws(authorization.substring(prefix.length()))
+                    .getBody();
+            Object id = claims.get(MEMBER_ID);
+            return id instanceof Number && ((Number) id).longValue() == memberId;
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // the header of internal calls, compared in constant time
+    public boolean isInternal(String secretHeader) {
+        return secretHeader != null && MessageDigest.isEqual(internalSecret, secretHeader.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // authorization header of a token given as a parameter, for clients that can not set headers
+    public String authorizationOf(String token) {
+        return token == null ? null : prefix + token;
+    }
+}
@@ -0,0 +1,241 @@
+package org.yardimci.asocialoud.feeds.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes new feeds to the open streams of their authors' followers.
+ * Publishing never blocks: each subscriber has a bounded queue drained by the sender threads,
+ * and a subscriber whose queue is full is disconnected instead of slowing everybody down.
+ * <p>
+ * A send to a client that stopped reading blocks its sender thread on the socket, holding the emitter's lock.
+ * Such a subscriber is disconnected once its send takes longer than the send timeout and the sender pool gets
+ * a thread in place of the stuck one until the write fails. Emitters are completed on their own threads, since
+ * completing waits for the lock a stuck send holds.
+ */
+@Component
+public class FeedBroadcaster implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedBroadcaster.class);
+
+    private static final long STALLED = -1;
+
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+    private final ExecutorService closers;
+    private final ScheduledExecutorService watchdog;
+
+    // author id -> subscribers following the author, member id -> subscribers of the member
+    private final Map<Long, Set<Subscriber>> byAuthor = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byMember = new ConcurrentHashMap<>();
+    // subscribers in a send, closed ones included since a full queue closes a subscriber stuck on its socket
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder dropped = new LongAdder();
+    private final long origin = System.nanoTime();
+
+    public FeedBroadcaster(@Value("${asocialoud.stream.buffer-size:64}") int bufferSize,
+                           @Value("${asocialoud.stream.sender-threads:2}") int senderThreads,
+                           @Value("${asocialoud.stream.send-timeout-millis:5000}") long sendTimeoutMillis) {
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemon("feed-stream-sender"));
+        this.closers = Executors.newCachedThreadPool(daemon("feed-stream-closer"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon("feed-stream-watchdog"));
+        long period = Math.max(10, sendTimeoutMillis / 4);
+        watchdog.scheduleWithFixedDelay(this::dropStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public SseEmitter subscribe(Long memberId, Collection<Long> authorIds, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(memberId, new HashSet<>(authorIds), emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+
+        byMember.computeIfAbsent(memberId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        for (Long authorId : subscriber.authorIds) {
+            byAuthor.computeIfAbsent(authorId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        logger.debug("Member {} subscribed to feeds of {} members", memberId, authorIds.size());
+        return emitter;
+    }
+
+    public void publish(FeedResponseDto feed) {
+        for (Subscriber subscriber : byAuthor.getOrDefault(feed.getMemberId(), Collections.emptySet())) {
+            subscriber.offer(feed);
+        }
+    }
+
+    /**
+     * Ends the streams of a member, whose followings changed. Clients reconnect and subscribe to the new followings.
+     */
+    public void disconnect(Long memberId) {
+        for (Subscriber subscriber : byMember.getOrDefault(memberId, Collections.emptySet())) {
+            subscriber.close();
+        }
+    }
+
+    public int subscriberCount() {
+        return byMember.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+        senders.shutdownNow();
+        closers.shutdownNow();
+    }
+
+    private void dropStalled() {
+        long now = clock();
+        for (Subscriber subscriber : sending) {
+            long since = subscriber.sendingSince.get();
+            // claimed before the send returns, or it is no longer stalled
+            if (since > 0 && now - since > sendTimeoutNanos && subscriber.sendingSince.compareAndSet(since, STALLED)) {
+                if (!subscriber.closed.get()) {
+                    logger.info("Stream of {} stalled on a send, disconnecting", subscriber.memberId);
+                    dropped.increment();
+                }
+                resizeSenders(1);
+                subscriber.close();
+            }
+        }
+    }
+
+    // nanoseconds since this broadcaster was created, from 1 on so that 0 and STALLED stay apart from send times
+    private long clock() {
+        return System.nanoTime() - origin + 1;
+    }
+
+    // a thread in place of one stuck on a stalled socket, given back once its send returns
+    private synchronized void resizeSenders(int delta) {
+        int size = senders.getCorePoolSize() + delta;
+        if (delta > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        byMember.computeIfPresent(subscriber.memberId, (k, v) -> {
+            v.remove(subscriber);
+            return v.isEmpty() ? null : v;
+        });
+        for (Long authorId : subscriber.authorIds) {
+            byAuthor.computeIfPresent(authorId, (k, v) -> {
+                v.remove(subscriber);
+                return v.isEmpty() ? null : v;
+            });
+        }
+    }
+
+    private class Subscriber {
+        private final Long memberId;
+        private final Set<Long> authorIds;
+        private final SseEmitter emitter;
+
+        private final Queue<FeedResponseDto> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // start of the send in progress, 0 when not sending, STALLED once its thread was replaced
+        private final AtomicLong sendingSince = new AtomicLong();
+
+        Subscriber(Long memberId, Set<Long> authorIds, SseEmitter emitter) {
+            this.memberId = memberId;
+            this.authorIds = authorIds;
+            this.emitter = emitter;
+        }
+
+        void offer(FeedResponseDto feed) {
+            if (closed.get()) {
+                return;
+            }
+            if (pending.incrementAndGet() > bufferSize) {
+                logger.info("Stream of {} can not keep up, disconnecting", memberId);
+                dropped.increment();
+                close();
+                return;
+            }
+            queue.add(feed);
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                FeedResponseDto feed;
+                while (!closed.get() && (feed = queue.poll()) != null) {
+                    pending.decrementAndGet();
+                    sendingSince.set(clock());
+                    sending.add(this);
+                    try {
+                        emitter.send(SseEmitter.event().name("feed").data(feed, MediaType.APPLICATION_JSON));
+                    } catch (IOException | IllegalStateException e) {
+                        logger.debug("Stream of {} is gone", memberId);
+                        close();
+                    }
+                    sending.remove(this);
+                    if (sendingSince.getAndSet(0) == STALLED) {
+                        resizeSenders(-1);
+                        return;
+                    }
+                }
+                draining.set(false);
+                // a feed offered after the last poll but before the flag was cleared would be left behind
+            } while (!closed.get() && !queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                remove(this);
+                queue.clear();
+                closers.execute(emitter::complete);
+            }
+        }
+    }
+}
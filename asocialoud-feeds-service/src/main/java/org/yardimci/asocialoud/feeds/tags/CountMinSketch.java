@@ -0,0 +1,63 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import java.util.Arrays;
+
+/**
+ * Approximate counts of strings in {@code depth} rows of {@code width} counters. A count is never
+ * under-estimated; it is over-estimated by at most total / width with probability 1 - 2^-depth.
+ */
+final class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final int[] counters;
+
+    CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two : " + width);
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counters = new int[depth * width];
+    }
+
+    void add(String key, int count) {
+        int h1 = mix(key.hashCode());
+        int h2 = fnv(key) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters[row * (mask + 1) + ((h1 + row * h2) & mask)] += count;
+        }
+    }
+
+    int estimate(String key) {
+        int h1 = mix(key.hashCode());
+        int h2 = fnv(key) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * (mask + 1) + ((h1 + row * h2) & mask)]);
+        }
+        return min;
+    }
+
+    void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    // second hash, independent of String.hashCode collisions
+    private static int fnv(String key) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x01000193;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,52 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-saving summary of the most frequent strings with {@code capacity} counters: an unknown string
+ * takes the place of the least counted one. Every string counted more than total / capacity times is kept.
+ */
+final class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, long[]> counts;
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counts = new HashMap<>(capacity * 2);
+    }
+
+    void add(String key, int count) {
+        long[] counter = counts.get(key);
+        if (counter != null) {
+            counter[0] += count;
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(key, new long[]{count});
+            return;
+        }
+
+        // capacity is small, a scan for the minimum is cheaper than keeping a heap ordered
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            if (entry.getValue()[0] < min) {
+                min = entry.getValue()[0];
+                minKey = entry.getKey();
+            }
+        }
+        counts.remove(minKey);
+        counts.put(key, new long[]{min + count});
+    }
+
+    Set<String> keys() {
+        return counts.keySet();
+    }
+
+    void clear() {
+        counts.clear();
+    }
+}
@@ -0,0 +1,68 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds {@code #tags} and {@code @loginName} mentions in feed text. Both are lower cased, a tag or
+ * mention right after a letter or digit is not one (anchors in links, e-mail addresses).
+ */
+public final class TagExtractor {
+
+    static final int MAX_LENGTH = 40;
+
+    private TagExtractor() {
+    }
+
+    public static Set<String> tags(String text) {
+        return extract(text, '#');
+    }
+
+    public static Set<String> mentions(String text) {
+        return extract(text, '@');
+    }
+
+    // tag without its #, as given in urls
+    public static String normalizeTag(String tag) {
+        String plain = tag.startsWith("#") ? tag.substring(1) : tag;
+        return plain.toLowerCase(Locale.ROOT);
+    }
+
+    public static String normalizeMention(String loginName) {
+        String plain = loginName.startsWith("@") ? loginName.substring(1) : loginName;
+        return plain.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> extract(String text, char marker) {
+        Set<String> found = new LinkedHashSet<>();
+        if (text == null || text.indexOf(marker) < 0) {
+            return found;
+        }
+        // stored text is html escaped, and &#39; is not a tag
+        String plain = HtmlUtils.htmlUnescape(text);
+        for (int i = plain.indexOf(marker); i >= 0; i = plain.indexOf(marker, i + 1)) {
+            if (i > 0 && Character.isLetterOrDigit(plain.charAt(i - 1))) {
+                continue;
+            }
+            int end = i + 1;
+            while (end < plain.length() && isNameChar(plain.charAt(end), marker)) {
+                end++;
+            }
+            // a mention at the end of a sentence
+            while (end > i + 1 && plain.charAt(end - 1) == '.') {
+                end--;
+            }
+            if (end > i + 1 && end - i - 1 <= MAX_LENGTH) {
+                found.add(plain.substring(i + 1, end).toLowerCase(Locale.ROOT));
+            }
+        }
+        return found;
+    }
+
+    private static boolean isNameChar(char c, char marker) {
+        return Character.isLetterOrDigit(c) || c == '_' || (marker == '@' && (c == '.' || c == '-'));
+    }
+}
@@ -0,0 +1,74 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+import org.yardimci.asocialoud.feeds.search.InvertedIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Feeds by tag and by mentioned member, newest first. Terms are {@code #tag} and {@code @loginName}.
+ */
+@Component
+public class TagIndex implements InitializingBean, DisposableBean {
+
+    @Autowired
+    private FeedStore feedStore;
+
+    private final File directory;
+    private final int flushPostings;
+    private final int maxSegments;
+    private final int mergeFactor;
+
+    private InvertedIndex index;
+
+    public TagIndex(@Value("${asocialoud.tags.index.directory:${user.home}/asocialoud-feeds-tags}") String directory,
+                    @Value("${asocialoud.tags.index.flush-postings:20000}") int flushPostings,
+                    @Value("${asocialoud.tags.index.max-segments:8}") int maxSegments,
+                    @Value("${asocialoud.tags.index.merge-factor:4}") int mergeFactor) {
+        this.directory = new File(directory);
+        this.flushPostings = flushPostings;
+        this.maxSegments = maxSegments;
+        this.mergeFactor = mergeFactor;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        index = new InvertedIndex("tag", directory, flushPostings, maxSegments, mergeFactor, feedStore, TagIndex::termsOf);
+        index.open();
+    }
+
+    public void add(Feed feed) {
+        index.add(feed);
+    }
+
+    public List<Long> findTagged(String tag, Long beforeId, int count) {
+        return index.search(Collections.singleton("#" + TagExtractor.normalizeTag(tag)), beforeId, count);
+    }
+
+    public List<Long> findMentioning(String loginName, Long beforeId, int count) {
+        return index.search(Collections.singleton("@" + TagExtractor.normalizeMention(loginName)), beforeId, count);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        index.close();
+    }
+
+    private static Set<String> termsOf(Feed feed) {
+        Set<String> terms = new HashSet<>();
+        TagExtractor.tags(feed.getText()).forEach(tag -> terms.add("#" + tag));
+        TagExtractor.mentions(feed.getText()).forEach(loginName -> terms.add("@" + loginName));
+        return terms;
+    }
+}
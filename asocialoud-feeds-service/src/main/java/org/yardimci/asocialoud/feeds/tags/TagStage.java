@@ -0,0 +1,23 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+/**
+ * Write-time stage of feed creation: counts the tags of a new feed for trending and indexes its tags and mentions.
+ */
+@Component
+public class TagStage {
+
+    @Autowired
+    private TrendingTags trendingTags;
+
+    @Autowired
+    private TagIndex tagIndex;
+
+    public void process(Feed feed) {
+        trendingTags.add(TagExtractor.tags(feed.getText()), feed.getPublishDate().getTime());
+        tagIndex.add(feed);
+    }
+}
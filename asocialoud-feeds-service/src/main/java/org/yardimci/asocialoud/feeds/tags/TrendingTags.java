@@ -0,0 +1,68 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Most used tags of the last 5 minutes, hour and day, counted as feeds are created instead of grouping feed rows.
+ * Counts are approximate and start from zero when the service starts.
+ */
+@Component
+public class TrendingTags {
+
+    private final Map<String, TrendingWindow> windows = new LinkedHashMap<>();
+    private final int topK;
+
+    public TrendingTags(@Value("${asocialoud.tags.trending.top-k:64}") int topK,
+                        @Value("${asocialoud.tags.trending.sketch-depth:4}") int sketchDepth,
+                        @Value("${asocialoud.tags.trending.sketch-width:4096}") int sketchWidth) {
+        this.topK = topK;
+        windows.put("5m", new TrendingWindow(TimeUnit.SECONDS.toMillis(30), 10, sketchDepth, sketchWidth, topK));
+        windows.put("1h", new TrendingWindow(TimeUnit.MINUTES.toMillis(5), 12, sketchDepth, sketchWidth, topK));
+        windows.put("24h", new TrendingWindow(TimeUnit.HOURS.toMillis(1), 24, sketchDepth, sketchWidth, topK));
+    }
+
+    public void add(Collection<String> tags, long time) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        for (TrendingWindow window : windows.values()) {
+            window.add(tags, time);
+        }
+    }
+
+    // null for an unknown window
+    public List<TagCount> trending(String window, int count) {
+        TrendingWindow trendingWindow = windows.get(window);
+        return trendingWindow == null ? null : trendingWindow.top(System.currentTimeMillis(), Math.min(count, topK));
+    }
+
+    public Set<String> windowNames() {
+        return windows.keySet();
+    }
+
+    public static class TagCount {
+        private final String tag;
+        private final long count;
+
+        public TagCount(String tag, long count) {
+            this.tag = tag;
+            this.count = count;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.yardimci.asocialoud.feeds.tags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tag counts of a sliding window, kept in a ring of fixed length buckets. Each bucket has its own
+ * count-min sketch and space-saving summary; the window counts a tag by adding up the sketches of
+ * its live buckets, for the tags any of their summaries holds. Buckets are reused once they fall out of the window.
+ */
+final class TrendingWindow {
+
+    private final long bucketMillis;
+    private final Bucket[] buckets;
+
+    TrendingWindow(long bucketMillis, int bucketCount, int sketchDepth, int sketchWidth, int topK) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket(new CountMinSketch(sketchDepth, sketchWidth), new SpaceSaving(topK));
+        }
+    }
+
+    synchronized void add(Collection<String> tags, long time) {
+        long epoch = time / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        if (bucket.epoch != epoch) {
+            if (bucket.epoch > epoch) {
+                // older than the window
+                return;
+            }
+            bucket.epoch = epoch;
+            bucket.sketch.clear();
+            bucket.topK.clear();
+        }
+        for (String tag : tags) {
+            bucket.sketch.add(tag, 1);
+            bucket.topK.add(tag, 1);
+        }
+    }
+
+    synchronized List<TrendingTags.TagCount> top(long now, int count) {
+        long current = now / bucketMillis;
+        List<Bucket> live = new ArrayList<>(buckets.length);
+        Set<String> candidates = new HashSet<>();
+        for (Bucket bucket : buckets) {
+            if (bucket.epoch > current - buckets.length && bucket.epoch <= current) {
+                live.add(bucket);
+                candidates.addAll(bucket.topK.keys());
+            }
+        }
+
+        List<TrendingTags.TagCount> counts = new ArrayList<>(candidates.size());
+        for (String tag : candidates) {
+            long total = 0;
+            for (Bucket bucket : live) {
+                total += bucket.sketch.estimate(tag);
+            }
+            counts.add(new TrendingTags.TagCount(tag, total));
+        }
+        counts.sort((a, b) -> a.getCount() != b.getCount() ? Long.compare(b.getCount(), a.getCount()) : a.getTag().compareTo(b.getTag()));
+        return counts.size() > count ? new ArrayList<>(counts.subList(0, count)) : counts;
+    }
+
+    private static final class Bucket {
+        private final CountMinSketch sketch;
+        private final SpaceSaving topK;
+        private long epoch = -1;
+
+        Bucket(CountMinSketch sketch, SpaceSaving topK) {
+            this.sketch = sketch;
+            this.topK = topK;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.yardimci.asocialoud.feeds.timeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded, newest-first list of feed ids, used for home timelines and per-author indexes.
+ * Entries are kept ordered by (publish time, feed id) in a ring buffer, so the common case
+ * of a brand new feed is an append and the oldest entry is dropped once capacity is reached.
+ */
+public class FeedIndex {
+
+    private final long[] feedIds;
+    private final long[] publishTimes;
+
+    // logical index 0 is the oldest entry
+    private int start;
+    private int size;
+
+    // true while the index holds every feed older than its newest entry
+    private boolean complete;
+
+    public FeedIndex(int capacity) {
+        this(capacity, true);
+    }
+
+    public FeedIndex(int capacity, boolean complete) {
+        this.feedIds = new long[capacity];
+        this.publishTimes = new long[capacity];
+        this.complete = complete;
+    }
+
+    public synchronized void add(long feedId, long publishTime) {
+        int capacity = feedIds.length;
+        int position = insertionPoint(feedId, publishTime);
+
+        if (position > 0 && feedIds[physical(position - 1)] == feedId) {
+            return;
+        }
+
+        if (size == capacity) {
+            complete = false;
+            if (position == 0) {
+                return;
+            }
+            start = (start + 1) % capacity;
+            size--;
+            position--;
+        }
+
+        for (int i = size; i > position; i--) {
+            feedIds[physical(i)] = feedIds[physical(i - 1)];
+            publishTimes[physical(i)] = publishTimes[physical(i - 1)];
+        }
+        feedIds[physical(position)] = feedId;
+        publishTimes[physical(position)] = publishTime;
+        size++;
+    }
+
+    /**
+     * Returns up to {@code count} entries, newest first, skipping the {@code offset} newest ones.
+     */
+    public synchronized List<Entry> newest(int offset, int count, long publishedAfter) {
+        return collect(size - 1 - offset, count, publishedAfter);
+    }
+
+    /**
+     * Returns up to {@code count} entries, newest first, that are strictly older than the given position.
+     */
+    public synchronized List<Entry> before(long publishTime, long feedId, int count, long publishedAfter) {
+        return collect(insertionPoint(feedId - 1, publishTime) - 1, count, publishedAfter);
+    }
+
+    private List<Entry> collect(int from, int count, long publishedAfter) {
+        List<Entry> entries = new ArrayList<>(Math.min(count, size));
+        for (int i = from; i >= 0 && entries.size() < count; i--) {
+            int p = physical(i);
+            if (publishTimes[p] <= publishedAfter) {
+                break;
+            }
+            entries.add(new Entry(feedIds[p], publishTimes[p]));
+        }
+        return entries;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    synchronized void markIncomplete() {
+        complete = false;
+    }
+
+    synchronized void markComplete() {
+        complete = true;
+    }
+
+    public synchronized Entry oldest() {
+        return size == 0 ? null : new Entry(feedIds[start], publishTimes[start]);
+    }
+
+    // first logical index whose entry is newer than the given one
+    private int insertionPoint(long feedId, long publishTime) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int p = physical(mid);
+            if (publishTimes[p] < publishTime || (publishTimes[p] == publishTime && feedIds[p] <= feedId)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int logical) {
+        return (start + logical) % feedIds.length;
+    }
+
+    public static class Entry implements Comparable<Entry> {
+        private final long feedId;
+        private final long publishTime;
+
+        public Entry(long feedId, long publishTime) {
+            this.feedId = feedId;
+            this.publishTime = publishTime;
+        }
+
+        public long getFeedId() {
+            return feedId;
+        }
+
+        public long getPublishTime() {
+            return publishTime;
+        }
+
+        // newest first
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(other.publishTime, publishTime);
+            return byTime != 0 ? byTime : Long.compare(other.feedId, feedId);
+        }
+    }
+}
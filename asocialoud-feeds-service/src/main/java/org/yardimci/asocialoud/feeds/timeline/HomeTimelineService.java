@@ -0,0 +1,131 @@
+package org.yardimci.asocialoud.feeds.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+@Service
+public class HomeTimelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeTimelineService.class);
+
+    @Autowired
+    private HomeTimelineStore homeTimelineStore;
+
+    @Autowired
+    private TimelineMergeEngine timelineMergeEngine;
+
+    @Autowired
+    private RelaudIndex relaudIndex;
+
+    public void publish(Feed feed) {
+        timelineMergeEngine.publish(feed);
+        homeTimelineStore.publish(feed);
+    }
+
+    /**
+     * Returns a page of a member's home timeline, either the feeds older than {@code cursor} or,
+     * without a cursor, the {@code start}th page. Feeds of pushed authors come from the precomputed
+     * timeline, feeds of pulled authors are merged in at read time. An original shows up once per page
+     * however many followings relauded it, relauds of the {@code relaudsMuted} followings are left out.
+     */
+    public List<Feed> findPage(Long memberId, Collection<Long> authorIds, Set<Long> relaudsMuted, Date dateAfter, FeedCursor cursor, int start) {
+        homeTimelineStore.registerFollowings(memberId, authorIds);
+
+        List<Long> pushedAuthors = new ArrayList<>();
+        List<Long> pulledAuthors = new ArrayList<>();
+        for (Long authorId : authorIds) {
+            if (homeTimelineStore.isPulled(authorId)) {
+                pulledAuthors.add(authorId);
+            } else {
+                pushedAuthors.add(authorId);
+            }
+        }
+
+        int offset = cursor == null ? start * FeedRepository.FETCH_COUNT : 0;
+        long publishedAfter = dateAfter == null ? 0L : dateAfter.getTime();
+
+        TimelineEntries source = new TimelineEntries(timelineOf(memberId, pushedAuthors), pulledAuthors, cursor, publishedAfter);
+        List<FeedIndex.Entry> page = relaudIndex.page(source, relaudsMuted, offset, FeedRepository.FETCH_COUNT);
+        if (source.exhausted) {
+            // page goes past what is kept in memory
+            logger.debug("Home timeline of {} exhausted, merging author streams", memberId);
+            return timelineMergeEngine.findFeeds(authorIds, relaudsMuted, cursor, dateAfter, offset, FeedRepository.FETCH_COUNT);
+        }
+        return relaudIndex.distinct(timelineMergeEngine.loadFeeds(page), relaudsMuted);
+    }
+
+    private FeedIndex timelineOf(Long memberId, List<Long> pushedAuthors) {
+        FeedIndex timeline = homeTimelineStore.timelineOf(memberId);
+        if (timeline != null) {
+            return timeline;
+        }
+
+        logger.debug("Building home timeline of {}", memberId);
+        timeline = homeTimelineStore.createTimeline(memberId);
+        if (!pushedAuthors.isEmpty()) {
+            int capacity = homeTimelineStore.getCapacity();
+            List<FeedIndex.Entry> recent = timelineMergeEngine.merge(pushedAuthors, null, 0L, 0, capacity);
+            for (FeedIndex.Entry entry : recent) {
+                timeline.add(entry.getFeedId(), entry.getPublishTime());
+            }
+            if (recent.size() >= capacity) {
+                timeline.markIncomplete();
+            }
+        }
+        return timeline;
+    }
+
+    // first entries of a home timeline below the cursor, with the feeds of pulled authors merged in
+    private class TimelineEntries implements IntFunction<List<FeedIndex.Entry>> {
+
+        private final FeedIndex timeline;
+        private final List<Long> pulledAuthors;
+        private final FeedCursor cursor;
+        private final long publishedAfter;
+        // more entries were asked for than the timeline keeps in memory
+        private boolean exhausted;
+
+        TimelineEntries(FeedIndex timeline, List<Long> pulledAuthors, FeedCursor cursor, long publishedAfter) {
+            this.timeline = timeline;
+            this.pulledAuthors = pulledAuthors;
+            this.cursor = cursor;
+            this.publishedAfter = publishedAfter;
+        }
+
+        @Override
+        public List<FeedIndex.Entry> apply(int count) {
+            List<FeedIndex.Entry> entries = cursor == null ?
+                    timeline.newest(0, count, publishedAfter) :
+                    timeline.before(cursor.getPublishTime(), cursor.getId(), count, publishedAfter);
+            if (entries.size() < count && !timeline.isComplete()) {
+                exhausted = true;
+            }
+
+            if (!pulledAuthors.isEmpty()) {
+                Set<Long> seen = new HashSet<>();
+                entries.forEach(e -> seen.add(e.getFeedId()));
+                for (FeedIndex.Entry entry : timelineMergeEngine.merge(pulledAuthors, cursor, publishedAfter, 0, count)) {
+                    if (seen.add(entry.getFeedId())) {
+                        entries.add(entry);
+                    }
+                }
+                Collections.sort(entries);
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.yardimci.asocialoud.feeds.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed home timelines (fan-out on write).
+ * Every published feed is pushed into the timelines of its author's followers, unless the author
+ * has at least {@code fanOutLimit} followers; such authors are pulled at read time instead.
+ */
+@Component
+public class HomeTimelineStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeTimelineStore.class);
+
+    @Value("${asocialoud.timeline.capacity:800}")
+    private int capacity;
+
+    @Value("${asocialoud.timeline.fanout-limit:1000}")
+    private int fanOutLimit;
+
+    @Value("${asocialoud.timeline.max-members:10000}")
+    private int maxMembers;
+
+    // follower id -> timeline, least recently read ones are dropped first
+    private final Map<Long, FeedIndex> timelines = Collections.synchronizedMap(new LinkedHashMap<Long, FeedIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FeedIndex> eldest) {
+            return size() > maxMembers;
+        }
+    });
+
+    // author id -> follower ids, and follower id -> author ids
+    private final Map<Long, Set<Long>> followers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> followings = new ConcurrentHashMap<>();
+
+    /**
+     * Records the authors a member currently follows. A changed following set drops the
+     * member's timeline so that it is rebuilt from the database on the next read.
+     */
+    public void registerFollowings(Long memberId, Collection<Long> authorIds) {
+        Set<Long> current = new HashSet<>(authorIds);
+        Set<Long> previous = followings.put(memberId, current);
+        if (current.equals(previous)) {
+            return;
+        }
+
+        if (previous != null) {
+            for (Long authorId : previous) {
+                if (!current.contains(authorId)) {
+                    followers.computeIfPresent(authorId, (k, v) -> {
+                        v.remove(memberId);
+                        return v.isEmpty() ? null : v;
+                    });
+                }
+            }
+        }
+        for (Long authorId : current) {
+            followers.computeIfAbsent(authorId, k -> ConcurrentHashMap.newKeySet()).add(memberId);
+        }
+        timelines.remove(memberId);
+    }
+
+    public Set<Long> followingsOf(Long memberId) {
+        return followings.getOrDefault(memberId, Collections.emptySet());
+    }
+
+    public boolean isPulled(Long authorId) {
+        Set<Long> authorFollowers = followers.get(authorId);
+        return authorFollowers != null && authorFollowers.size() >= fanOutLimit;
+    }
+
+    public void publish(Feed feed) {
+        Set<Long> authorFollowers = followers.get(feed.getMemberId());
+        if (authorFollowers == null || authorFollowers.size() >= fanOutLimit) {
+            return;
+        }
+
+        long publishTime = feed.getPublishDate().getTime();
+        int delivered = 0;
+        for (Long followerId : authorFollowers) {
+            FeedIndex timeline = timelines.get(followerId);
+            if (timeline != null) {
+                timeline.add(feed.getId(), publishTime);
+                delivered++;
+            }
+        }
+        logger.debug("Feed {} pushed to {} timelines", feed.getId(), delivered);
+    }
+
+    public FeedIndex timelineOf(Long memberId) {
+        return timelines.get(memberId);
+    }
+
+    public FeedIndex createTimeline(Long memberId) {
+        FeedIndex timeline = new FeedIndex(capacity);
+        timelines.put(memberId, timeline);
+        return timeline;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,102 @@
+package org.yardimci.asocialoud.feeds.timeline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Relauds seen by the timelines, relaud id -> (original id, relauding member), so that a page drops repeated
+ * originals and relauds of muted members from its index entries before any feed is loaded. Relauds are registered
+ * as they are published or read into an author index, and the least recently used are dropped past
+ * {@code maxRelauds}; those are only caught once loaded, by {@link #distinct(List, Set)}.
+ * <p>
+ * Originals are made distinct within a page, the set of originals seen is bounded by the page and not kept
+ * across pages.
+ */
+@Component
+public class RelaudIndex {
+
+    // entries read for one page at most, however many of them are skipped
+    private static final int MAX_SCAN = 1024;
+
+    // relaud id -> {original id, relauding member id}
+    private final Map<Long, long[]> relauds;
+
+    public RelaudIndex(@Value("${asocialoud.timeline.relauds.max-entries:100000}") int maxRelauds) {
+        this.relauds = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > maxRelauds;
+            }
+        };
+    }
+
+    public void register(Feed feed) {
+        if (feed.getRelaudOf() != null) {
+            synchronized (relauds) {
+                relauds.put(feed.getId(), new long[]{feed.getRelaudOf(), feed.getMemberId()});
+            }
+        }
+    }
+
+    /**
+     * Returns the entries from {@code offset} to {@code offset + count} once relauds of originals already on the page
+     * and relauds by {@code relaudsMuted} members are skipped. {@code source} gives the first n entries newest first,
+     * it is asked for twice as many while skipped entries leave the page short.
+     */
+    public List<FeedIndex.Entry> page(IntFunction<List<FeedIndex.Entry>> source, Set<Long> relaudsMuted, int offset, int count) {
+        int needed = offset + count;
+        List<FeedIndex.Entry> page;
+        for (int read = needed; ; read = Math.min(read * 2, MAX_SCAN)) {
+            List<FeedIndex.Entry> entries = source.apply(read);
+            page = distinctEntries(entries, relaudsMuted, needed);
+            if (page.size() >= needed || entries.size() < read || read >= MAX_SCAN) {
+                break;
+            }
+        }
+        return page.size() <= offset ? new ArrayList<>() : new ArrayList<>(page.subList(offset, page.size()));
+    }
+
+    // same on loaded feeds, for relauds the index has dropped
+    public List<Feed> distinct(List<Feed> feeds, Set<Long> relaudsMuted) {
+        Set<Long> seen = new HashSet<>(feeds.size() * 2);
+        List<Feed> result = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            if (feed.getRelaudOf() != null && relaudsMuted.contains(feed.getMemberId())) {
+                continue;
+            }
+            if (seen.add(feed.getRelaudOf() != null ? feed.getRelaudOf() : feed.getId())) {
+                result.add(feed);
+            }
+        }
+        return result;
+    }
+
+    private List<FeedIndex.Entry> distinctEntries(List<FeedIndex.Entry> entries, Set<Long> relaudsMuted, int limit) {
+        Set<Long> seen = new HashSet<>(limit * 2);
+        List<FeedIndex.Entry> result = new ArrayList<>(limit);
+        synchronized (relauds) {
+            for (FeedIndex.Entry entry : entries) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                long[] relaud = relauds.get(entry.getFeedId());
+                if (relaud != null && relaudsMuted.contains(relaud[1])) {
+                    continue;
+                }
+                if (seen.add(relaud != null ? relaud[0] : entry.getFeedId())) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+}
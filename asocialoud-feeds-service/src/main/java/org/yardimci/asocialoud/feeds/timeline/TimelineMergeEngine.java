@@ -0,0 +1,334 @@
+package org.yardimci.asocialoud.feeds.timeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.concurrent.VirtualThreads;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds pages of several authors' feeds by merging per-author, newest-first streams with a heap.
+ * Each stream reads from a small in-memory index of the author's recent feeds and fetches older
+ * segments from the database only when it runs dry, so a page costs O(page size x log authors)
+ * instead of sorting every matching row.
+ */
+@Component
+public class TimelineMergeEngine implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimelineMergeEngine.class);
+
+    @Autowired
+    private FeedStore feedStore;
+
+    @Autowired
+    private RelaudIndex relaudIndex;
+
+    @Value("${asocialoud.timeline.author-index.capacity:64}")
+    private int indexCapacity;
+
+    @Value("${asocialoud.timeline.author-index.max-authors:50000}")
+    private int maxAuthors;
+
+    @Value("${asocialoud.timeline.segment-size:20}")
+    private int segmentSize;
+
+    private final ExecutorService pool;
+
+    // author id -> recent feeds of the author, least recently used ones are dropped first
+    private final Map<Long, FeedIndex> authorIndexes = Collections.synchronizedMap(new LinkedHashMap<Long, FeedIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FeedIndex> eldest) {
+            return size() > maxAuthors;
+        }
+    });
+
+    public TimelineMergeEngine(@Value("${asocialoud.timeline.merge-parallelism:0}") int parallelism,
+                               @Value("${asocialoud.threads.virtual:false}") boolean virtualThreads) {
+        // segment reads block on the store, with virtual threads each one gets its own
+        this.pool = virtualThreads ? VirtualThreads.newExecutor("timeline-segment-") :
+                new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public void publish(Feed feed) {
+        relaudIndex.register(feed);
+        FeedIndex index = authorIndexes.get(feed.getMemberId());
+        if (index != null) {
+            index.add(feed.getId(), feed.getPublishDate().getTime());
+        }
+    }
+
+    public List<Feed> findFeeds(Collection<Long> authorIds, FeedCursor cursor, Date dateAfter, int offset, int count) {
+        return findFeeds(authorIds, Collections.emptySet(), cursor, dateAfter, offset, count);
+    }
+
+    // an original shows up once per page however many authors relauded it, relauds of relaudsMuted authors are left out
+    public List<Feed> findFeeds(Collection<Long> authorIds, Set<Long> relaudsMuted, FeedCursor cursor, Date dateAfter, int offset, int count) {
+        long publishedAfter = dateAfter == null ? 0L : dateAfter.getTime();
+        List<FeedIndex.Entry> page = relaudIndex.page(read -> merge(authorIds, cursor, publishedAfter, 0, read), relaudsMuted, offset, count);
+        return relaudIndex.distinct(loadFeeds(page), relaudsMuted);
+    }
+
+    /**
+     * Returns up to {@code count} entries of the given authors, newest first, that are older than
+     * {@code cursor} (when given) and published after {@code publishedAfter}, skipping the first {@code offset}.
+     */
+    public List<FeedIndex.Entry> merge(Collection<Long> authorIds, FeedCursor cursor, long publishedAfter, int offset, int count) {
+        List<AuthorStream> streams = new ArrayList<>(authorIds.size());
+        for (Long authorId : authorIds) {
+            streams.add(new AuthorStream(authorId, indexOf(authorId), cursor, publishedAfter));
+        }
+
+        // authors whose index can not give the first segment are read together, in one query
+        List<AuthorStream> misses = new ArrayList<>();
+        for (AuthorStream stream : streams) {
+            if (stream.missesIndex()) {
+                misses.add(stream);
+            }
+        }
+        if (misses.size() > 1) {
+            readFirstSegments(misses, cursor, publishedAfter);
+        }
+
+        // the first segment of every stream is needed before anything can be ordered
+        CompletableFuture<?>[] firstSegments = new CompletableFuture<?>[streams.size()];
+        try {
+            for (int i = 0; i < firstSegments.length; i++) {
+                firstSegments[i] = CompletableFuture.runAsync(streams.get(i)::peek, pool);
+            }
+            CompletableFuture.allOf(firstSegments).join();
+
+            PriorityQueue<AuthorStream> heap = new PriorityQueue<>(Math.max(1, streams.size()),
+                    (a, b) -> a.peek().compareTo(b.peek()));
+            for (AuthorStream stream : streams) {
+                if (stream.peek() != null) {
+                    heap.add(stream);
+                }
+            }
+
+            List<FeedIndex.Entry> entries = new ArrayList<>(count);
+            int skipped = 0;
+            while (!heap.isEmpty() && entries.size() < count) {
+                AuthorStream stream = heap.poll();
+                FeedIndex.Entry entry = stream.take(offset + count - skipped - entries.size() - 1);
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    entries.add(entry);
+                }
+                if (stream.peek() != null) {
+                    heap.add(stream);
+                }
+            }
+            return entries;
+        } finally {
+            // segments the page did not need, not read at all when still queued on the pool
+            for (CompletableFuture<?> firstSegment : firstSegments) {
+                if (firstSegment != null) {
+                    firstSegment.cancel(false);
+                }
+            }
+            streams.forEach(AuthorStream::cancelPrefetch);
+        }
+    }
+
+    public List<Feed> loadFeeds(List<FeedIndex.Entry> entries) {
+        List<Long> ids = new ArrayList<>(entries.size());
+        entries.forEach(e -> ids.add(e.getFeedId()));
+
+        Map<Long, Feed> byId = new HashMap<>();
+        feedStore.findAllById(ids).forEach(f -> byId.put(f.getId(), f));
+
+        List<Feed> feeds = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Feed feed = byId.get(id);
+            if (feed != null) {
+                feeds.add(feed);
+            }
+        }
+        return feeds;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private FeedIndex indexOf(Long authorId) {
+        FeedIndex index = authorIndexes.get(authorId);
+        if (index == null) {
+            // unknown until the first segment has been read from the database
+            index = new FeedIndex(indexCapacity, false);
+            authorIndexes.put(authorId, index);
+        }
+        return index;
+    }
+
+    private List<FeedIndex.Entry> fetchSegment(Long authorId, FeedIndex.Entry before) {
+        List<Feed> feeds = before == null ?
+                feedStore.findNewest(authorId, segmentSize) :
+                feedStore.findBefore(authorId, new FeedCursor(before.getPublishTime(), before.getFeedId()), segmentSize);
+
+        List<FeedIndex.Entry> entries = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            relaudIndex.register(feed);
+            entries.add(new FeedIndex.Entry(feed.getId(), feed.getPublishDate().getTime()));
+        }
+        return entries;
+    }
+
+    private void readFirstSegments(List<AuthorStream> streams, FeedCursor cursor, long publishedAfter) {
+        Map<Long, List<FeedIndex.Entry>> segments = new HashMap<>();
+        streams.forEach(stream -> segments.put(stream.authorId, new ArrayList<>()));
+        int count = segmentSize * streams.size();
+
+        logger.trace("Reading first segments of {} authors from database", streams.size());
+        List<Feed> feeds = cursor == null ?
+                feedStore.findNewestOf(segments.keySet(), new Date(publishedAfter), count) :
+                feedStore.findBeforeOf(segments.keySet(), new Date(publishedAfter), cursor, count);
+        for (Feed feed : feeds) {
+            relaudIndex.register(feed);
+            segments.get(feed.getMemberId()).add(new FeedIndex.Entry(feed.getId(), feed.getPublishDate().getTime()));
+        }
+
+        // a short answer holds every feed of these authors in range, a full one only the newest of each
+        boolean whole = feeds.size() < count;
+        for (AuthorStream stream : streams) {
+            stream.preload(segments.get(stream.authorId), whole);
+        }
+    }
+
+    /**
+     * Newest-first feeds of one author below a position. Reads the author index first, then
+     * database segments; the next segment is prefetched on the pool once the buffer runs low
+     * and the page may need more entries than the buffer holds.
+     */
+    private class AuthorStream {
+
+        private final Long authorId;
+        private final FeedIndex index;
+        private final long publishedAfter;
+        private final Deque<FeedIndex.Entry> buffer = new ArrayDeque<>();
+
+        // last entry handed to the buffer, null while positioned before the newest feed
+        private FeedIndex.Entry position;
+        private boolean exhausted;
+        private CompletableFuture<List<FeedIndex.Entry>> prefetch;
+
+        AuthorStream(Long authorId, FeedIndex index, FeedCursor cursor, long publishedAfter) {
+            this.authorId = authorId;
+            this.index = index;
+            this.publishedAfter = publishedAfter;
+            this.position = cursor == null ? null : new FeedIndex.Entry(cursor.getId(), cursor.getPublishTime());
+        }
+
+        FeedIndex.Entry peek() {
+            if (buffer.isEmpty() && !exhausted) {
+                List<FeedIndex.Entry> next = prefetch != null ? prefetch.join() : read(position);
+                prefetch = null;
+                append(next);
+            }
+            return buffer.peekFirst();
+        }
+
+        // remaining : entries the page may still take after this one
+        FeedIndex.Entry take(int remaining) {
+            FeedIndex.Entry entry = buffer.pollFirst();
+            if (buffer.size() <= 1 && buffer.size() < remaining && !exhausted && prefetch == null) {
+                FeedIndex.Entry from = position;
+                prefetch = CompletableFuture.supplyAsync(() -> read(from), pool);
+            }
+            return entry;
+        }
+
+        boolean missesIndex() {
+            return !index.isComplete() && readIndex(position).isEmpty();
+        }
+
+        // first segment read along with other authors, the rest of the stream is read as usual unless it is whole
+        void preload(List<FeedIndex.Entry> segment, boolean whole) {
+            if (continuesIndex(position)) {
+                segment.forEach(e -> index.add(e.getFeedId(), e.getPublishTime()));
+                if (whole && publishedAfter == 0L && index.size() < indexCapacity) {
+                    index.markComplete();
+                }
+            }
+            append(segment);
+            if (whole) {
+                exhausted = true;
+            }
+        }
+
+        void cancelPrefetch() {
+            if (prefetch != null) {
+                prefetch.cancel(false);
+                prefetch = null;
+            }
+        }
+
+        private void append(List<FeedIndex.Entry> next) {
+            for (FeedIndex.Entry entry : next) {
+                if (entry.getPublishTime() <= publishedAfter) {
+                    exhausted = true;
+                    return;
+                }
+                buffer.addLast(entry);
+                position = entry;
+            }
+            if (next.isEmpty()) {
+                exhausted = true;
+            }
+        }
+
+        private List<FeedIndex.Entry> read(FeedIndex.Entry from) {
+            List<FeedIndex.Entry> fromIndex = readIndex(from);
+            if (!fromIndex.isEmpty() || index.isComplete()) {
+                return fromIndex;
+            }
+
+            boolean continuesIndex = continuesIndex(from);
+
+            logger.trace("Reading a segment of author {} from database", authorId);
+            List<FeedIndex.Entry> segment = fetchSegment(authorId, from);
+            if (continuesIndex) {
+                segment.forEach(e -> index.add(e.getFeedId(), e.getPublishTime()));
+                if (segment.size() < segmentSize && index.size() < indexCapacity) {
+                    index.markComplete();
+                }
+            }
+            return segment;
+        }
+
+        private List<FeedIndex.Entry> readIndex(FeedIndex.Entry from) {
+            return from == null ?
+                    index.newest(0, segmentSize, publishedAfter) :
+                    index.before(from.getPublishTime(), from.getFeedId(), segmentSize, publishedAfter);
+        }
+
+        private boolean continuesIndex(FeedIndex.Entry from) {
+            FeedIndex.Entry oldest = index.oldest();
+            return oldest == null ? from == null :
+                    from != null && from.getFeedId() == oldest.getFeedId() && from.getPublishTime() == oldest.getPublishTime();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.yardimci.asocialoud.feeds.write;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.feeds.cache.FeedVersions;
+import org.yardimci.asocialoud.feeds.cache.RecentFeedsCache;
+import org.yardimci.asocialoud.feeds.counters.PostCounters;
+import org.yardimci.asocialoud.feeds.counters.RelaudCounters;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.dto.FeedMapper;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+import org.yardimci.asocialoud.feeds.search.FeedSearchIndex;
+import org.yardimci.asocialoud.feeds.stream.FeedBroadcaster;
+import org.yardimci.asocialoud.feeds.tags.TagStage;
+import org.yardimci.asocialoud.feeds.timeline.HomeTimelineService;
+
+/**
+ * Everything derived from a feed once it is in the store : counters, timelines, caches, indexes and streams.
+ * Called by the create endpoints, or by the {@link FeedWriteBehind} committer after the batch holding the feed.
+ */
+@Component
+public class FeedPublisher {
+
+    @Autowired
+    private PostCounters postCounters;
+
+    @Autowired
+    private RelaudCounters relaudCounters;
+
+    @Autowired
+    private HomeTimelineService homeTimelineService;
+
+    @Autowired
+    private RecentFeedsCache recentFeedsCache;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    @Autowired
+    private FeedSearchIndex feedSearchIndex;
+
+    @Autowired
+    private TagStage tagStage;
+
+    @Autowired
+    private FeedMapper feedMapper;
+
+    @Autowired
+    private FeedBroadcaster feedBroadcaster;
+
+    public FeedResponseDto published(Feed feed) {
+        postCounters.increment(feed.getMemberId());
+        homeTimelineService.publish(feed);
+        recentFeedsCache.add(feed);
+        feedVersions.touch(feed.getMemberId());
+        if (feed.getRelaudOf() != null) {
+            // the original is already searchable and tagged
+            relaudCounters.increment(feed.getRelaudOf());
+        } else {
+            feedSearchIndex.add(feed);
+            tagStage.process(feed);
+        }
+
+        FeedResponseDto feedResponseDto = feedMapper.map(feed);
+        feedBroadcaster.publish(feedResponseDto);
+        return feedResponseDto;
+    }
+}
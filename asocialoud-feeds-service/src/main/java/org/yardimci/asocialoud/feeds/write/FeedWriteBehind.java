@@ -0,0 +1,249 @@
+package org.yardimci.asocialoud.feeds.write;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.id.AsocialoudIdGenerator;
+import org.yardimci.asocialoud.commons.id.IdAllocator;
+import org.yardimci.asocialoud.feeds.cache.FeedVersions;
+import org.yardimci.asocialoud.feeds.db.model.Feed;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind of new feeds, used by create when {@code enabled}. A feed gets its id and is queued, the request
+ * is answered right away, and a committer thread saves queued feeds {@code batchSize} at a time in one
+ * transaction (one sync with the log store), waiting at most {@code maxLatencyMillis} for a batch to fill.
+ * The queue holds {@code queueSize} feeds at most, create is refused when it is full.
+ * <p>
+ * Queued feeds are kept by member until they are written, so that the author's profile shows them right away.
+ * Feeds still queued are lost if the service dies; they are written before a normal shutdown completes.
+ */
+@Component
+public class FeedWriteBehind implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedWriteBehind.class);
+
+    @Autowired
+    private FeedStore feedStore;
+
+    @Autowired
+    private FeedPublisher feedPublisher;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    private final boolean enabled;
+    private final int queueSize;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final IdAllocator idAllocator;
+
+    // lock-free, bounded by the size counter : a slot is taken before offering and given back when polled
+    private final Queue<Feed> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    // member id -> queued feeds of the member newest first, lists are replaced and never changed
+    private final Map<Long, List<Feed>> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private final Thread committer;
+    private volatile boolean stopped;
+
+    public FeedWriteBehind(@Value("${asocialoud.feeds.write-behind.enabled:false}") boolean enabled,
+                           @Value("${asocialoud.feeds.write-behind.queue-size:10000}") int queueSize,
+                           @Value("${asocialoud.feeds.write-behind.batch-size:200}") int batchSize,
+                           @Value("${asocialoud.feeds.write-behind.max-latency-millis:10}") long maxLatencyMillis,
+                           @Value("${spring.jpa.properties.asocialoud.id.strategy:time}") String idStrategy,
+                           @Value("${spring.jpa.properties.asocialoud.id.node:0}") int node) {
+        if (enabled && !"time".equalsIgnoreCase(idStrategy)) {
+            // ids are handed out before the insert, which a database sequence can not do
+            throw new IllegalStateException("Write-behind of feeds needs the time id strategy : " + idStrategy);
+        }
+        this.enabled = enabled;
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.idAllocator = AsocialoudIdGenerator.allocatorOf(node);
+        this.committer = new Thread(this::commitLoop, "feed-write-behind");
+        this.committer.setDaemon(true);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            committer.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gives the feed its id and queues it. Returns false, leaving the feed as it is, when the queue is full.
+     */
+    public boolean offer(Feed feed) {
+        if (stopped) {
+            return false;
+        }
+        int queued = size.incrementAndGet();
+        if (queued > queueSize) {
+            size.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        feed.setId(idAllocator.nextId());
+        pending.compute(feed.getMemberId(), (memberId, feeds) -> {
+            List<Feed> result = new ArrayList<>(feeds == null ? 1 : feeds.size() + 1);
+            result.add(feed);
+            if (feeds != null) {
+                result.addAll(feeds);
+            }
+            return result;
+        });
+        // profile pages change with the queued feed
+        feedVersions.touch(feed.getMemberId());
+        queue.offer(feed);
+        accepted.increment();
+
+        // the committer sleeps while the queue is empty, and waits for a batch to fill otherwise
+        if (queued == 1 || queued >= batchSize) {
+            LockSupport.unpark(committer);
+        }
+        return true;
+    }
+
+    // queued feeds of the member, newest first
+    public List<Feed> pendingOf(Long memberId) {
+        return pending.getOrDefault(memberId, Collections.emptyList());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", size.get());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+
+    private void commitLoop() {
+        List<Feed> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Feed first = poll();
+            if (first == null) {
+                if (stopped) {
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+
+            batch.add(first);
+            long deadline = System.nanoTime() + maxLatencyNanos;
+            while (batch.size() < batchSize) {
+                Feed next = poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+                long wait = deadline - System.nanoTime();
+                if (wait <= 0 || stopped) {
+                    break;
+                }
+                LockSupport.parkNanos(this, wait);
+            }
+
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private Feed poll() {
+        Feed feed = queue.poll();
+        if (feed != null) {
+            size.decrementAndGet();
+        }
+        return feed;
+    }
+
+    private void write(List<Feed> batch) {
+        try {
+            feedStore.saveAll(batch);
+            batches.increment();
+        } catch (RuntimeException e) {
+            // one bad feed should not lose the others
+            logger.error("Unable to save a batch of " + batch.size() + " feeds, saving them one by one", e);
+            for (Iterator<Feed> iterator = batch.iterator(); iterator.hasNext(); ) {
+                Feed feed = iterator.next();
+                try {
+                    feedStore.save(feed);
+                } catch (RuntimeException ex) {
+                    logger.error("Unable to save feed " + feed.getId() + " of " + feed.getMemberId(), ex);
+                    failed.increment();
+                    iterator.remove();
+                    removePending(feed);
+                }
+            }
+        }
+        written.add(batch.size());
+
+        for (Feed feed : batch) {
+            try {
+                feedPublisher.published(feed);
+            } catch (RuntimeException e) {
+                logger.error("Unable to publish feed " + feed.getId(), e);
+            }
+            // after the recent feeds cache has it, so the author never misses it
+            removePending(feed);
+        }
+    }
+
+    private void removePending(Feed feed) {
+        pending.computeIfPresent(feed.getMemberId(), (memberId, feeds) -> {
+            List<Feed> result = new ArrayList<>(feeds);
+            result.removeIf(queued -> queued.getId().equals(feed.getId()));
+            return result.isEmpty() ? null : result;
+        });
+        feedVersions.touch(feed.getMemberId());
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        stopped = true;
+        if (committer.isAlive()) {
+            // writes what is queued, then stops
+            LockSupport.unpark(committer);
+            committer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        if (size.get() > 0) {
+            logger.warn("{} queued feeds were not written", size.get());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.yardimci.asocialoud.feeds.write;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+
+/**
+ * Feeds a member may create, by member id. Create answers 429 once the member's burst is used up.
+ */
+@Component
+public class PostRateLimiter extends RateLimiter<Long> {
+
+    public PostRateLimiter(@Value("${asocialoud.ratelimit.create.per-second:1}") double permitsPerSecond,
+                           @Value("${asocialoud.ratelimit.create.burst:20}") int burst) {
+        super(permitsPerSecond, burst);
+    }
+}
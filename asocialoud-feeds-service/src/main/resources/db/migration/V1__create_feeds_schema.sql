@@ -0,0 +1,11 @@
+-- Schema as hibernate created it before migrations were managed.
+-- Databases created that way are baselined at this version and start from V2.
+
+create table tbl_feeds (
+    id bigint generated by default as identity,
+    text varchar(256) not null,
+    media_uri varchar(256),
+    member_id bigint not null,
+    publish_date timestamp not null,
+    primary key (id)
+);
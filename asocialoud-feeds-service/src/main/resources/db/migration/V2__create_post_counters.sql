@@ -0,0 +1,6 @@
+-- may already be there in databases hibernate updated before migrations were managed
+create table if not exists tbl_post_counters (
+    member_id bigint not null,
+    post_count bigint not null,
+    primary key (member_id)
+);
@@ -0,0 +1,2 @@
+-- feeds of a member newest first, in the (publish date, id) order of keyset pages
+create index idx_feeds_member_publish on tbl_feeds (member_id, publish_date desc, id desc);
@@ -0,0 +1,2 @@
+-- oldest feeds and the members of a month, for moving old months to the archive
+create index idx_feeds_publish on tbl_feeds (publish_date, id);
@@ -0,0 +1,3 @@
+-- relauds point to their original : counted by original, and a member relauds an original once
+alter table tbl_feeds add column relaud_of bigint;
+create unique index ux_feeds_relaud on tbl_feeds (relaud_of, member_id);
@@ -0,0 +1,4 @@
+-- declared by the id generator whatever the id strategy is, databases baselined at V1 have none yet
+-- and their rows have identity ids, so the sequences start past them
+create sequence if not exists seq_feeds start with 1 increment by 50;
+alter sequence seq_feeds restart with (select coalesce(max(id), 0) + 1 from tbl_feeds);
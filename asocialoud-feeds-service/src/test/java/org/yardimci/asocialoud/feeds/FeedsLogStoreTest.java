@@ -0,0 +1,21 @@
+package org.yardimci.asocialoud.feeds;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the feeds scenarios against the memory-mapped log engine, in a fresh log directory.
+ * The search index flushes and merges after a few feeds here, post counters are counted from the new log.
+ */
+@TestPropertySource(properties = {
+        "asocialoud.feeds.store=log",
+        "asocialoud.feeds.log.directory=target/feeds-log-test/${random.uuid}",
+        "asocialoud.feeds.log.segment-size=65536",
+        "asocialoud.search.directory=target/feeds-search-test/${random.uuid}",
+        "asocialoud.search.flush-postings=8",
+        "asocialoud.search.max-segments=2",
+        "asocialoud.search.merge-factor=2",
+        "asocialoud.tags.index.directory=target/feeds-tags-test/${random.uuid}",
+        "asocialoud.counters.rebuild-on-start=true"
+})
+public class FeedsLogStoreTest extends FeedsTest {
+}
@@ -1,36 +1,91 @@
 package org.yardimci.asocialoud.feeds;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import org.apache.http.HttpStatus;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.server.LocalServerPort;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.yardimci.asocialoud.feeds.archive.FeedArchive;
+import org.yardimci.asocialoud.feeds.archive.FeedArchiver;
+import org.yardimci.asocialoud.feeds.counters.PostCounters;
 import org.yardimci.asocialoud.feeds.db.model.Feed;
 import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
-
+import org.yardimci.asocialoud.feeds.db.repository.PostCounterRepository;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+import org.yardimci.asocialoud.feeds.dto.FeedCursor;
+import org.yardimci.asocialoud.feeds.dto.FeedResponseDto;
+import org.yardimci.asocialoud.feeds.security.MemberTokens;
+import org.yardimci.asocialoud.feeds.stream.FeedBroadcaster;
+import org.yardimci.asocialoud.feeds.timeline.TimelineMergeEngine;
+
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = {AsocialoudFeedService.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "asocialoud.archive.directory=target/feeds-archive-test/${random.uuid}",
+        "asocialoud.archive.interval-millis=0",
+        "asocialoud.media.directory=target/feeds-media-test/${random.uuid}",
+        "asocialoud.media.max-bytes=262144",
+        "asocialoud.stream.send-timeout-millis=200"
+})
 public class FeedsTest {
 
     @Autowired
-    private FeedRepository feedRepository;
+    private FeedStore feedStore;
+
+    @Autowired
+    private TimelineMergeEngine timelineMergeEngine;
+
+    @Autowired
+    private FeedBroadcaster feedBroadcaster;
+
+    @Autowired
+    private PostCounters postCounters;
+
+    @Autowired
+    private PostCounterRepository postCounterRepository;
+
+    @Autowired
+    private FeedArchive feedArchive;
+
+    // only with the jpa store
+    @Autowired(required = false)
+    private FeedArchiver feedArchiver;
 
     @LocalServerPort
     private int port;
@@ -54,10 +109,10 @@ public class FeedsTest {
     @Test
     @Transactional
     public void when_member_has_new_feed_then_saved() {
-        Feed feed = createFeed(2L, "Feed 1 of member 2");
-        feedRepository.save(feed);
+        Feed feed = createFeed(5L, "Feed 1 of member 5");
+        feedStore.save(feed);
 
-        List<Feed> feedsOfMember = feedRepository.findAllByMemberIdOrderByPublishDateDesc(2L, PageRequest.of(0, FeedRepository.FETCH_COUNT));
+        List<Feed> feedsOfMember = feedStore.findPage(5L, 0, FeedRepository.FETCH_COUNT);
         assertEquals(1, feedsOfMember.size());
 
     }
@@ -69,23 +124,23 @@ public class FeedsTest {
 
         for (int i = 0; i < 18; i++) {
             Feed feed = createFeed(memberId, "Feed " + i + " of member " + memberId);
-            feedRepository.save(feed);
+            feedStore.save(feed);
         }
 
-        Long totalFeedCount = feedRepository.countByMemberId(memberId);
+        long totalFeedCount = feedStore.countByMemberId(memberId);
         int totalPage = (int) (totalFeedCount / FeedRepository.FETCH_COUNT) + 1;
         int lastPageFeedCount = (int) (totalFeedCount % FeedRepository.FETCH_COUNT);
 
         List<Feed> feedsOfMember;
         for (int p = 0; p < totalPage; p++) {
-            feedsOfMember = feedRepository.findAllByMemberIdOrderByPublishDateDesc(2L, PageRequest.of(p, FeedRepository.FETCH_COUNT));
+            feedsOfMember = feedStore.findPage(2L, p, FeedRepository.FETCH_COUNT);
             if (p < totalPage - 1) {
                 assertEquals(FeedRepository.FETCH_COUNT, feedsOfMember.size());
             } else {
                 assertEquals(lastPageFeedCount, feedsOfMember.size());
 
-                feedRepository.save(createFeed(memberId, "Another deed of member " + memberId));
-                feedsOfMember = feedRepository.findAllByMemberIdOrderByPublishDateDesc(2L, PageRequest.of(p, FeedRepository.FETCH_COUNT));
+                feedStore.save(createFeed(memberId, "Another deed of member " + memberId));
+                feedsOfMember = feedStore.findPage(2L, p, FeedRepository.FETCH_COUNT);
                 assertEquals(lastPageFeedCount + 1, feedsOfMember.size());
 
             }
@@ -93,25 +148,75 @@ public class FeedsTest {
 
     }
 
+    @Test
+    @Transactional
+    public void when_member_has_many_feeds_then_viewable_by_keyset_paging() {
+        Long memberId = 4L;
+
+        for (int i = 0; i < 18; i++) {
+            feedStore.save(createFeed(memberId, "Feed " + i + " of member " + memberId));
+        }
+
+        Set<Long> seenIds = new HashSet<>();
+        List<Feed> feedsOfMember = feedStore.findNewest(memberId, FeedRepository.FETCH_COUNT);
+        while (!feedsOfMember.isEmpty()) {
+            feedsOfMember.forEach(f -> assertTrue(seenIds.add(f.getId())));
+            FeedCursor cursor = FeedCursor.decode(FeedCursor.of(feedsOfMember.get(feedsOfMember.size() - 1)).encode());
+            feedsOfMember = feedStore.findBefore(memberId, cursor, FeedRepository.FETCH_COUNT);
+        }
+
+        assertEquals(feedStore.countByMemberId(memberId), seenIds.size());
+    }
+
+    // not transactional, author segments are read on the merge pool
+    @Test
+    public void when_author_streams_merged_then_same_as_query() {
+        for (int i = 0; i < 12; i++) {
+            feedStore.save(createFeed(911L + i % 3, "Merged feed " + i));
+        }
+
+        List<Long> authorIds = Arrays.asList(911L, 912L, 913L);
+        List<Feed> queried = feedStore.findNewestOf(authorIds, new Date(0), 10);
+        List<Feed> merged = timelineMergeEngine.findFeeds(authorIds, null, null, 0, 10);
+
+        assertEquals(queried.size(), merged.size());
+        for (int i = 0; i < queried.size(); i++) {
+            assertEquals(queried.get(i).getId(), merged.get(i).getId());
+        }
+
+        // authors not read yet below a cursor, their first segments come from one query
+        for (int i = 0; i < 12; i++) {
+            feedStore.save(createFeed(921L + i % 3, "Merged feed " + i));
+        }
+        List<Long> coldAuthorIds = Arrays.asList(921L, 922L, 923L);
+        FeedCursor cursor = FeedCursor.of(feedStore.findNewestOf(coldAuthorIds, new Date(0), 3).get(2));
+        queried = feedStore.findBeforeOf(coldAuthorIds, new Date(0), cursor, 10);
+        merged = timelineMergeEngine.findFeeds(coldAuthorIds, cursor, null, 0, 10);
+
+        assertEquals(queried.size(), merged.size());
+        for (int i = 0; i < queried.size(); i++) {
+            assertEquals(queried.get(i).getId(), merged.get(i).getId());
+        }
+    }
+
     @Test
     @Transactional
     public void when_feeds_requested_then_listed() {
-        Feed feed = createFeed(2L, "Feed 1 of member 2");
-        Feed feed2 = createFeed(2L, "Feed 2 of member 2");
-        Feed feed3 = createFeed(3L, "Feed 1 of member 3");
-        feedRepository.save(feed);
-        feedRepository.save(feed2);
-        feedRepository.save(feed3);
+        Feed feed = createFeed(7L, "Feed 1 of member 7");
+        Feed feed2 = createFeed(7L, "Feed 2 of member 7");
+        Feed feed3 = createFeed(8L, "Feed 1 of member 8");
+        feedStore.save(feed);
+        feedStore.save(feed2);
+        feedStore.save(feed3);
 
         Calendar cal = Calendar.getInstance();
         cal.setTimeInMillis(feed3.getPublishDate().getTime() - 1000 * 60);
 
         Date feedsAfter = cal.getTime();
 
-        Long[] memberIds = {2L, 3L};
+        Long[] memberIds = {7L, 8L};
 
-        List<Feed> feedsOfMember = feedRepository.
-                findAllByMemberIdInAndPublishDateAfterOrderByPublishDateDesc(memberIds, feedsAfter, PageRequest.of(0, FeedRepository.FETCH_COUNT));
+        List<Feed> feedsOfMember = feedStore.findNewestOf(Arrays.asList(memberIds), feedsAfter, FeedRepository.FETCH_COUNT);
         assertEquals(3, feedsOfMember.size());
 
     }
@@ -139,6 +244,385 @@ public class FeedsTest {
 
     }
 
+    @Test
+    public void when_following_publishes_then_pushed_to_home_timeline() {
+        // followings are only registered for the follower's own token
+        given().params("followerId", 901).when()
+                .get("/api/feeds/followingsof/902,903").then().statusCode(HttpStatus.SC_UNAUTHORIZED);
+
+        // first read builds the home timeline of follower 901
+        given().header("Authorization", bearerOf(901L)).params("followerId", 901).when()
+                .get("/api/feeds/followingsof/902,903").then().statusCode(HttpStatus.SC_OK);
+
+        given().contentType(ContentType.JSON).body("{\"memberId\" : 902, \"text\" : \"pushed feed of 902\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+
+        Response response = given().header("Authorization", bearerOf(901L)).params("followerId", 901).when()
+                .get("/api/feeds/followingsof/902,903").then().contentType(ContentType.JSON).extract().response();
+
+        assertEquals(HttpStatus.SC_OK, response.getStatusCode());
+        assertEquals("pushed feed of 902", response.jsonPath().getString("data[0].text"));
+    }
+
+    @Test
+    public void when_profile_read_again_then_served_from_recent_feeds_cache() {
+        // database file outlives test runs, start with a member without feeds
+        long memberId = System.currentTimeMillis();
+        for (int i = 0; i < 7; i++) {
+            given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"cached feed " + i + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        }
+        when().get("/api/feeds/of/" + memberId).then().statusCode(HttpStatus.SC_OK);
+        long hits = when().get("/api/feeds/cache/stats").then().extract().jsonPath().getLong("data.hits");
+
+        given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"written through\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+
+        Response firstPage = when().get("/api/feeds/of/" + memberId).then().contentType(ContentType.JSON).extract().response();
+        assertEquals("written through", firstPage.jsonPath().getString("data[0].text"));
+        assertEquals(FeedRepository.FETCH_COUNT, firstPage.jsonPath().getList("data").size());
+
+        Response secondPage = given().params("cursor", firstPage.jsonPath().getString("cursor"))
+                .when().get("/api/feeds/of/" + memberId).then().contentType(ContentType.JSON).extract().response();
+        assertEquals(3, secondPage.jsonPath().getList("data").size());
+        assertEquals("cached feed 0", secondPage.jsonPath().getString("data[2].text"));
+
+        assertEquals(hits + 2, when().get("/api/feeds/cache/stats").then().extract().jsonPath().getLong("data.hits"));
+    }
+
+    @Test
+    public void when_following_publishes_then_streamed_to_follower() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        CountDownLatch delivered = new CountDownLatch(1);
+        feedBroadcaster.subscribe(931L, Arrays.asList(932L), new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                sent.incrementAndGet();
+                delivered.countDown();
+            }
+        });
+
+        given().contentType(ContentType.JSON).body("{\"memberId\" : 933, \"text\" : \"not followed\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        given().contentType(ContentType.JSON).body("{\"memberId\" : 932, \"text\" : \"streamed feed of 932\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    public void when_token_is_not_of_member_then_home_and_invalidation_refused() {
+        given().header("Authorization", bearerOf(962L))
+                .when().get("/api/feeds/home/961").then().statusCode(HttpStatus.SC_UNAUTHORIZED);
+        when().get("/api/feeds/stream/961").then().statusCode(HttpStatus.SC_UNAUTHORIZED);
+        when().post("/api/feeds/home/961/invalidate").then().statusCode(HttpStatus.SC_FORBIDDEN);
+        given().header(MemberTokens.INTERNAL_SECRET_HEADER, "asocialoud-internal-secret")
+                .when().post("/api/feeds/home/961/invalidate").then().statusCode(HttpStatus.SC_OK);
+    }
+
+    @Test
+    public void when_stream_subscriber_is_slow_then_dropped() throws Exception {
+        CountDownLatch stuck = new CountDownLatch(1);
+        feedBroadcaster.subscribe(941L, Arrays.asList(942L), stuckEmitter(stuck));
+        int subscribers = feedBroadcaster.subscriberCount();
+        long dropped = feedBroadcaster.droppedCount();
+
+        FeedResponseDto feed = new FeedResponseDto();
+        feed.setMemberId(942L);
+        feed.setText("too many feeds");
+        for (int i = 0; i < 100; i++) {
+            feedBroadcaster.publish(feed);
+        }
+        stuck.countDown();
+
+        assertEquals(dropped + 1, feedBroadcaster.droppedCount());
+        assertEquals(subscribers - 1, feedBroadcaster.subscriberCount());
+    }
+
+    @Test
+    public void when_stream_sends_stall_then_other_streams_go_on() throws Exception {
+        // as many stuck sockets as sender threads
+        CountDownLatch stuck = new CountDownLatch(1);
+        feedBroadcaster.subscribe(971L, Arrays.asList(970L), stuckEmitter(stuck));
+        feedBroadcaster.subscribe(972L, Arrays.asList(970L), stuckEmitter(stuck));
+        CountDownLatch delivered = new CountDownLatch(1);
+        feedBroadcaster.subscribe(973L, Arrays.asList(970L), new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                delivered.countDown();
+            }
+        });
+
+        FeedResponseDto feed = new FeedResponseDto();
+        feed.setMemberId(970L);
+        feed.setText("past stalled streams");
+        feedBroadcaster.publish(feed);
+
+        try {
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            stuck.countDown();
+        }
+    }
+
+    // blocks in send holding the emitter's lock like a write to a client that stopped reading, so completing waits too
+    private static SseEmitter stuckEmitter(CountDownLatch stuck) {
+        return new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                synchronized (this) {
+                    try {
+                        stuck.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+    }
+
+    @Test
+    public void when_feeds_searched_then_newest_matches_listed_first() {
+        // index outlives test runs, search for a word no earlier run has written
+        String word = "w" + System.currentTimeMillis();
+        for (int i = 0; i < 7; i++) {
+            String text = "searched " + word + (i % 2 == 0 ? " even" : " odd") + " number " + i;
+            given().contentType(ContentType.JSON).body("{\"memberId\" : 951, \"text\" : \"" + text + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        }
+
+        Response firstPage = given().params("q", word.toUpperCase())
+                .when().get("/api/feeds/search").then().contentType(ContentType.JSON).extract().response();
+        assertEquals(FeedRepository.FETCH_COUNT, firstPage.jsonPath().getList("data").size());
+        assertEquals("searched " + word + " even number 6", firstPage.jsonPath().getString("data[0].text"));
+
+        Response secondPage = given().params("q", word, "cursor", firstPage.jsonPath().getString("cursor"))
+                .when().get("/api/feeds/search").then().contentType(ContentType.JSON).extract().response();
+        assertEquals(2, secondPage.jsonPath().getList("data").size());
+        assertEquals("searched " + word + " odd number 1", secondPage.jsonPath().getString("data[0].text"));
+
+        Response odd = given().params("q", "odd " + word).when().get("/api/feeds/search").then().extract().response();
+        assertEquals(3, odd.jsonPath().getList("data").size());
+        assertEquals("searched " + word + " odd number 5", odd.jsonPath().getString("data[0].text"));
+    }
+
+    @Test
+    public void when_feeds_tagged_then_listed_by_tag_and_trending() {
+        String tag = "t" + System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            given().contentType(ContentType.JSON).body("{\"memberId\" : 961, \"text\" : \"tagged #" + tag + " for @Member962 number " + i + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        }
+        given().contentType(ContentType.JSON).body("{\"memberId\" : 961, \"text\" : \"not tagged " + tag + " mail@" + tag + "\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+
+        Response tagged = when().get("/api/feeds/tag/" + tag.toUpperCase()).then().contentType(ContentType.JSON).extract().response();
+        assertEquals(3, tagged.jsonPath().getList("data").size());
+        assertEquals("tagged #" + tag + " for @Member962 number 2", tagged.jsonPath().getString("data[0].text"));
+
+        Response mentioning = when().get("/api/feeds/mentions/member962").then().extract().response();
+        assertTrue(mentioning.jsonPath().getList("data").size() >= 3);
+
+        Response trending = given().params("window", "5m", "count", 64).when().get("/api/feeds/trending").then().extract().response();
+        assertTrue(trending.jsonPath().getList("data.tag").contains(tag));
+        assertEquals(org.springframework.http.HttpStatus.BAD_REQUEST.toString(), given().params("window", "2m").when().get("/api/feeds/trending").then().extract().jsonPath().getString("status"));
+    }
+
+    @Test
+    public void when_feeds_created_then_counted_in_member_stats() {
+        long memberId = 100000L + System.currentTimeMillis() % 100000L;
+        for (int i = 0; i < 3; i++) {
+            given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"counted feed " + i + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        }
+
+        Response stats = when().get("/api/feeds/stats/" + memberId).then().contentType(ContentType.JSON).extract().response();
+        assertEquals(3, stats.jsonPath().getInt("data.postCount"));
+        assertEquals(feedStore.countByMemberId(memberId), stats.jsonPath().getLong("data.postCount"));
+
+        postCounters.flush();
+        assertEquals(3L, postCounterRepository.findById(memberId).get().getPostCount());
+
+        when().post("/api/feeds/counters/rebuild").then().statusCode(HttpStatus.SC_OK);
+        assertEquals(3, when().get("/api/feeds/stats/" + memberId).then().extract().jsonPath().getInt("data.postCount"));
+    }
+
+    @Test
+    public void when_binary_format_accepted_then_page_encoded_with_it() throws IOException {
+        long memberId = 200000L + System.currentTimeMillis() % 100000L;
+        for (int i = 0; i < 2; i++) {
+            given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"binary feed " + i + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        }
+
+        byte[] cbor = given().accept("application/cbor").when().get("/api/feeds/of/" + memberId)
+                .then().statusCode(HttpStatus.SC_OK).contentType("application/cbor").extract().asByteArray();
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertEquals(org.springframework.http.HttpStatus.OK.toString(), page.get("status").asText());
+        assertEquals(2, page.get("data").size());
+
+        byte[] smile = given().accept("application/x-jackson-smile").when().get("/api/feeds/of/" + memberId)
+                .then().statusCode(HttpStatus.SC_OK).extract().asByteArray();
+        assertEquals("binary feed 1", new ObjectMapper(new SmileFactory()).readTree(smile).get("data").get(0).get("text").asText());
+
+        // json stays the default, without indentation
+        String json = when().get("/api/feeds/of/" + memberId).then().contentType(ContentType.JSON).extract().asString();
+        assertFalse(json.contains("\n"));
+    }
+
+    @Test
+    public void when_page_unchanged_then_not_modified_until_member_posts() {
+        long memberId = 300000L + System.currentTimeMillis() % 100000L;
+        given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"tagged feed\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+
+        Response first = when().get("/api/feeds/of/" + memberId).then().statusCode(HttpStatus.SC_OK).extract().response();
+        String etag = first.getHeader("ETag");
+        assertTrue(etag.startsWith("\""));
+        assertTrue(first.getHeader("Last-Modified") != null);
+
+        given().header("If-None-Match", etag).when().get("/api/feeds/of/" + memberId)
+                .then().statusCode(HttpStatus.SC_NOT_MODIFIED);
+        // another page or format is another representation
+        given().header("If-None-Match", etag).queryParam("start", 1).when().get("/api/feeds/of/" + memberId)
+                .then().statusCode(HttpStatus.SC_OK);
+
+        given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"newer feed\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        Response changed = given().header("If-None-Match", etag).when().get("/api/feeds/of/" + memberId)
+                .then().statusCode(HttpStatus.SC_OK).extract().response();
+        assertFalse(etag.equals(changed.getHeader("ETag")));
+        assertEquals(2, changed.jsonPath().getList("data").size());
+    }
+
+    @Test
+    public void when_old_month_archived_then_pages_continue_in_archive() {
+        Assume.assumeTrue(feedArchiver != null);
+        long memberId = 400000L + System.currentTimeMillis() % 100000L;
+
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2010, Calendar.JANUARY, 10);
+        for (int i = 0; i < 7; i++) {
+            Feed feed = createFeed(memberId, "archived feed " + i);
+            feed.setPublishDate(new Date(calendar.getTimeInMillis() + i * 60_000L));
+            feedStore.save(feed);
+        }
+        for (int i = 0; i < 3; i++) {
+            feedStore.save(createFeed(memberId, "recent feed " + i));
+        }
+
+        calendar.set(2010, Calendar.FEBRUARY, 1);
+        assertTrue(feedArchiver.archiveBefore(calendar.getTime()) > 0);
+        assertEquals(3, feedStore.countByMemberId(memberId));
+
+        // first pages come from the cache, filled from both tiers
+        Set<String> texts = new HashSet<>();
+        String cursor = null;
+        do {
+            Response page = (cursor == null ? given() : given().params("cursor", cursor)).get("/api/feeds/of/" + memberId)
+                    .then().statusCode(HttpStatus.SC_OK).extract().response();
+            page.jsonPath().getList("data.text", String.class).forEach(text -> assertTrue(texts.add(text)));
+            cursor = page.jsonPath().getString("cursor");
+        } while (cursor != null);
+        assertEquals(10, texts.size());
+
+        List<Feed> stored = feedStore.findNewest(memberId, FeedRepository.FETCH_COUNT);
+        List<Feed> filled = feedArchive.fillUp(memberId, stored, null, FeedRepository.FETCH_COUNT);
+        assertEquals(FeedRepository.FETCH_COUNT, filled.size());
+        assertEquals("archived feed 6", filled.get(3).getText());
+        assertEquals(1, feedArchive.findAllById(Arrays.asList(filled.get(4).getId())).size());
+
+        postCounters.rebuild();
+        assertEquals(10, postCounters.count(memberId));
+    }
+
+    @Test
+    public void when_member_posts_past_burst_then_too_many_requests() {
+        long memberId = 500000L + System.currentTimeMillis() % 100000L;
+        for (int i = 0; i < 20; i++) {
+            given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"burst feed " + i + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED);
+        }
+
+        // a slow burst gets a token back every second, so keep posting until the bucket is empty
+        int created = 20;
+        Response limited;
+        while ((limited = given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"one too many\"}")
+                .when().post("/api/feeds/create")).statusCode() == HttpStatus.SC_CREATED) {
+            assertTrue(++created < 30);
+        }
+        assertEquals(429, limited.statusCode());
+        assertEquals("error.toomanyrequests", limited.jsonPath().getString("data"));
+        assertTrue(Long.parseLong(limited.getHeader("Retry-After")) >= 1);
+        assertEquals(created, feedStore.countByMemberId(memberId));
+    }
+
+    @Test
+    public void when_feed_relauded_by_followings_then_shown_once_with_count() {
+        long author = 700000L + System.currentTimeMillis() % 100000L * 4;
+        long relauder1 = author + 1;
+        long relauder2 = author + 2;
+        long follower = author + 3;
+
+        long feedId = given().contentType(ContentType.JSON).body("{\"memberId\" : " + author + ", \"text\" : \"feed worth relauding\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_CREATED).extract().jsonPath().getLong("data.id");
+
+        String relauder1Body = "{\"memberId\" : " + relauder1 + "}";
+        given().contentType(ContentType.JSON).body(relauder1Body)
+                .when().post("/api/feeds/relaud/" + feedId).then().statusCode(HttpStatus.SC_CREATED);
+        given().contentType(ContentType.JSON).body("{\"memberId\" : " + relauder2 + "}")
+                .when().post("/api/feeds/relaud/" + feedId).then().statusCode(HttpStatus.SC_CREATED);
+        given().contentType(ContentType.JSON).body(relauder1Body)
+                .when().post("/api/feeds/relaud/" + feedId).then().statusCode(HttpStatus.SC_EXPECTATION_FAILED);
+        given().contentType(ContentType.JSON).body("{\"memberId\" : " + author + "}")
+                .when().post("/api/feeds/relaud/" + feedId).then().statusCode(HttpStatus.SC_BAD_REQUEST);
+
+        Response response = given().header("Authorization", bearerOf(follower)).params("followerId", follower).when()
+                .get("/api/feeds/followingsof/" + author + "," + relauder1 + "," + relauder2).then().statusCode(HttpStatus.SC_OK)
+                .extract().response();
+        assertEquals(1, response.jsonPath().getList("data").size());
+        assertEquals("feed worth relauding", response.jsonPath().getString("data[0].text"));
+        assertEquals(author, response.jsonPath().getLong("data[0].memberId"));
+        assertEquals(2, response.jsonPath().getLong("data[0].relauds"));
+
+        // followers of a relauder only get the original through the relaud
+        response = given().when().get("/api/feeds/followingsof/" + relauder1 + "," + relauder2).then().statusCode(HttpStatus.SC_OK)
+                .extract().response();
+        assertEquals(1, response.jsonPath().getList("data").size());
+        assertEquals(feedId, response.jsonPath().getLong("data[0].id"));
+        assertEquals(relauder2, response.jsonPath().getLong("data[0].relaudedBy"));
+    }
+
+    @Test
+    public void when_media_uploaded_then_stored_once_and_served_by_range() {
+        long memberId = 900000L + System.currentTimeMillis() % 100000L;
+        byte[] media = new byte[100 * 1024];
+        new Random(memberId).nextBytes(media);
+
+        String uri = given().contentType("image/png").body(media).when().post("/api/feeds/media?memberId=" + memberId)
+                .then().statusCode(HttpStatus.SC_CREATED).extract().jsonPath().getString("data");
+        String again = given().contentType("image/png").body(media).when().post("/api/feeds/media?memberId=" + memberId)
+                .then().statusCode(HttpStatus.SC_CREATED).extract().jsonPath().getString("data");
+        assertEquals(uri, again);
+
+        Response whole = when().get(uri).then().statusCode(HttpStatus.SC_OK).extract().response();
+        assertTrue(Arrays.equals(media, whole.asByteArray()));
+        assertTrue(whole.getHeader("Cache-Control").contains("immutable"));
+
+        Response part = given().header("Range", "bytes=1000-1999").when().get(uri)
+                .then().statusCode(HttpStatus.SC_PARTIAL_CONTENT).extract().response();
+        assertEquals("bytes 1000-1999/" + media.length, part.getHeader("Content-Range"));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(media, 1000, 2000), part.asByteArray()));
+
+        given().header("If-None-Match", whole.getHeader("ETag")).when().get(uri).then().statusCode(HttpStatus.SC_NOT_MODIFIED);
+        given().header("Range", "bytes=" + media.length + "-").when().get(uri).then().statusCode(416);
+        given().contentType("image/png").body(new byte[300 * 1024]).when().post("/api/feeds/media?memberId=" + memberId)
+                .then().statusCode(413);
+        given().contentType("text/html").body(media).when().post("/api/feeds/media?memberId=" + memberId)
+                .then().statusCode(HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE);
+    }
 
     private Feed createFeed(Long memberId, String text) {
         Feed feed = new Feed();
@@ -148,4 +632,10 @@ public class FeedsTest {
         return feed;
     }
 
+    // a token as the members service issues it on login
+    private static String bearerOf(Long memberId) {
+        return "Bearer " + Jwts.builder().claim("memberId", memberId)
+                .signWith(SignatureAlgorithm.HS512, "JwtSecretKey".getBytes()).compact();
+    }
+
 }
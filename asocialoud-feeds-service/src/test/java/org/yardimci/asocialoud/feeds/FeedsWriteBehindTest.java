@@ -0,0 +1,102 @@
+package org.yardimci.asocialoud.feeds;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.yardimci.asocialoud.feeds.db.store.FeedStore;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feed creation with write-behind, batches wait long enough here for queued feeds to be seen before they are written.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AsocialoudFeedService.class}, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "asocialoud.feeds.write-behind.enabled=true",
+        "asocialoud.feeds.write-behind.batch-size=50",
+        "asocialoud.feeds.write-behind.max-latency-millis=500",
+        "asocialoud.archive.directory=target/feeds-archive-test/${random.uuid}",
+        "asocialoud.archive.interval-millis=0"
+})
+public class FeedsWriteBehindTest {
+
+    @Autowired
+    private FeedStore feedStore;
+
+    @LocalServerPort
+    private int port;
+
+    @Before
+    public void init() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+    }
+
+    @Test
+    public void when_feed_queued_then_author_sees_it_before_written() throws InterruptedException {
+        // database file outlives test runs, start with a member without feeds
+        long memberId = System.currentTimeMillis();
+
+        Response accepted = given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"queued feed\"}")
+                .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_ACCEPTED).extract().response();
+        assertEquals("queued feed", accepted.jsonPath().getString("data.text"));
+
+        String authorization = "Bearer " + Jwts.builder().claim("memberId", memberId)
+                .signWith(SignatureAlgorithm.HS512, "JwtSecretKey".getBytes()).compact();
+        Response page = given().header("Authorization", authorization).when().get("/api/feeds/of/" + memberId)
+                .then().statusCode(HttpStatus.SC_OK).extract().response();
+        assertEquals("queued feed", page.jsonPath().getString("data[0].text"));
+        // other viewers only see written feeds
+        page = when().get("/api/feeds/of/" + memberId).then().statusCode(HttpStatus.SC_OK).extract().response();
+        assertTrue(page.jsonPath().getList("data").size() <= feedStore.countByMemberId(memberId));
+
+        awaitWritten(memberId, 1);
+        page = when().get("/api/feeds/of/" + memberId).then().statusCode(HttpStatus.SC_OK).extract().response();
+        assertEquals(1, page.jsonPath().getList("data").size());
+        assertEquals(1, when().get("/api/feeds/stats/" + memberId).then().extract().jsonPath().getInt("data.postCount"));
+    }
+
+    @Test
+    public void when_many_feeds_queued_then_written_in_batches() throws InterruptedException {
+        long memberId = System.currentTimeMillis() + 1;
+        long batches = when().get("/api/feeds/write-behind/stats").then().extract().jsonPath().getLong("data.batches");
+
+        for (int i = 0; i < 20; i++) {
+            given().contentType(ContentType.JSON).body("{\"memberId\" : " + memberId + ", \"text\" : \"batched feed " + i + "\"}")
+                    .when().post("/api/feeds/create").then().statusCode(HttpStatus.SC_ACCEPTED);
+        }
+
+        awaitWritten(memberId, 20);
+        long written = when().get("/api/feeds/write-behind/stats").then().extract().jsonPath().getLong("data.batches") - batches;
+        assertTrue(written >= 1 && written < 20);
+    }
+
+    private void awaitWritten(long memberId, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (feedStore.countByMemberId(memberId) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, feedStore.countByMemberId(memberId));
+        // published after the batch is saved
+        while (when().get("/api/feeds/write-behind/stats").then().extract().jsonPath().getInt("data.queued") > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Thread.sleep(100);
+    }
+}
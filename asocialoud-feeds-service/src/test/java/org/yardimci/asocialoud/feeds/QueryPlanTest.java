@@ -0,0 +1,253 @@
+package org.yardimci.asocialoud.feeds;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.yardimci.asocialoud.feeds.db.repository.FeedRepository;
+import org.yardimci.asocialoud.feeds.db.repository.PostCounterRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs every repository query against a seeded database built by the migrations, then EXPLAINs each
+ * statement hibernate sent for it with the same parameters. A plan scanning a whole table fails the test.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AsocialoudFeedService.class, QueryPlanTest.Recorder.class}, properties = {
+        "spring.datasource.url=jdbc:h2:mem:feeds-query-plans;DB_CLOSE_DELAY=-1",
+        "asocialoud.search.directory=target/feeds-search-plans/${random.uuid}",
+        "asocialoud.tags.index.directory=target/feeds-tags-plans/${random.uuid}",
+        "asocialoud.archive.directory=target/feeds-archive-plans/${random.uuid}",
+        "asocialoud.archive.interval-millis=0"
+})
+public class QueryPlanTest {
+
+    private static final int MEMBERS = 200;
+    private static final int FEEDS_PER_MEMBER = 25;
+    private static final long START = 1546300800000L;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private PostCounterRepository postCounterRepository;
+
+    @Test
+    public void when_repository_queries_explained_then_no_table_scanned() throws SQLException {
+        seed();
+
+        Long[] memberIds = {11L, 12L, 13L};
+        Date publishedAfter = new Date(START);
+        Date cursorDate = new Date(START + 10 * 60_000L);
+        PageRequest page = PageRequest.of(0, FeedRepository.FETCH_COUNT);
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("countByMemberId", () -> feedRepository.countByMemberId(11L));
+        queries.put("countGroupByMemberId", () -> feedRepository.countGroupByMemberId());
+        queries.put("findAllByMemberIdInAndPublishDateAfterOrderByPublishDateDesc",
+                () -> feedRepository.findAllByMemberIdInAndPublishDateAfterOrderByPublishDateDesc(memberIds, publishedAfter, page));
+        queries.put("findAllByMemberIdOrderByPublishDateDesc", () -> feedRepository.findAllByMemberIdOrderByPublishDateDesc(11L, PageRequest.of(2, FeedRepository.FETCH_COUNT)));
+        queries.put("findAllByMemberIdInOrderByPublishDateDesc", () -> feedRepository.findAllByMemberIdInOrderByPublishDateDesc(memberIds, page));
+        queries.put("findAllByIdGreaterThanOrderByIdAsc", () -> feedRepository.findAllByIdGreaterThanOrderByIdAsc(1000L, page));
+        queries.put("findKeysetPageByMemberId", () -> feedRepository.findKeysetPageByMemberId(11L, page));
+        queries.put("findKeysetPageByMemberIdBefore", () -> feedRepository.findKeysetPageByMemberIdBefore(11L, cursorDate, 300L, page));
+        queries.put("findKeysetPageByMemberIdIn", () -> feedRepository.findKeysetPageByMemberIdIn(Arrays.asList(memberIds), publishedAfter, page));
+        queries.put("findKeysetPageByMemberIdInBefore",
+                () -> feedRepository.findKeysetPageByMemberIdInBefore(Arrays.asList(memberIds), publishedAfter, cursorDate, 300L, page));
+        queries.put("countGroupByRelaudOf", () -> feedRepository.countGroupByRelaudOf(Arrays.asList(11L, 12L, 13L)));
+        queries.put("existsByMemberIdAndRelaudOf", () -> feedRepository.existsByMemberIdAndRelaudOf(11L, 12L));
+        queries.put("findOldestPublishDate", () -> feedRepository.findOldestPublishDate());
+        queries.put("findMemberIdsPublishedBetween", () -> feedRepository.findMemberIdsPublishedBetween(publishedAfter, cursorDate));
+        queries.put("findAllOfMemberPublishedBetween", () -> feedRepository.findAllOfMemberPublishedBetween(11L, publishedAfter, cursorDate));
+        // seeded feeds are not older than START, nothing is deleted
+        queries.put("deleteAllOfMembersPublishedBetween",
+                () -> feedRepository.deleteAllOfMembersPublishedBetween(Arrays.asList(memberIds), new Date(0), publishedAfter));
+        // used by the post counters
+        queries.put("postCounters.findById", () -> postCounterRepository.findById(11L));
+        queries.put("postCounters.findAllById", () -> postCounterRepository.findAllById(Arrays.asList(memberIds)));
+
+        Set<String> declared = new TreeSet<>();
+        for (Method method : FeedRepository.class.getDeclaredMethods()) {
+            declared.add(method.getName());
+        }
+        assertTrue("every repository query is explained, missing : " + declared, queries.keySet().containsAll(declared));
+
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            List<RecordedQuery> recorded = Recorder.record(query.getValue());
+            assertFalse(query.getKey() + " sent no query", recorded.isEmpty());
+            for (RecordedQuery statement : recorded) {
+                String plan = explain(statement);
+                assertFalse(query.getKey() + " scans a table :\n" + plan, plan.contains("tableScan"));
+            }
+        }
+    }
+
+    private void seed() throws SQLException {
+        try (Connection connection = Recorder.target.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement feeds = connection.prepareStatement(
+                    "insert into tbl_feeds (id, text, media_uri, member_id, publish_date, relaud_of) values (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement counters = connection.prepareStatement(
+                         "insert into tbl_post_counters (member_id, post_count) values (?, ?)")) {
+                long id = 1;
+                for (int i = 0; i < FEEDS_PER_MEMBER; i++) {
+                    for (long memberId = 1; memberId <= MEMBERS; memberId++) {
+                        feeds.setLong(1, id++);
+                        feeds.setString(2, "feed " + i + " of member " + memberId);
+                        feeds.setString(3, "");
+                        feeds.setLong(4, memberId);
+                        feeds.setTimestamp(5, new Timestamp(START + i * 60_000L));
+                        // every tenth feed relauds the one of the previous member
+                        if (id % 10 == 0) {
+                            feeds.setLong(6, id - 2);
+                        } else {
+                            feeds.setNull(6, Types.BIGINT);
+                        }
+                        feeds.addBatch();
+                    }
+                }
+                feeds.executeBatch();
+
+                for (long memberId = 1; memberId <= MEMBERS; memberId++) {
+                    counters.setLong(1, memberId);
+                    counters.setLong(2, FEEDS_PER_MEMBER);
+                    counters.addBatch();
+                }
+                counters.executeBatch();
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("analyze");
+            }
+            connection.commit();
+        }
+    }
+
+    private String explain(RecordedQuery query) throws SQLException {
+        try (Connection connection = Recorder.target.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + query.sql)) {
+            for (Map.Entry<Integer, Object> parameter : query.parameters.entrySet()) {
+                explain.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        }
+    }
+
+    static class RecordedQuery {
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+
+        RecordedQuery(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Wraps the data source so that the queries executed while {@link #record(Runnable)} runs are kept with their parameters.
+     */
+    @TestConfiguration
+    static class Recorder {
+
+        private static final ThreadLocal<List<RecordedQuery>> RECORDED = new ThreadLocal<>();
+
+        // the data source itself, for statements that are not recorded
+        static volatile DataSource target;
+
+        @Bean
+        static BeanPostProcessor queryRecordingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+
+        static List<RecordedQuery> record(Runnable queries) {
+            RECORDED.set(new ArrayList<>());
+            try {
+                queries.run();
+                return RECORDED.get();
+            } finally {
+                RECORDED.remove();
+            }
+        }
+
+        private static DataSource wrap(DataSource dataSource) {
+            target = dataSource;
+            return proxy(DataSource.class, dataSource, (method, args) -> {
+                Object result = method.invoke(dataSource, args);
+                return result instanceof Connection ? connection((Connection) result) : result;
+            });
+        }
+
+        private static Connection connection(Connection target) {
+            return proxy(Connection.class, target, (method, args) -> {
+                Object result = method.invoke(target, args);
+                return method.getName().equals("prepareStatement") ? statement((PreparedStatement) result, (String) args[0]) : result;
+            });
+        }
+
+        private static PreparedStatement statement(PreparedStatement target, String sql) {
+            Map<Integer, Object> parameters = new HashMap<>();
+            return proxy(PreparedStatement.class, target, (method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if ((name.equals("executeQuery") || name.equals("executeUpdate")) && RECORDED.get() != null) {
+                    RECORDED.get().add(new RecordedQuery(sql, Collections.unmodifiableMap(new HashMap<>(parameters))));
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Call call) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return call.invoke(method, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        interface Call {
+            Object invoke(Method method, Object[] args) throws Exception;
+        }
+    }
+}
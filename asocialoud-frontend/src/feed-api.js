@@ -5,25 +5,45 @@ const SERVER_URL = 'http://localhost:8060/api/feeds';
 const instance = axios.create({
     baseURL: SERVER_URL,
     timeout: 10000,
+    headers: {
+        'Content-Type': 'application/json',
+        'Authorization': localStorage.getItem('vuex') ? 'Bearer ' + JSON.parse(localStorage.getItem('vuex')).token : ''
+    }
 });
 
 export default {
-    getFeedsOf: (memberId, page) => instance.get('/of/' + memberId + '?start=' + page, {
+    getFeedsOf: (memberId, cursor) => instance.get('/of/' + memberId + (cursor ? '?cursor=' + cursor : ''), {
         transformResponse: [function (data) {
             return data ? JSON.parse(data) : data;
         }]
     }),
 
-    getFeedsOfFollowing: (memberIdList, page) => instance.get('/followingsof/'+memberIdList+'?start=' + page, {
+    getFeedsOfFollowing: (memberIdList, cursor, followerId) => instance.get('/followingsof/'+memberIdList+'?followerId=' + followerId + (cursor ? '&cursor=' + cursor : ''), {
         transformResponse: [function (data) {
             return data? JSON.parse(data) : data;
         }]
     }),
 
+    getHomeFeeds: (memberId, cursor) => instance.get('/home/' + memberId + (cursor ? '?cursor=' + cursor : ''), {
+        transformResponse: [function (data) {
+            return data? JSON.parse(data) : data;
+        }]
+    }),
+
+    // EventSource can not send headers, the token goes as a parameter
+    openFeedStream: (memberId) => new EventSource(SERVER_URL + '/stream/' + memberId +
+        (localStorage.getItem('vuex') ? '?token=' + encodeURIComponent(JSON.parse(localStorage.getItem('vuex')).token) : '')),
+
     addFeed: (memberIdVal, feedContent) => instance.post('/create/', { memberId : memberIdVal, text : feedContent}, {
         transformResponse: [function (data) {
             return data? JSON.parse(data) : data;
         }]
+    }),
+
+    relaudFeed: (memberIdVal, feedId) => instance.post('/relaud/' + feedId, { memberId : memberIdVal}, {
+        transformResponse: [function (data) {
+            return data? JSON.parse(data) : data;
+        }]
     })
 
 }
@@ -0,0 +1,77 @@
+package org.yardimci.asocialoud.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies of one endpoint in microseconds, two of them for every request:
+ * <ul>
+ * <li>response time : from the time the request was due by the schedule to its response, which counts the time it
+ * waited behind slow requests and so is not hidden by coordinated omission</li>
+ * <li>service time : from the time it was actually sent to its response</li>
+ * </ul>
+ */
+class EndpointStats {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String name;
+    private final Histogram responseTimes = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    private final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long dueNanos, long sentNanos, long receivedNanos) {
+        responseTimes.recordValue(micros(receivedNanos - dueNanos));
+        serviceTimes.recordValue(micros(receivedNanos - sentNanos));
+    }
+
+    // failed calls and timeouts are recorded as well, leaving them out would hide the slowest calls
+    void error(long dueNanos, long sentNanos, long failedNanos) {
+        record(dueNanos, sentNanos, failedNanos);
+        errors.incrementAndGet();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getCount() {
+        return responseTimes.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    Histogram getResponseTimes() {
+        return responseTimes;
+    }
+
+    Histogram getServiceTimes() {
+        return serviceTimes;
+    }
+
+    // percentile distributions in milliseconds, in the format HdrHistogram's plotter reads
+    void writeReports(File directory) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(new File(directory, name + ".hgrm"))) {
+            responseTimes.outputPercentileDistribution(out, 1000.0);
+        }
+        try (PrintStream out = new PrintStream(new File(directory, name + "-service.hgrm"))) {
+            serviceTimes.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(HIGHEST_MICROS, Math.max(0, nanos / 1000));
+    }
+}
@@ -0,0 +1,172 @@
+package org.yardimci.asocialoud.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load of user sessions (see {@link Session}) on the members and feeds services, with {@code users} users each
+ * starting a session on a schedule, so that sessions start at {@code rate} per second overall. A user starts its
+ * next session once the previous one is over. When sessions take longer than the schedule allows, the user falls
+ * behind. Each call is measured from the time the schedule made it due, so the time spent behind shows in the
+ * response times instead of being left out (coordinated omission). Service times, measured from the actual send,
+ * are reported next to them.
+ * <pre>
+ * java -Drate=50 -Dusers=500 -jar asocialoud-loadtest/target/loadtest.jar
+ * </pre>
+ * Percentile distributions of every endpoint are written to {@code reports/<date>/<endpoint>.hgrm} (response time)
+ * and {@code <endpoint>-service.hgrm}, with a summary in {@code summary.txt}.
+ * <p>
+ * System properties: {@code membersUrl} (http://localhost:8070), {@code feedsUrl} (http://localhost:8060),
+ * {@code rate} sessions per second (20), {@code users} (200), {@code seconds} measured (60), {@code warmup} seconds
+ * (10), {@code think} mean milliseconds between two calls of a session (1000), {@code population} members logging
+ * in as member1..memberN (1000), {@code password} (the one of the generated members), {@code reports} directory,
+ * and {@code start} (false) to start the services first from their executable jars, {@code membersJar} and
+ * {@code feedsJar} (target/asocialoud-*-service-exec.jar).
+ */
+public class LoadTest {
+
+    private static final List<String> ENDPOINTS = Arrays.asList(
+            "login", "followingIds", "followingsFeeds", "followingsFeedsNext", "post", "search");
+
+    static class Settings {
+        String membersUrl;
+        String feedsUrl;
+        double rate;
+        int users;
+        double thinkMillis;
+        int population;
+        String password;
+        long measureFrom;
+        long end;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        settings.membersUrl = System.getProperty("membersUrl", "http://localhost:8070");
+        settings.feedsUrl = System.getProperty("feedsUrl", "http://localhost:8060");
+        settings.rate = Double.parseDouble(System.getProperty("rate", "20"));
+        settings.users = Integer.getInteger("users", 200);
+        settings.thinkMillis = Double.parseDouble(System.getProperty("think", "1000"));
+        settings.population = Integer.getInteger("population", 1000);
+        settings.password = System.getProperty("password", "111222333");
+        long seconds = Long.getLong("seconds", 60);
+        long warmup = Long.getLong("warmup", 10);
+
+        File reports = new File(System.getProperty("reports",
+                "reports/" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())));
+        if (!reports.isDirectory() && !reports.mkdirs()) {
+            throw new IOException("Unable to create " + reports);
+        }
+
+        try (ServiceProcesses services = new ServiceProcesses()) {
+            if (Boolean.getBoolean("start")) {
+                services.start("members", System.getProperty("membersJar",
+                        "asocialoud-members-service/target/asocialoud-members-service-exec.jar"), settings.membersUrl, reports);
+                services.start("feeds", System.getProperty("feedsJar",
+                        "asocialoud-feeds-service/target/asocialoud-feeds-service-exec.jar"), settings.feedsUrl, reports);
+            }
+
+            Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+            ENDPOINTS.forEach(endpoint -> stats.put(endpoint, new EndpointStats(endpoint)));
+
+            long sessions = run(settings, stats, seconds, warmup);
+
+            try (PrintStream summary = new PrintStream(new File(reports, "summary.txt"))) {
+                for (PrintStream out : new PrintStream[]{System.out, summary}) {
+                    out.printf("%d users, %.1f sessions/s scheduled, %.1f completed, think time %.0f ms, %d s measured%n",
+                            settings.users, settings.rate, sessions / (double) seconds, settings.thinkMillis, seconds);
+                    printSummary(out, stats);
+                }
+            }
+            for (String endpoint : ENDPOINTS) {
+                stats.get(endpoint).writeReports(reports);
+            }
+            System.out.println("reports in " + reports);
+        }
+        System.exit(0);
+    }
+
+    // sessions completed while measuring
+    private static long run(Settings settings, Map<String, EndpointStats> stats, long seconds, long warmup) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(8))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Session session = new Session(client, objectMapper, settings, stats);
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        settings.measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        settings.end = settings.measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        double interval = 1e9 / settings.rate;
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong broken = new AtomicLong();
+        ExecutorService users = Executors.newFixedThreadPool(settings.users);
+        CountDownLatch done = new CountDownLatch(settings.users);
+        for (int i = 0; i < settings.users; i++) {
+            int user = i;
+            users.execute(() -> {
+                try {
+                    // sessions of the users interleave : session k of user u is the (k * users + u)th one
+                    for (long k = 0; ; k++) {
+                        long due = start + (long) ((k * settings.users + user) * interval);
+                        if (due >= settings.end) {
+                            break;
+                        }
+                        try {
+                            session.run(due);
+                            if (due >= settings.measureFrom) {
+                                completed.incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            // an unexpected response body, the user goes on with its next session
+                            broken.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        users.shutdown();
+        if (broken.get() > 0) {
+            System.out.println(broken.get() + " sessions stopped on an unexpected response");
+        }
+        return completed.get();
+    }
+
+    private static void printSummary(PrintStream out, Map<String, EndpointStats> stats) {
+        out.printf("%-20s %9s %7s %9s %9s %9s %9s %9s %12s%n",
+                "endpoint", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "service p99");
+        for (String endpoint : ENDPOINTS) {
+            EndpointStats endpointStats = stats.get(endpoint);
+            Histogram responseTimes = endpointStats.getResponseTimes();
+            out.printf("%-20s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %12.2f%n", endpoint,
+                    endpointStats.getCount(), endpointStats.getErrors(),
+                    responseTimes.getValueAtPercentile(50) / 1e3, responseTimes.getValueAtPercentile(90) / 1e3,
+                    responseTimes.getValueAtPercentile(99) / 1e3, responseTimes.getValueAtPercentile(99.9) / 1e3,
+                    responseTimes.getMaxValue() / 1e3, endpointStats.getServiceTimes().getValueAtPercentile(99) / 1e3);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.yardimci.asocialoud.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The services started from their jars on localhost, each in its own jvm : both have an application.properties and
+ * db/migration scripts at the same place on their classpath, so they can not run in one. Their output goes to
+ * {@code <name>.log} next to the reports.
+ */
+class ServiceProcesses implements AutoCloseable {
+
+    private static final long START_TIMEOUT_SECONDS = 180;
+
+    private final List<Process> processes = new ArrayList<>();
+
+    void start(String name, String jar, String baseUrl, File logDirectory) throws IOException, InterruptedException {
+        if (!new File(jar).isFile()) {
+            throw new IOException("No " + jar + ", package the service first");
+        }
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        Process process = new ProcessBuilder(java, "--add-opens", "java.base/java.lang=ALL-UNNAMED", "-jar", jar,
+                "--server.port=" + URI.create(baseUrl).getPort(),
+                "--eureka.client.enabled=false")
+                .redirectErrorStream(true)
+                .redirectOutput(new File(logDirectory, name + ".log"))
+                .start();
+        processes.add(process);
+        waitUntilUp(name, process, baseUrl);
+    }
+
+    // up once it answers anything over http
+    private static void waitUntilUp(String name, Process process, String baseUrl) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/")).timeout(Duration.ofSeconds(5)).GET().build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(START_TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException(name + " stopped with exit code " + process.exitValue() + ", see " + name + ".log");
+            }
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                TimeUnit.SECONDS.sleep(1);
+            }
+        }
+        throw new IOException(name + " not up after " + START_TIMEOUT_SECONDS + " seconds");
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        for (Process process : processes) {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.yardimci.asocialoud.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One visit of a member, with the calls the frontend makes : login, ids of the followings, feeds of the followings
+ * and sometimes their next page, then sometimes a post and a member search. The member thinks for an exponentially
+ * distributed time between two calls.
+ * <p>
+ * The first call is due when the schedule starts the session, the next ones a think time after the previous
+ * response. Each call is measured from the time it was due, so a session started late because the previous one
+ * of its user ran long adds that delay to its login.
+ */
+class Session {
+
+    // longest list of ids sent in a url, the servers refuse longer request lines
+    private static final int MAX_IDS = 300;
+
+    private static final String[] WORDS = {"morning", "coffee", "again", "build", "broke", "today", "finally", "weekend",
+            "rain", "music", "reading", "train", "late", "new", "release", "tests", "green", "lunch", "walk", "city"};
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final LoadTest.Settings settings;
+    private final Map<String, EndpointStats> stats;
+
+    Session(HttpClient client, ObjectMapper objectMapper, LoadTest.Settings settings, Map<String, EndpointStats> stats) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+        this.stats = stats;
+    }
+
+    void run(long due) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String loginName = "member" + (1 + random.nextInt(settings.population));
+        // recorded once the warm up is over, as a whole so that every endpoint sees the same sessions
+        boolean measured = due >= settings.measureFrom;
+
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("username", loginName);
+        credentials.put("password", settings.password);
+        JsonNode login = call("login", due, measured, post(settings.membersUrl + "/api/members/login", credentials, null));
+        if (login == null) {
+            return;
+        }
+        String token = login.get("data").get("token").asText();
+        long memberId = login.get("data").get("id").asLong();
+
+        JsonNode followings = call("followingIds", think(random), measured,
+                get(settings.membersUrl + "/api/follow/of/" + loginName + "/ids", token));
+        if (followings != null && followings.get("data").size() > 0) {
+            StringBuilder ids = new StringBuilder();
+            for (int i = 0; i < Math.min(MAX_IDS, followings.get("data").size()); i++) {
+                ids.append(i == 0 ? "" : ",").append(followings.get("data").get(i).asLong());
+            }
+            String feedsOfFollowings = settings.feedsUrl + "/api/feeds/followingsof/" + ids + "?followerId=" + memberId;
+            JsonNode page = call("followingsFeeds", think(random), measured, get(feedsOfFollowings, token));
+            JsonNode cursor = page == null ? null : page.get("cursor");
+            if (cursor != null && !cursor.isNull() && random.nextBoolean()) {
+                call("followingsFeedsNext", think(random), measured,
+                        get(feedsOfFollowings + "&cursor=" + URLEncoder.encode(cursor.asText(), StandardCharsets.UTF_8), token));
+            }
+        }
+
+        if (random.nextInt(10) < 3) {
+            Map<String, Object> feed = new HashMap<>();
+            feed.put("memberId", memberId);
+            feed.put("text", text(random));
+            call("post", think(random), measured, post(settings.feedsUrl + "/api/feeds/create/", feed, token));
+        }
+        if (random.nextInt(10) < 3) {
+            // part of a login name, matching from one to a few hundred members
+            String text = "ber" + random.nextInt(1, 1000);
+            call("search", think(random), measured, get(settings.membersUrl + "/api/members/search/" + text, token));
+        }
+    }
+
+    /**
+     * Sends the request once due and returns its json body, null for a failed call.
+     */
+    private JsonNode call(String endpoint, long due, boolean measured, HttpRequest request) throws InterruptedException {
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, EndpointStats::new);
+        long sent = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            // timeouts included, they are the tail of the response times
+            if (measured) {
+                endpointStats.error(due, sent, System.nanoTime());
+            }
+            return null;
+        }
+        long received = System.nanoTime();
+        if (response.statusCode() / 100 != 2) {
+            if (measured) {
+                endpointStats.error(due, sent, received);
+            }
+            return null;
+        }
+        if (measured) {
+            endpointStats.record(due, sent, received);
+        }
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // due time of the next call
+    private long think(ThreadLocalRandom random) {
+        return System.nanoTime() + (long) (-settings.thinkMillis * Math.log(1 - random.nextDouble()) * 1e6);
+    }
+
+    private HttpRequest get(String uri, String token) {
+        return request(uri, token).GET().build();
+    }
+
+    private HttpRequest post(String uri, Object body, String token) {
+        try {
+            return request(uri, token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HttpRequest.Builder request(String uri, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private static String text(ThreadLocalRandom random) {
+        StringBuilder text = new StringBuilder();
+        int words = 3 + random.nextInt(12);
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.Ordered;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.web.cors.CorsConfiguration;
@@ -16,12 +17,14 @@ import org.springframework.web.filter.CorsFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.yardimci.asocialoud.commons.concurrent.VirtualThreadsConfiguration;
 
 import java.util.Collections;
 
 
 @EnableJpaRepositories("org.yardimci.asocialoud.members.db.repository")
 @EntityScan("org.yardimci.asocialoud.members.db.model")
+@Import(VirtualThreadsConfiguration.class)
 @SpringBootApplication // equals @Configuration, @EnableAutoConfiguration, and @ComponentScan
 //@EnableAutoConfiguration(exclude = {ErrorMvcAutoConfiguration.class})
 public class AsocialoudMemberService {
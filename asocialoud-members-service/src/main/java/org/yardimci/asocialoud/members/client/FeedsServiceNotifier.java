@@ -0,0 +1,80 @@
+package org.yardimci.asocialoud.members.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the feeds service that the followings of a member changed, so that it drops
+ * its cached copy instead of waiting for it to expire.
+ * Notifications are sent by a few background threads, a follow never waits for the feeds service.
+ */
+@Component
+public class FeedsServiceNotifier implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedsServiceNotifier.class);
+
+    // checked by the feeds service, only the members service may invalidate followings
+    private static final String INTERNAL_SECRET_HEADER = "X-Asocialoud-Internal-Secret";
+
+    private final RestTemplate restTemplate;
+
+    private final String feedsUrl;
+
+    private final String internalSecret;
+
+    private final ThreadPoolExecutor senders;
+
+    public FeedsServiceNotifier(RestTemplateBuilder restTemplateBuilder, @Value("${asocialoud.feeds.url:http://localhost:8060}") String feedsUrl,
+                                @Value("${asocialoud.internal.secret:asocialoud-internal-secret}") String internalSecret,
+                                @Value("${asocialoud.feeds.notify.threads:2}") int threads,
+                                @Value("${asocialoud.feeds.notify.queue-size:1000}") int queueSize) {
+        this.restTemplate = restTemplateBuilder.setConnectTimeout(500).setReadTimeout(1000).build();
+        this.feedsUrl = feedsUrl;
+        this.internalSecret = internalSecret;
+        this.senders = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread thread = new Thread(r, "feeds-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void followingsChanged(Long memberId) {
+        try {
+            senders.execute(() -> send(memberId));
+        } catch (RejectedExecutionException e) {
+            // the cached followings will expire anyway
+            logger.warn("Feeds service notification queue is full, dropped the one of member {}", memberId);
+        }
+    }
+
+    private void send(Long memberId) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(INTERNAL_SECRET_HEADER, internalSecret);
+            restTemplate.exchange(feedsUrl + "/api/feeds/home/{memberId}/invalidate", HttpMethod.POST,
+                    new HttpEntity<>(headers), Void.class, memberId);
+        } catch (RestClientException e) {
+            // the cached followings will expire anyway
+            logger.warn("Unable to notify feeds service for member {} : {}", memberId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+    }
+}
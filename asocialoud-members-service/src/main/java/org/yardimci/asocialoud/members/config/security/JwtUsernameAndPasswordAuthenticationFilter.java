@@ -90,9 +90,12 @@ public class JwtUsernameAndPasswordAuthenticationFilter extends UsernamePassword
                                             Authentication auth) throws IOException, ServletException {
 
         User user = (User) auth.getPrincipal();
+        Member loggedInMember = memberRepository.findByLoginName(user.getUsername());
         long now = System.currentTimeMillis();
         String token = Jwts.builder()
                 .setSubject(auth.getName())
+                // checked by the feeds service against the member of the timeline asked for
+                .claim("memberId", loggedInMember.getId())
                 // Convert to list of strings.
                 // This is important because it affects the way we get them back in the Gateway.
                 .claim("authorities", auth.getAuthorities().stream()
@@ -110,7 +113,6 @@ public class JwtUsernameAndPasswordAuthenticationFilter extends UsernamePassword
         // Return logged in user details
         MemberResponse loginResponse = new MemberResponse();
 
-        Member loggedInMember = memberRepository.findByLoginName(user.getUsername());
         loginResponse.setData(new SuccessfulAuthenticationResponseData(loggedInMember, token));
         loginResponse.setStatus(HttpStatus.OK.toString());
 
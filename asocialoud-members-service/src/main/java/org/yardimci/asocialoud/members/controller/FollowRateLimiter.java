@@ -0,0 +1,17 @@
+package org.yardimci.asocialoud.members.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+
+/**
+ * Follows a member may add, by login name. Every follow makes the feeds service rebuild a home timeline.
+ */
+@Component
+public class FollowRateLimiter extends RateLimiter<String> {
+
+    public FollowRateLimiter(@Value("${asocialoud.ratelimit.follow.per-second:0.5}") double permitsPerSecond,
+                             @Value("${asocialoud.ratelimit.follow.burst:30}") int burst) {
+        super(permitsPerSecond, burst);
+    }
+}
@@ -0,0 +1,17 @@
+package org.yardimci.asocialoud.members.controller;
+
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.web.VersionStamps;
+
+/**
+ * Version of every member's profile by login name, touched when the member is created, updated or deleted
+ * and when it follows or unfollows someone or is followed or unfollowed, as profiles show both directions.
+ */
+@Component
+public class MemberVersions extends VersionStamps<String> {
+
+    public MemberVersions() {
+        // profiles differ per requesting member
+        super("private, no-cache");
+    }
+}
@@ -3,10 +3,12 @@ package org.yardimci.asocialoud.members.controller.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.yardimci.asocialoud.members.controller.MemberResponse;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -24,6 +26,13 @@ public class AsocialoudExceptionHandler {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } else if (ex instanceof MemberNotFoundException) {
          return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Not found");
+        } else if (ex instanceof TooManyRequestsException) {
+            MemberResponse memberResponse = new MemberResponse();
+            memberResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.toString());
+            memberResponse.setData("error.toomanyrequests");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(((TooManyRequestsException) ex).getRetryAfterSeconds()))
+                    .body(memberResponse);
         }
 
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -5,13 +5,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.yardimci.asocialoud.commons.web.RateLimiter;
+import org.yardimci.asocialoud.members.controller.FollowRateLimiter;
 import org.yardimci.asocialoud.members.controller.MemberResponse;
+import org.yardimci.asocialoud.members.controller.MemberVersions;
+import org.yardimci.asocialoud.members.client.FeedsServiceNotifier;
+import org.yardimci.asocialoud.members.controller.exception.TooManyRequestsException;
 import org.yardimci.asocialoud.members.db.model.FollowData;
 import org.yardimci.asocialoud.members.db.model.Member;
 import org.yardimci.asocialoud.members.db.repository.FollowDataRepository;
 import org.yardimci.asocialoud.members.db.repository.MemberRepository;
 import org.yardimci.asocialoud.members.dto.RequestMemberDto;
 
+import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -29,6 +35,15 @@ public class FollowDataController {
     @Autowired
     private MemberRepository memberRepository;
 
+    @Autowired
+    private FeedsServiceNotifier feedsServiceNotifier;
+
+    @Autowired
+    private MemberVersions memberVersions;
+
+    @Autowired
+    private FollowRateLimiter followRateLimiter;
+
     @GetMapping("/of/{userName}")
     public MemberResponse findFollowing(@PathVariable("userName") String userNameToQuery) {
         logger.info("Retrieving all following members of : {}", userNameToQuery);
@@ -63,6 +78,28 @@ public class FollowDataController {
         return memberResponse;
     }
 
+    // used by the feeds service to build home timelines
+    @GetMapping("/of/id/{memberId}/ids")
+    public MemberResponse findFollowingIdsById(@PathVariable("memberId") Long memberId) {
+        logger.info("Retrieving all following member ids of : {}", memberId);
+        MemberResponse memberResponse = new MemberResponse();
+
+        memberResponse.setData(followDataRepository.findFollowingIdsOfMember(memberId));
+        memberResponse.setStatus(HttpStatus.OK.toString());
+        return memberResponse;
+    }
+
+    // followings whose relauds the member does not want in its home timeline, used by the feeds service
+    @GetMapping("/of/id/{memberId}/relauds-muted")
+    public MemberResponse findRelaudsMutedIdsById(@PathVariable("memberId") Long memberId) {
+        logger.info("Retrieving relauds muted by : {}", memberId);
+        MemberResponse memberResponse = new MemberResponse();
+
+        memberResponse.setData(followDataRepository.findRelaudsMutedIdsOfMember(memberId));
+        memberResponse.setStatus(HttpStatus.OK.toString());
+        return memberResponse;
+    }
+
 
     @GetMapping("/has/{userName}")
     public MemberResponse findFollowers(@PathVariable("userName") String userNameToQuery) {
@@ -80,7 +117,8 @@ public class FollowDataController {
 
     @PostMapping("/add/{memberToFollow}")
     @ResponseStatus(HttpStatus.CREATED)
-    public MemberResponse addToFollowers(@RequestBody RequestMemberDto ownerMember, @PathVariable("memberToFollow") String memberToFollow) {
+    public MemberResponse addToFollowers(@RequestBody RequestMemberDto ownerMember, @PathVariable("memberToFollow") String memberToFollow,
+                                         Principal principal) {
         logger.info("Follow member request received");
         MemberResponse memberResponse = new MemberResponse();
 
@@ -91,6 +129,13 @@ public class FollowDataController {
             return memberResponse;
         }
 
+        // limited by the authenticated member when there is one, the owner in the body may be anyone
+        String limitedBy = principal != null ? principal.getName() : ownerMember.getLoginName();
+        long wait = followRateLimiter.tryAcquire(limitedBy);
+        if (wait > 0) {
+            throw new TooManyRequestsException(limitedBy + " follows too fast", RateLimiter.retryAfterSeconds(wait));
+        }
+
         Member owner = memberRepository.findByLoginName(ownerMember.getLoginName());
         Member toFollow = memberRepository.findByLoginName(memberToFollow);
 
@@ -109,6 +154,9 @@ public class FollowDataController {
             try {
                 logger.info("Saving follow data");
                 followDataRepository.save(followData);
+                memberVersions.touch(owner.getLoginName());
+                memberVersions.touch(toFollow.getLoginName());
+                feedsServiceNotifier.followingsChanged(owner.getId());
                 memberResponse.setStatus(HttpStatus.CREATED.toString());
                 memberResponse.setData(followData);
             } catch (Exception e) {
@@ -122,6 +170,47 @@ public class FollowDataController {
     }
 
 
+    // turns relauds of a following on or off in the owner's home timeline
+    @PostMapping("/relauding/{memberToFollow}")
+    public MemberResponse setRelauding(@RequestBody RequestMemberDto ownerMember, @PathVariable("memberToFollow") String memberToFollow,
+                                       @RequestParam("allow") boolean allow) {
+        logger.info("Relauding of {} set to {}", memberToFollow, allow);
+        MemberResponse memberResponse = new MemberResponse();
+
+        if (ownerMember == null || ownerMember.getLoginName() == null || ownerMember.getLoginName().isEmpty() || memberToFollow == null || memberToFollow.isEmpty()) {
+            logger.warn("Missing member info");
+            memberResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            memberResponse.setData("error.missinginformation");
+            return memberResponse;
+        }
+
+        Member owner = memberRepository.findByLoginName(ownerMember.getLoginName());
+        Member followed = memberRepository.findByLoginName(memberToFollow);
+
+        FollowData followData = followDataRepository.findByOwnerAndMemberToFollow(owner, followed);
+        if (followData == null) {
+            logger.info("Nobody found to set relauding for given user");
+            memberResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            memberResponse.setData("error.notfound");
+            return memberResponse;
+        }
+
+        try {
+            followData.setAllowRelauding(allow);
+            followDataRepository.save(followData);
+            memberVersions.touch(owner.getLoginName());
+            feedsServiceNotifier.followingsChanged(owner.getId());
+            memberResponse.setStatus(HttpStatus.OK.toString());
+            memberResponse.setData(followData);
+        } catch (Exception e) {
+            logger.error("Unable to save follow data", e);
+            memberResponse.setStatus(HttpStatus.BAD_REQUEST.toString());
+            memberResponse.setData("error.servererror");
+        }
+        return memberResponse;
+    }
+
+
     @PostMapping("/remove/{memberToUnFollow}")
     @ResponseStatus(HttpStatus.CREATED)
     public MemberResponse removeFromFollowers(@RequestBody RequestMemberDto ownerMember, @PathVariable("memberToUnFollow") String memberToUnFollow) {
@@ -144,6 +233,9 @@ public class FollowDataController {
             try {
                 logger.info("Deleting follow data");
                 followDataRepository.delete(followDataToRemove);
+                memberVersions.touch(owner.getLoginName());
+                memberVersions.touch(toUnfollow.getLoginName());
+                feedsServiceNotifier.followingsChanged(owner.getId());
                 memberResponse.setStatus(HttpStatus.OK.toString());
                 List<FollowData> followDataList = followDataRepository.findAllByOwnerMember(owner);
                 memberResponse.setData(followDataList);
@@ -1,7 +1,6 @@
 package org.yardimci.asocialoud.members.controller.member;
 
 
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,13 +8,16 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.yardimci.asocialoud.members.controller.MemberResponse;
+import org.yardimci.asocialoud.members.controller.MemberVersions;
 import org.yardimci.asocialoud.members.controller.exception.MemberNotFoundException;
 import org.yardimci.asocialoud.members.db.model.Member;
 import org.yardimci.asocialoud.members.db.model.MemberType;
 import org.yardimci.asocialoud.members.db.repository.FollowDataRepository;
 import org.yardimci.asocialoud.members.db.repository.MemberRepository;
 import org.yardimci.asocialoud.members.db.service.MemberService;
+import org.yardimci.asocialoud.members.dto.MemberMapper;
 import org.yardimci.asocialoud.members.dto.MemberSearchResultDto;
 import org.yardimci.asocialoud.members.dto.RequestMemberDto;
 
@@ -43,6 +45,12 @@ public class MemberController {
     @Autowired
     private MemberService memberService;
 
+    @Autowired
+    private MemberMapper memberMapper;
+
+    @Autowired
+    private MemberVersions memberVersions;
+
     //todo pre-authorize for admin
     @GetMapping
     public MemberResponse findAll() {
@@ -59,13 +67,16 @@ public class MemberController {
     }
 
     @GetMapping("/{userName}")
-    public MemberResponse findByUserName(@PathVariable("userName") String userNameToQuery, Principal principal) {
+    public MemberResponse findByUserName(@PathVariable("userName") String userNameToQuery, Principal principal, ServletWebRequest webRequest) {
         logger.info("Retrieving member by login name : "+ userNameToQuery);
+        // profile the requesting member already has, answered with 304 and no body
+        if (memberVersions.checkNotModified(userNameToQuery, webRequest, principal.getName())) {
+            return null;
+        }
         Member byLoginName = memberRepository.findByLoginName(userNameToQuery);
         MemberSearchResultDto searchResultDto = new MemberSearchResultDto();
         if (byLoginName != null) {
-            ModelMapper modelMapper = new ModelMapper();
-            searchResultDto = modelMapper.map(byLoginName, MemberSearchResultDto.class);
+            searchResultDto = memberMapper.map(byLoginName);
             if (!userNameToQuery.equals(principal.getName())) {
                 searchResultDto.setMemberEmail("");
                 Member ownerMember = memberRepository.findByLoginName(principal.getName());
@@ -103,14 +114,13 @@ public class MemberController {
         logger.info("Retrieving members by login name : "+ userNameToQuery);
         MemberResponse memberResponse = new MemberResponse();
 
-        List<Member> byLoginName = memberRepository.findByLoginNameIgnoreCaseContainingAndMemberType(userNameToQuery, MemberType.B);
+        List<Member> byLoginName = memberService.searchByLoginName(userNameToQuery, MemberType.B);
         List<MemberSearchResultDto> searchResultList = new ArrayList<>();
 
         if (byLoginName != null) {
             Member ownerMember = memberRepository.findByLoginName(principal.getName());
-            ModelMapper modelMapper = new ModelMapper();
             for (Member resultMember : byLoginName) {
-                MemberSearchResultDto dto = modelMapper.map(resultMember, MemberSearchResultDto.class);
+                MemberSearchResultDto dto = memberMapper.map(resultMember);
                 dto.setId(-1L);
                 dto.setFollowedByMe(followDataRepository.existsFollowDataByOwnerAndMemberToFollow(ownerMember, resultMember));
                 dto.setFollowsMe(followDataRepository.existsFollowDataByOwnerAndMemberToFollow(resultMember, ownerMember));
@@ -162,6 +172,7 @@ public class MemberController {
             userInDb.setPassword(passwordEncoder.encode(member.getPassword()));
             //member.setMemberType(MemberType.B);
             memberRepository.save(userInDb);
+            memberVersions.touch(userInDb.getLoginName());
             memberResponse.setStatus(HttpStatus.CREATED.toString());
             memberResponse.setData(userInDb);
         } catch (Exception e) {
@@ -208,6 +219,7 @@ public class MemberController {
                 followDataRepository.delete(fd);
             }*/
             memberService.deleteMemberByLoginName(userName);
+            memberVersions.touch(userName);
             memberResponse.setStatus(HttpStatus.OK.toString());
         } catch (Exception e) {
             logger.error("Unable to delete member : " + userName, e);
@@ -238,6 +250,7 @@ public class MemberController {
             userInDb.setEmail(member.getEmail());
 
             memberRepository.save(userInDb);
+            memberVersions.touch(userName);
             memberResponse.setData(userInDb);
             memberResponse.setStatus(HttpStatus.OK.toString());
         } catch (Exception e) {
@@ -1,7 +1,9 @@
 package org.yardimci.asocialoud.members.db.model;
 
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.Date;
@@ -11,7 +13,12 @@ import java.util.Date;
 public class FollowData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "follow_data_id")
+    @GenericGenerator(name = "follow_data_id", strategy = "org.yardimci.asocialoud.commons.id.AsocialoudIdGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "seq_follow_data"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @Temporal(TemporalType.TIMESTAMP)
@@ -0,0 +1,44 @@
+package org.yardimci.asocialoud.members.db.model;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Grams of a login name : every 1 to {@link #MAX_LENGTH} characters long part of it, lower-cased.
+ * A login name containing a text has every gram of that text, so the members having one of them are
+ * the only candidates of a search.
+ */
+public final class LoginGrams {
+
+    public static final int MAX_LENGTH = 3;
+
+    private LoginGrams() {
+    }
+
+    public static Set<String> of(String loginName) {
+        Set<String> grams = new HashSet<>();
+        if (loginName == null) {
+            return grams;
+        }
+        String lowerCase = loginName.toLowerCase(Locale.ROOT);
+        for (int start = 0; start < lowerCase.length(); start++) {
+            for (int end = start + 1; end <= Math.min(start + MAX_LENGTH, lowerCase.length()); end++) {
+                grams.add(lowerCase.substring(start, end));
+            }
+        }
+        return grams;
+    }
+
+    // gram looked up for a search, the text itself when it is short enough
+    public static String searchGramOf(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        return lowerCase.length() <= MAX_LENGTH ? lowerCase : lowerCase.substring(0, MAX_LENGTH);
+    }
+
+    // like pattern matching login names containing the text, with '\' as escape character
+    public static String containsPatternOf(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        return "%" + lowerCase.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
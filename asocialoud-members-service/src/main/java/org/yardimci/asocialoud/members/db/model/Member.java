@@ -3,16 +3,25 @@ package org.yardimci.asocialoud.members.db.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 
 @Entity
 @Table(name = "tbl_members")
 public class Member {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "member_id")
+    @GenericGenerator(name = "member_id", strategy = "org.yardimci.asocialoud.commons.id.AsocialoudIdGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "seq_members"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @JsonIgnore
@@ -33,6 +42,12 @@ public class Member {
     @Column(name = "password", nullable = false)
     private String password;
 
+    // searched instead of the login names, see LoginGrams
+    @ElementCollection
+    @CollectionTable(name = "tbl_member_login_grams", joinColumns = @JoinColumn(name = "member_id"))
+    @Column(name = "gram", length = LoginGrams.MAX_LENGTH, nullable = false)
+    private Set<String> loginGrams = new HashSet<>();
+
     //we really dont need the collection on the parent side of the association.
     //@OneToMany(mappedBy = "tbl_members", orphanRemoval = true, cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     //private List<FollowData> followDataList;
@@ -59,6 +74,8 @@ public class Member {
 
     public void setLoginName(String loginName) {
         this.loginName = loginName;
+        loginGrams.clear();
+        loginGrams.addAll(LoginGrams.of(loginName));
     }
 
     public String getRealName() {
@@ -17,6 +17,12 @@ public interface FollowDataRepository extends CrudRepository<FollowData, Long> {
     @Query("select fd from  FollowData fd where fd.memberToFollow = :ownerMember")
     List<FollowData> findAllFollowersOfMember(@Param("ownerMember") Member member);
 
+    @Query("select fd.memberToFollow.id from FollowData fd where fd.owner.id = :ownerId")
+    List<Long> findFollowingIdsOfMember(@Param("ownerId") Long ownerId);
+
+    @Query("select fd.memberToFollow.id from FollowData fd where fd.owner.id = :ownerId and fd.allowRelauding = false")
+    List<Long> findRelaudsMutedIdsOfMember(@Param("ownerId") Long ownerId);
+
     void deleteAllByOwner(Member member);
 
     //boolean isFollowedByMe(@Param("ownerMember") Member askingMember, @Param("targetMember") Member targetMember);
@@ -1,6 +1,8 @@
 package org.yardimci.asocialoud.members.db.repository;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.yardimci.asocialoud.members.db.model.Member;
 import org.yardimci.asocialoud.members.db.model.MemberType;
 
@@ -15,11 +17,11 @@ public interface MemberRepository extends CrudRepository<Member, Long> {
 
     Member findByEmail(String email);
 
-    List<Member> findMembersByLoginNameContains(String loginName); // List<Member> findMembersByLoginNameContaining(String loginName);
-
-    List<Member> findByLoginNameIgnoreCaseContaining(String loginName);
-
-    List<Member> findByLoginNameIgnoreCaseContainingAndMemberType(String loginName, MemberType memberType);
+    // login name contains the pattern's text, looked up by one gram of that text, see LoginGrams
+    @Query("select m from Member m join m.loginGrams g " +
+            "where g = :gram and lower(m.loginName) like :pattern escape '\\' and m.memberType = :memberType")
+    List<Member> findByLoginGramAndMemberType(@Param("gram") String gram, @Param("pattern") String pattern,
+                                              @Param("memberType") MemberType memberType);
 
     List<Member> findAllByMemberType(MemberType memberType);
 
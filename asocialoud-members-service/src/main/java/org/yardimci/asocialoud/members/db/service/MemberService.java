@@ -4,8 +4,14 @@ package org.yardimci.asocialoud.members.db.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.yardimci.asocialoud.members.db.model.LoginGrams;
+import org.yardimci.asocialoud.members.db.model.Member;
+import org.yardimci.asocialoud.members.db.model.MemberType;
 import org.yardimci.asocialoud.members.db.repository.MemberRepository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 public class MemberService {
 
@@ -18,5 +24,13 @@ public class MemberService {
         memberRepository.deleteByLoginName(memberLoginName);
     }
 
+    // members of the given type whose login name contains the text, ignoring case
+    public List<Member> searchByLoginName(String text, MemberType memberType) {
+        if (text == null || text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return memberRepository.findByLoginGramAndMemberType(LoginGrams.searchGramOf(text), LoginGrams.containsPatternOf(text), memberType);
+    }
+
 
 }
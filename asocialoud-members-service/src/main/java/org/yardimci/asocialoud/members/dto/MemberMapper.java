@@ -0,0 +1,20 @@
+package org.yardimci.asocialoud.members.dto;
+
+import org.springframework.stereotype.Component;
+import org.yardimci.asocialoud.commons.mapping.Mapper;
+import org.yardimci.asocialoud.members.db.model.Member;
+
+// relationship flags are left false, they depend on who is asking
+@Component
+public class MemberMapper implements Mapper<Member, MemberSearchResultDto> {
+
+    @Override
+    public MemberSearchResultDto map(Member source) {
+        MemberSearchResultDto dto = new MemberSearchResultDto();
+        dto.setId(source.getId());
+        dto.setMemberLoginName(source.getLoginName());
+        dto.setMemberRealName(source.getRealName());
+        dto.setMemberEmail(source.getEmail());
+        return dto;
+    }
+}
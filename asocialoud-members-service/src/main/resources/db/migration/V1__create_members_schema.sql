@@ -0,0 +1,24 @@
+-- Schema as hibernate created it before migrations were managed.
+-- Databases created that way are baselined at this version and start from V2.
+
+create table tbl_members (
+    id bigint generated by default as identity,
+    type varchar(1),
+    username varchar(255) not null,
+    realname varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    primary key (id)
+);
+alter table tbl_members add constraint uk_members_username unique (username);
+
+create table tbl_follow_data (
+    id bigint generated by default as identity,
+    follow_date timestamp not null,
+    owner_id bigint not null,
+    target_id bigint not null,
+    allow_relaud boolean not null,
+    primary key (id)
+);
+alter table tbl_follow_data add constraint fk_follow_data_owner foreign key (owner_id) references tbl_members on delete cascade;
+alter table tbl_follow_data add constraint fk_follow_data_target foreign key (target_id) references tbl_members on delete cascade;
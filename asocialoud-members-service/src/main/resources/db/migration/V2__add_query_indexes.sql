@@ -0,0 +1,11 @@
+-- a member follows another one at most once, the oldest follow row is kept
+delete from tbl_follow_data f
+where exists (select 1 from tbl_follow_data d where d.owner_id = f.owner_id and d.target_id = f.target_id and d.id < f.id);
+
+-- followings of a member and follow checks
+create unique index ux_follow_data_owner_target on tbl_follow_data (owner_id, target_id);
+-- followers of a member
+create index idx_follow_data_target on tbl_follow_data (target_id);
+
+create index idx_members_email on tbl_members (email);
+create index idx_members_type on tbl_members (type);
@@ -0,0 +1,15 @@
+-- Every 1 to 3 characters long part of the lower-cased login names.
+-- A login name search looks up one gram of the searched text instead of scanning every login name.
+
+create table tbl_member_login_grams (
+    member_id bigint not null,
+    gram varchar(3) not null,
+    primary key (gram, member_id)
+);
+alter table tbl_member_login_grams add constraint fk_member_login_grams_member foreign key (member_id) references tbl_members on delete cascade;
+create index idx_member_login_grams_member on tbl_member_login_grams (member_id);
+
+insert into tbl_member_login_grams (member_id, gram)
+select distinct m.id, lower(substring(m.username, p.x, n.x))
+from tbl_members m, system_range(1, 255) p, system_range(1, 3) n
+where p.x + n.x - 1 <= length(m.username);
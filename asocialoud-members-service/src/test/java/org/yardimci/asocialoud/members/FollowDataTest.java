@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
+import org.yardimci.asocialoud.members.controller.FollowRateLimiter;
 import org.yardimci.asocialoud.members.db.model.FollowData;
 import org.yardimci.asocialoud.members.db.model.Member;
 import org.yardimci.asocialoud.members.db.repository.FollowDataRepository;
@@ -27,6 +28,9 @@ public class FollowDataTest {
     @Autowired
     private FollowDataRepository followDataRepository;
 
+    @Autowired
+    private FollowRateLimiter followRateLimiter;
+
 
     @Test
     @Transactional
@@ -97,6 +101,57 @@ public class FollowDataTest {
         Assert.assertFalse(followDataRepository.existsFollowDataByOwnerAndMemberToFollow(member2, member3));
     }
 
+    @Test
+    @Transactional
+    public void when_following_ids_requested_by_member_id_then_listed() {
+        Member member1 = createMember("testm1", "testr1", "testm1", "123");
+        Member member2 = createMember("testm2", "testr2", "testm2", "123");
+        Member member3 = createMember("testm3", "testr3", "testm3", "123");
+
+        memberRepository.save(member1);
+        memberRepository.save(member2);
+        memberRepository.save(member3);
+
+        followDataRepository.save(createFollowData(member1, member2));
+        followDataRepository.save(createFollowData(member1, member3));
+
+        List<Long> followingIds = followDataRepository.findFollowingIdsOfMember(member1.getId());
+        Assert.assertEquals(2, followingIds.size());
+        Assert.assertTrue(followingIds.contains(member2.getId()));
+        Assert.assertTrue(followingIds.contains(member3.getId()));
+    }
+
+    @Test
+    @Transactional
+    public void when_relauding_turned_off_then_following_listed_as_muted() {
+        Member member1 = createMember("testm1", "testr1", "testm1", "123");
+        Member member2 = createMember("testm2", "testr2", "testm2", "123");
+        Member member3 = createMember("testm3", "testr3", "testm3", "123");
+
+        memberRepository.save(member1);
+        memberRepository.save(member2);
+        memberRepository.save(member3);
+
+        followDataRepository.save(createFollowData(member1, member2));
+        FollowData allowed = createFollowData(member1, member3);
+        allowed.setAllowRelauding(true);
+        followDataRepository.save(allowed);
+
+        List<Long> mutedIds = followDataRepository.findRelaudsMutedIdsOfMember(member1.getId());
+        Assert.assertEquals(1, mutedIds.size());
+        Assert.assertEquals(member2.getId(), mutedIds.get(0));
+    }
+
+    @Test
+    public void when_member_follows_past_burst_then_limited() {
+        String loginName = "fastfollower" + System.currentTimeMillis();
+        for (int i = 0; i < 30; i++) {
+            Assert.assertEquals(0, followRateLimiter.tryAcquire(loginName));
+        }
+        Assert.assertTrue(followRateLimiter.tryAcquire(loginName) > 0);
+        Assert.assertEquals(0, followRateLimiter.tryAcquire(loginName + "other"));
+    }
+
     private Member createMember(String loginName, String realName, String email, String password) {
         Member member = new Member();
         member.setLoginName(loginName);
@@ -0,0 +1,82 @@
+package org.yardimci.asocialoud.members;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.yardimci.asocialoud.members.db.model.FollowData;
+import org.yardimci.asocialoud.members.db.model.Member;
+import org.yardimci.asocialoud.members.db.repository.FollowDataRepository;
+import org.yardimci.asocialoud.members.db.repository.MemberRepository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Starts the service on a database created by hibernate before migrations were managed : identity ids and no
+ * sequences. It is baselined at V1, later migrations must bring the sequences, past the ids already there.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AsocialoudMemberService.class}, properties = {
+        "spring.datasource.url=" + LegacySchemaTest.URL,
+        "spring.jpa.properties.asocialoud.id.strategy=sequence"
+})
+public class LegacySchemaTest {
+
+    static final String URL = "jdbc:h2:mem:members-legacy-schema;DB_CLOSE_DELAY=-1";
+
+    // the schema as hibernate update created it, before the context starts
+    static {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table tbl_members (id bigint generated by default as identity, email varchar(255) not null, "
+                    + "password varchar(255) not null, realname varchar(255) not null, type varchar(1), username varchar(255) not null, primary key (id))");
+            statement.execute("create table tbl_follow_data (id bigint generated by default as identity, allow_relaud boolean not null, "
+                    + "follow_date timestamp not null, owner_id bigint not null, target_id bigint not null, primary key (id))");
+            statement.execute("alter table tbl_members add constraint UK_2p3y5hf7mcsxlxx4awjwc0j6a unique (username)");
+            statement.execute("alter table tbl_follow_data add constraint FKq3pt8hv4ubxn3wa7c2n0m8ni0 foreign key (owner_id) references tbl_members on delete cascade");
+            statement.execute("alter table tbl_follow_data add constraint FK7f0xq8e7lhy3rvx5hbuu0ddyr foreign key (target_id) references tbl_members on delete cascade");
+            for (int i = 1; i <= 3; i++) {
+                statement.execute("insert into tbl_members (email, password, realname, type, username) values "
+                        + "('legacy" + i + "@asocialoud.org', 'x', 'Legacy " + i + "', 'B', 'legacy" + i + "')");
+            }
+            statement.execute("insert into tbl_follow_data (allow_relaud, follow_date, owner_id, target_id) values (true, current_timestamp, 1, 2)");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private FollowDataRepository followDataRepository;
+
+    @Test
+    public void when_started_on_legacy_schema_then_ids_continue_after_existing_rows() {
+        Member legacy = memberRepository.findByLoginName("legacy1");
+        assertEquals(1L, legacy.getId().longValue());
+
+        Member member = new Member();
+        member.setLoginName("migrated1");
+        member.setRealName("Migrated 1");
+        member.setEmail("migrated1@asocialoud.org");
+        member.setPassword("123");
+        memberRepository.save(member);
+        assertTrue(member.getId() > 3);
+
+        FollowData followData = new FollowData();
+        followData.setFollowDate(new Date());
+        followData.setOwner(member);
+        followData.setMemberToFollow(legacy);
+        followDataRepository.save(followData);
+        assertTrue(followData.getId() > 1);
+    }
+}
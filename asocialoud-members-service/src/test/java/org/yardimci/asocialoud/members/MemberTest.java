@@ -81,6 +81,25 @@ public class MemberTest {
         assertEquals(HttpStatus.CREATED.value(), response.getStatusCode());
     }*/
 
+    @Test
+    public void whenProfileUnchanged_thenNotModified() {
+        String bearerToken = authenticateAndGetToken();
+
+        Response first = given().header("Authorization", "Bearer " + bearerToken)
+                .when().get("/api/members/testmem").then().statusCode(HttpStatus.SC_OK).extract().response();
+        String etag = first.getHeader("ETag");
+
+        given().header("Authorization", "Bearer " + bearerToken).header("If-None-Match", etag)
+                .when().get("/api/members/testmem").then().statusCode(HttpStatus.SC_NOT_MODIFIED);
+
+        given().header("Authorization", "Bearer " + bearerToken).contentType(ContentType.JSON)
+                .body("{\"realName\" : \"Test Member\", \"email\" : \"testmem@mail.net\"}")
+                .when().patch("/api/members/testmem").then().statusCode(HttpStatus.SC_OK);
+
+        given().header("Authorization", "Bearer " + bearerToken).header("If-None-Match", etag)
+                .when().get("/api/members/testmem").then().statusCode(HttpStatus.SC_OK);
+    }
+
     private Member createMember() {
         Member member = new Member();
         member.setLoginName("testmember");
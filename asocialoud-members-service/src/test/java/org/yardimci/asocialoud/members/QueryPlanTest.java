@@ -0,0 +1,256 @@
+package org.yardimci.asocialoud.members;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yardimci.asocialoud.members.db.model.LoginGrams;
+import org.yardimci.asocialoud.members.db.model.Member;
+import org.yardimci.asocialoud.members.db.model.MemberType;
+import org.yardimci.asocialoud.members.db.repository.FollowDataRepository;
+import org.yardimci.asocialoud.members.db.repository.MemberRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs every repository query against a seeded database built by the migrations, then EXPLAINs each
+ * statement hibernate sent for it with the same parameters. A plan scanning a whole table fails the test.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AsocialoudMemberService.class, QueryPlanTest.Recorder.class}, properties = {
+        "spring.datasource.url=jdbc:h2:mem:members-query-plans;DB_CLOSE_DELAY=-1"
+})
+public class QueryPlanTest {
+
+    private static final int MEMBERS = 2000;
+    private static final int FOLLOWINGS = 20;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private FollowDataRepository followDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void when_repository_queries_explained_then_no_table_scanned() throws SQLException {
+        seed();
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("findByLoginName", () -> memberRepository.findByLoginName("member42"));
+        queries.put("findByEmail", () -> memberRepository.findByEmail("member42@asocialoud.org"));
+        queries.put("findByLoginGramAndMemberType", () -> memberRepository.findByLoginGramAndMemberType(
+                LoginGrams.searchGramOf("ber42"), LoginGrams.containsPatternOf("ber42"), MemberType.B));
+        queries.put("findAllByMemberType", () -> memberRepository.findAllByMemberType(MemberType.T));
+        queries.put("findAllByOwnerMember", () -> followDataRepository.findAllByOwnerMember(member(42)));
+        queries.put("findAllFollowersOfMember", () -> followDataRepository.findAllFollowersOfMember(member(42)));
+        queries.put("findFollowingIdsOfMember", () -> followDataRepository.findFollowingIdsOfMember(42L));
+        queries.put("findRelaudsMutedIdsOfMember", () -> followDataRepository.findRelaudsMutedIdsOfMember(42L));
+        queries.put("existsFollowDataByOwnerAndMemberToFollow", () -> followDataRepository.existsFollowDataByOwnerAndMemberToFollow(member(42), member(43)));
+        queries.put("findByOwnerAndMemberToFollow", () -> followDataRepository.findByOwnerAndMemberToFollow(member(42), member(43)));
+        queries.put("deleteAllByOwner", () -> followDataRepository.deleteAllByOwner(member(44)));
+        queries.put("deleteByLoginName", () -> memberRepository.deleteByLoginName("member45"));
+
+        Set<String> declared = new TreeSet<>();
+        for (Class<?> repository : new Class<?>[]{MemberRepository.class, FollowDataRepository.class}) {
+            for (Method method : repository.getDeclaredMethods()) {
+                declared.add(method.getName());
+            }
+        }
+        assertTrue("every repository query is explained, missing : " + declared, queries.keySet().containsAll(declared));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            List<RecordedQuery> recorded = transactionTemplate.execute(status -> {
+                // deletes are rolled back, the seed stays the same for every query
+                status.setRollbackOnly();
+                return Recorder.record(query.getValue());
+            });
+            assertFalse(query.getKey() + " sent no query", recorded.isEmpty());
+            for (RecordedQuery statement : recorded) {
+                String plan = explain(statement);
+                assertFalse(query.getKey() + " scans a table :\n" + plan, plan.contains("tableScan"));
+            }
+        }
+    }
+
+    private Member member(long id) {
+        return memberRepository.findById(id).get();
+    }
+
+    private void seed() throws SQLException {
+        try (Connection connection = Recorder.target.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement members = connection.prepareStatement(
+                    "insert into tbl_members (id, type, username, realname, email, password) values (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement grams = connection.prepareStatement(
+                         "insert into tbl_member_login_grams (member_id, gram) values (?, ?)");
+                 PreparedStatement follows = connection.prepareStatement(
+                         "insert into tbl_follow_data (id, follow_date, owner_id, target_id, allow_relaud) values (?, ?, ?, ?, ?)")) {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                long followId = 1;
+                for (long id = 1; id <= MEMBERS; id++) {
+                    String loginName = "member" + id;
+                    members.setLong(1, id);
+                    members.setString(2, id % 100 == 0 ? MemberType.T.name() : MemberType.B.name());
+                    members.setString(3, loginName);
+                    members.setString(4, "Member " + id);
+                    members.setString(5, loginName + "@asocialoud.org");
+                    members.setString(6, "secret");
+                    members.addBatch();
+                    for (String gram : LoginGrams.of(loginName)) {
+                        grams.setLong(1, id);
+                        grams.setString(2, gram);
+                        grams.addBatch();
+                    }
+                }
+                members.executeBatch();
+                grams.executeBatch();
+
+                for (long owner = 1; owner <= MEMBERS; owner++) {
+                    for (int i = 1; i <= FOLLOWINGS; i++) {
+                        follows.setLong(1, followId++);
+                        follows.setTimestamp(2, now);
+                        follows.setLong(3, owner);
+                        follows.setLong(4, (owner + i * 37) % MEMBERS + 1);
+                        follows.setBoolean(5, true);
+                        follows.addBatch();
+                    }
+                }
+                follows.executeBatch();
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("analyze");
+            }
+            connection.commit();
+        }
+    }
+
+    private String explain(RecordedQuery query) throws SQLException {
+        try (Connection connection = Recorder.target.getConnection();
+             PreparedStatement explain = connection.prepareStatement("explain " + query.sql)) {
+            for (Map.Entry<Integer, Object> parameter : query.parameters.entrySet()) {
+                explain.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet plan = explain.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        }
+    }
+
+    static class RecordedQuery {
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+
+        RecordedQuery(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Wraps the data source so that the queries executed while {@link #record(Runnable)} runs are kept with their parameters.
+     */
+    @TestConfiguration
+    static class Recorder {
+
+        private static final ThreadLocal<List<RecordedQuery>> RECORDED = new ThreadLocal<>();
+
+        // the data source itself, for statements that are not recorded
+        static volatile DataSource target;
+
+        @Bean
+        static BeanPostProcessor queryRecordingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+
+        static List<RecordedQuery> record(Runnable queries) {
+            RECORDED.set(new ArrayList<>());
+            try {
+                queries.run();
+                return RECORDED.get();
+            } finally {
+                RECORDED.remove();
+            }
+        }
+
+        private static DataSource wrap(DataSource dataSource) {
+            target = dataSource;
+            return proxy(DataSource.class, dataSource, (method, args) -> {
+                Object result = method.invoke(dataSource, args);
+                return result instanceof Connection ? connection((Connection) result) : result;
+            });
+        }
+
+        private static Connection connection(Connection target) {
+            return proxy(Connection.class, target, (method, args) -> {
+                Object result = method.invoke(target, args);
+                return method.getName().equals("prepareStatement") ? statement((PreparedStatement) result, (String) args[0]) : result;
+            });
+        }
+
+        private static PreparedStatement statement(PreparedStatement target, String sql) {
+            Map<Integer, Object> parameters = new HashMap<>();
+            return proxy(PreparedStatement.class, target, (method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.equals("executeQuery") && RECORDED.get() != null) {
+                    RECORDED.get().add(new RecordedQuery(sql, Collections.unmodifiableMap(new HashMap<>(parameters))));
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Call call) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return call.invoke(method, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        interface Call {
+            Object invoke(Method method, Object[] args) throws Exception;
+        }
+    }
+}